@@ -0,0 +1,108 @@
+package com.rahi.apigateway.config;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One long-lived WebClient per downstream service, each on its own Reactor Netty connection
+ * pool so a slow service can't exhaust connections needed for the others. Pools publish
+ * reactor.netty.connection.provider.* metrics tagged with the pool name (the service id).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DownstreamClients {
+
+    private final WebClient.Builder webClientBuilder;
+    private final DownstreamProperties properties;
+    private final ReactorLoadBalancerExchangeFilterFunction loadBalancerFunction;
+
+    private final List<ConnectionProvider> providers = new ArrayList<>();
+
+    private WebClient userService;
+    private WebClient hazardService;
+    private WebClient hazardServiceBalanced;
+    private WebClient aiService;
+    private WebClient notificationService;
+
+    @PostConstruct
+    public void init() {
+        userService = create("user-service", properties.getUserService());
+        hazardService = create("hazard-service", properties.getHazardService());
+        hazardServiceBalanced = hazardService.mutate()
+                .baseUrl("http://hazard-service")
+                .filter(loadBalancerFunction)
+                .build();
+        aiService = create("ai-service", properties.getAiService());
+        notificationService = create("notification-service", properties.getNotificationService());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        providers.forEach(ConnectionProvider::dispose);
+    }
+
+    public WebClient userService() {
+        return userService;
+    }
+
+    public WebClient hazardService() {
+        return hazardService;
+    }
+
+    /**
+     * hazard-service through the load balancer, like the lb://hazard-service routes, so a request
+     * with X-Location-Cell reaches the replica that owns the cell. Same connection pool.
+     */
+    public WebClient hazardServiceBalanced() {
+        return hazardServiceBalanced;
+    }
+
+    public WebClient aiService() {
+        return aiService;
+    }
+
+    public WebClient notificationService() {
+        return notificationService;
+    }
+
+    private WebClient create(String name, DownstreamProperties.Downstream downstream) {
+        DownstreamProperties.Pool pool = downstream.getPool();
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(true)
+                .build();
+        providers.add(provider);
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) downstream.getConnectTimeout().toMillis())
+                .responseTimeout(downstream.getResponseTimeout());
+
+        log.info("🔌 {} client: {} (max {} connections, {} pending, response timeout {})",
+                name, downstream.getUrl(), pool.getMaxConnections(), pool.getPendingAcquireMaxCount(),
+                downstream.getResponseTimeout());
+
+        // clone(): the shared builder is mutable and must not pick up this client's base URL
+        return webClientBuilder.clone()
+                .baseUrl(downstream.getUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.rahi.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Downstream services called directly by gateway controllers (services.*).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "services")
+public class DownstreamProperties {
+
+    private Downstream userService = new Downstream();
+    private Downstream hazardService = new Downstream();
+    private Downstream aiService = new Downstream();
+    private Downstream notificationService = new Downstream();
+
+    @Data
+    public static class Downstream {
+        private String url;
+
+        // Probed by ServiceHealthMonitor
+        private String healthPath = "/actuator/health";
+
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration responseTimeout = Duration.ofSeconds(10);
+
+        private Pool pool = new Pool();
+    }
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 50;
+
+        // Requests allowed to wait for a connection; beyond this they fail fast
+        private int pendingAcquireMaxCount = 100;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+
+        // Close idle connections before the downstream (or a proxy in between) silently drops them
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(15);
+    }
+}
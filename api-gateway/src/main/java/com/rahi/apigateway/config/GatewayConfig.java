@@ -1,12 +1,20 @@
 package com.rahi.apigateway.config;
 
 import com.rahi.apigateway.filter.AuthenticationFilter;
+import com.rahi.apigateway.filter.ConcurrencyLimitFilter;
+import com.rahi.apigateway.filter.HazardCacheFilter;
 import com.rahi.apigateway.filter.LoggingFilter;
+import com.rahi.apigateway.filter.RateLimitFilter;
+import com.rahi.apigateway.filter.RequestCoalescingFilter;
+import com.rahi.apigateway.filter.ResilienceFilter;
+import com.rahi.apigateway.filter.StickyCellFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 
 @Configuration
 @RequiredArgsConstructor
@@ -14,10 +22,29 @@ public class GatewayConfig {
 
         private final AuthenticationFilter authFilter;
         private final LoggingFilter loggingFilter;
+        private final RateLimitFilter rateLimitFilter;
+        private final HazardCacheFilter hazardCacheFilter;
+        private final RequestCoalescingFilter coalescingFilter;
+        private final ResilienceFilter resilienceFilter;
+        private final ConcurrencyLimitFilter concurrencyLimitFilter;
+        private final StickyCellFilter stickyCellFilter;
 
         @Bean
         public RouteLocator customRouteLocator(RouteLocatorBuilder builder) {
                 return builder.routes()
+                                // ======================================
+                                // SERVICE INTERNALS - never proxied
+                                // The discovery locator routes /{service-id}/** to every service,
+                                // so their actuator and /internal endpoints are answered here first
+                                // ======================================
+                                .route("blocked-internal", r -> r
+                                                .order(-1)
+                                                .path("/*/internal/**", "/*/actuator/**")
+                                                .filters(f -> f
+                                                                .filter(loggingFilter)
+                                                                .filter(notFound()))
+                                                .uri("no://op"))
+
                                 // ======================================
                                 // AUTHENTICATION - Handled by Gateway Controller
                                 // NO ROUTING NEEDED (direct controller)
@@ -31,8 +58,18 @@ public class GatewayConfig {
                                                 .filters(f -> f
                                                                 .filter(loggingFilter)
                                                                 .filter(authFilter.apply(
-                                                                                new AuthenticationFilter.Config())))
-                                                .uri("http://user-service:8081")) // Load balanced via Eureka
+                                                                                new AuthenticationFilter.Config()))
+                                                                .filter(rateLimitFilter.apply(
+                                                                                new RateLimitFilter.Config()))
+                                                                .filter(coalescingFilter.apply(config -> config.setPerUser(true)))
+                                                                .filter(resilienceFilter.apply(config -> {
+                                                                        config.setName("user-service");
+                                                                        config.setStaleFallback(true);
+                                                                        config.setPerUser(true);
+                                                                }))
+                                                                .filter(concurrencyLimitFilter.apply(
+                                                                                new ConcurrencyLimitFilter.Config())))
+                                                .uri("lb://user-service")) // Load balanced via Eureka
 
                                 // ======================================
                                 // HAZARD SERVICE - via Eureka Service Discovery
@@ -42,16 +79,43 @@ public class GatewayConfig {
                                                 .filters(f -> f
                                                                 .filter(loggingFilter)
                                                                 .filter(authFilter.apply(
-                                                                                new AuthenticationFilter.Config())))
-                                                .uri("http://hazard-service:8082"))
+                                                                                new AuthenticationFilter.Config()))
+                                                                // Cache hits are limited too: each one replays the user's
+                                                                // alerts upstream, which runs detection if the cell expired
+                                                                .filter(rateLimitFilter.apply(
+                                                                                new RateLimitFilter.Config()))
+                                                                .filter(hazardCacheFilter.apply(
+                                                                                new HazardCacheFilter.Config()))
+                                                                .filter(stickyCellFilter.apply(
+                                                                                new StickyCellFilter.Config()))
+                                                                .filter(coalescingFilter.apply(config -> config.setReplayAlerts(true)))
+                                                                .filter(resilienceFilter.apply(config -> {
+                                                                        config.setName("hazard-service");
+                                                                        config.setStaleFallback(true);
+                                                                }))
+                                                                .filter(concurrencyLimitFilter.apply(
+                                                                                new ConcurrencyLimitFilter.Config())))
+                                                .uri("lb://hazard-service"))
 
                                 .route("hazard-service-routes", r -> r
                                                 .path("/api/route/**")
                                                 .filters(f -> f
                                                                 .filter(loggingFilter)
                                                                 .filter(authFilter.apply(
-                                                                                new AuthenticationFilter.Config())))
-                                                .uri("http://hazard-service:8082"))
+                                                                                new AuthenticationFilter.Config()))
+                                                                .filter(rateLimitFilter.apply(
+                                                                                new RateLimitFilter.Config()))
+                                                                .filter(stickyCellFilter.apply(
+                                                                                new StickyCellFilter.Config()))
+                                                                .filter(coalescingFilter.apply(config -> config.setPerUser(true)))
+                                                                .filter(resilienceFilter.apply(config -> {
+                                                                        config.setName("hazard-service");
+                                                                        config.setStaleFallback(true);
+                                                                        config.setPerUser(true);
+                                                                }))
+                                                                .filter(concurrencyLimitFilter.apply(
+                                                                                new ConcurrencyLimitFilter.Config())))
+                                                .uri("lb://hazard-service"))
 
                                 // ======================================
                                 // AI SERVICE - Direct URL (Python FastAPI, not in Eureka)
@@ -61,7 +125,12 @@ public class GatewayConfig {
                                                 .filters(f -> f
                                                                 .filter(loggingFilter)
                                                                 .filter(authFilter.apply(
-                                                                                new AuthenticationFilter.Config())))
+                                                                                new AuthenticationFilter.Config()))
+                                                                .filter(rateLimitFilter.apply(
+                                                                                new RateLimitFilter.Config()))
+                                                                .filter(resilienceFilter.apply(config -> config.setName("ai-service")))
+                                                                .filter(concurrencyLimitFilter.apply(
+                                                                                new ConcurrencyLimitFilter.Config())))
                                                 .uri("http://ai-service:8003"))
 
                                 .route("ai-service-analysis", r -> r
@@ -69,7 +138,12 @@ public class GatewayConfig {
                                                 .filters(f -> f
                                                                 .filter(loggingFilter)
                                                                 .filter(authFilter.apply(
-                                                                                new AuthenticationFilter.Config())))
+                                                                                new AuthenticationFilter.Config()))
+                                                                .filter(rateLimitFilter.apply(
+                                                                                new RateLimitFilter.Config()))
+                                                                .filter(resilienceFilter.apply(config -> config.setName("ai-service")))
+                                                                .filter(concurrencyLimitFilter.apply(
+                                                                                new ConcurrencyLimitFilter.Config())))
                                                 .uri("http://ai-service:8003"))
 
                                 // ======================================
@@ -80,7 +154,12 @@ public class GatewayConfig {
                                                 .filters(f -> f
                                                                 .filter(loggingFilter)
                                                                 .filter(authFilter.apply(
-                                                                                new AuthenticationFilter.Config())))
+                                                                                new AuthenticationFilter.Config()))
+                                                                .filter(rateLimitFilter.apply(
+                                                                                new RateLimitFilter.Config()))
+                                                                .filter(resilienceFilter.apply(config -> config.setName("notification-service")))
+                                                                .filter(concurrencyLimitFilter.apply(
+                                                                                new ConcurrencyLimitFilter.Config())))
                                                 .uri("http://notification-service:8004"))
 
                                 // ======================================
@@ -91,7 +170,9 @@ public class GatewayConfig {
                                                 .filters(f -> f
                                                                 .filter(loggingFilter)
                                                                 .filter(authFilter.apply(
-                                                                                new AuthenticationFilter.Config())))
+                                                                                new AuthenticationFilter.Config()))
+                                                                .filter(rateLimitFilter.apply(
+                                                                                new RateLimitFilter.Config())))
                                                 .uri("forward:/"))
 
                                 // ======================================
@@ -124,4 +205,11 @@ public class GatewayConfig {
 
                                 .build();
         }
-}
\ No newline at end of file
+
+        private static GatewayFilter notFound() {
+                return (exchange, chain) -> {
+                        exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+                        return exchange.getResponse().setComplete();
+                };
+        }
+}
@@ -0,0 +1,32 @@
+package com.rahi.apigateway.config;
+
+import com.rahi.apigateway.service.InstanceStatsRegistry;
+import com.rahi.apigateway.service.LatencyAwareLoadBalancer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer for every lb:// service, registered through @LoadBalancerClients on
+ * ApiGatewayApplication. Spring creates one child context per service from this class, so it
+ * must not be a component-scanned @Configuration.
+ */
+public class LatencyAwareLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> latencyAwareLoadBalancer(Environment environment,
+                                                                        LoadBalancerClientFactory clientFactory,
+                                                                        InstanceStatsRegistry instanceStats,
+                                                                        MeterRegistry meterRegistry) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LatencyAwareLoadBalancer(
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId, instanceStats,
+                environment.getProperty("gateway.sticky-routing.ring-replicas", Integer.class, 100),
+                environment.getProperty("gateway.sticky-routing.load-factor", Double.class, 1.25),
+                meterRegistry);
+    }
+}
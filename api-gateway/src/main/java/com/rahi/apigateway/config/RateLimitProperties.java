@@ -0,0 +1,43 @@
+package com.rahi.apigateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token-bucket rate limits per route (gateway.rate-limit).
+ *
+ * A route's limit is routes.{routeId} if set, otherwise default-limit; without either the
+ * route is not limited.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Tokens taken from Redis per round-trip; each instance may over-admit by up to this many
+    private int leaseSize = 10;
+
+    // Unused leased tokens go back to Redis after this, so a quiet instance doesn't hoard them
+    private Duration leaseTtl = Duration.ofSeconds(1);
+
+    private Limit defaultLimit;
+
+    private Map<String, Limit> routes = new HashMap<>();
+
+    public Limit limitFor(String routeId) {
+        return routes.getOrDefault(routeId, defaultLimit);
+    }
+
+    @Data
+    public static class Limit {
+        private int capacity = 60; // burst size
+        private double refillPerSecond = 1;
+    }
+}
@@ -1,6 +1,7 @@
 package com.rahi.apigateway.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.rahi.apigateway.config.DownstreamClients;
 import com.rahi.apigateway.dto.AuthRequest;
 import com.rahi.apigateway.dto.AuthResponse;
 import com.rahi.apigateway.dto.RegisterRequest;
@@ -8,10 +9,8 @@ import com.rahi.apigateway.util.JwtUtil;
 import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
@@ -25,12 +24,9 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AuthenticationController {
 
-    private final WebClient.Builder webClientBuilder;
+    private final DownstreamClients downstreamClients;
     private final JwtUtil jwtUtil;
 
-    @Value("${services.user-service.url}")
-    private String userServiceUrl;
-
     /**
      * PUBLIC: Register new user
      */
@@ -38,9 +34,7 @@ public class AuthenticationController {
     public Mono<ResponseEntity<Object>> register(@RequestBody RegisterRequest request) {
         log.info("📝 Register request: {}", request.getEmail());
         
-        WebClient client = webClientBuilder.baseUrl(userServiceUrl).build();
-        
-        return client.post()
+        return downstreamClients.userService().post()
                 .uri("/internal/auth/register")
                 .bodyValue(request)
                 .retrieve()
@@ -75,9 +69,7 @@ public class AuthenticationController {
                             ? ex.getResponseBodyAsString() 
                             : "Registration failed");
                     
-                    return Mono.just(ResponseEntity
-                            .status(ex.getStatusCode())
-                            .body((Object) errorBody));
+                    return Mono.just(errorResponse(ex, errorBody));
                 })
                 .onErrorResume(ex -> {
                     log.error("❌ Registration error: {}", ex.getMessage());
@@ -96,9 +88,7 @@ public class AuthenticationController {
     public Mono<ResponseEntity<Object>> login(@RequestBody AuthRequest request) {
         log.info("🔐 Login request: {}", request.getEmail());
         
-        WebClient client = webClientBuilder.baseUrl(userServiceUrl).build();
-        
-        return client.post()
+        return downstreamClients.userService().post()
                 .uri("/internal/auth/validate")
                 .bodyValue(request)
                 .retrieve()
@@ -135,9 +125,7 @@ public class AuthenticationController {
                         errorBody.put("error", "Login failed");
                     }
                     
-                    return Mono.just(ResponseEntity
-                            .status(ex.getStatusCode())
-                            .body((Object) errorBody));
+                    return Mono.just(errorResponse(ex, errorBody));
                 })
                 .onErrorResume(ex -> {
                     log.error("❌ Login error: {}", ex.getMessage());
@@ -236,6 +224,18 @@ public class AuthenticationController {
         return ResponseEntity.ok((Object) body);
     }
 
+    /**
+     * Upstream error status, keeping Retry-After from user-service when it sheds load (503)
+     */
+    private ResponseEntity<Object> errorResponse(WebClientResponseException ex, Map<String, String> errorBody) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(ex.getStatusCode());
+        String retryAfter = ex.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            response.header(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return response.body((Object) errorBody);
+    }
+
     /**
      * Create httpOnly cookie for auth token
      */
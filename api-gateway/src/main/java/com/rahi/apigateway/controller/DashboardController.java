@@ -1,11 +1,14 @@
 package com.rahi.apigateway.controller;
 
 import com.rahi.apigateway.dto.DashboardResponse;
+import com.rahi.apigateway.dto.DashboardSection;
 import com.rahi.apigateway.service.DashboardAggregationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -61,4 +64,27 @@ public class DashboardController {
                 .map(ResponseEntity::ok)
                 .defaultIfEmpty(ResponseEntity.internalServerError().build());
     }
+
+    /**
+     * Streaming dashboard (SSE or NDJSON, by Accept header): each section is sent as soon as its
+     * service answers or its deadline passes, then a final "complete" section
+     */
+    @GetMapping(value = "/stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<DashboardSection>>> streamDashboard(
+            @RequestParam(required = true) Double lat,
+            @RequestParam(required = true) Double lon,
+            @RequestParam(defaultValue = "5.0") Double radius,
+            @RequestHeader(value = "X-User-Id", required = false) String userId,
+            @RequestHeader(value = "Authorization", required = false) String authorizationHeader) {
+
+        if (userId == null) {
+            log.warn("⚠️ Dashboard stream request missing X-User-Id header");
+            return Mono.just(ResponseEntity.status(401).build());
+        }
+
+        log.info("📡 Dashboard stream request for user {} at ({}, {})", userId, lat, lon);
+
+        return Mono.just(ResponseEntity.ok(
+                dashboardService.streamDashboardData(Long.parseLong(userId), lat, lon, radius, authorizationHeader)));
+    }
 }
\ No newline at end of file
@@ -1,78 +1,57 @@
 package com.rahi.apigateway.controller;
 
+import com.rahi.apigateway.service.GatewayMetrics;
+import com.rahi.apigateway.service.ServiceHealthMonitor;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Gateway status and health check endpoints
  */
-@Slf4j
 @RestController
 @RequestMapping("/api/gateway")
 @RequiredArgsConstructor
 public class GatewayStatusController {
 
-        private final WebClient.Builder webClientBuilder;
+        private final ServiceHealthMonitor serviceHealthMonitor;
+        private final GatewayMetrics gatewayMetrics;
 
-        @Value("${services.user-service.url:http://user-service:8081}")
-        private String userServiceUrl;
+        /**
+         * Served from the background probe snapshot; nothing is called per request
+         */
+        @GetMapping("/status")
+        public ResponseEntity<Map<String, Object>> getGatewayStatus() {
+                Map<String, ServiceHealthMonitor.ServiceHealth> health = serviceHealthMonitor.snapshot();
 
-        @Value("${services.hazard-service.url:http://hazard-service:8082}")
-        private String hazardServiceUrl;
+                Map<String, Object> status = new HashMap<>();
+                status.put("gateway", "UP");
+                status.put("timestamp", java.time.Instant.now());
 
-        @Value("${services.ai-service.url:http://ai-service:8003}")
-        private String aiServiceUrl;
+                Map<String, String> services = new HashMap<>();
+                health.forEach((service, serviceHealth) -> services.put(service, serviceHealth.status()));
+                status.put("services", services);
+                status.put("details", health);
 
-        @Value("${services.notification-service.url:http://notification-service:8004}")
-        private String notificationServiceUrl;
+                // Overall health
+                boolean allUp = services.values().stream().allMatch(ServiceHealthMonitor.UP::equals);
+                status.put("overall", allUp ? "HEALTHY" : "DEGRADED");
 
-        @GetMapping("/status")
-        public Mono<ResponseEntity<Map<String, Object>>> getGatewayStatus() {
-                log.info("🏥 Gateway status check requested");
-
-                // Check all downstream services
-                Mono<String> userStatus = checkServiceHealth(userServiceUrl, "/actuator/health");
-                Mono<String> hazardStatus = checkServiceHealth(hazardServiceUrl, "/actuator/health");
-                Mono<String> aiStatus = checkServiceHealth(aiServiceUrl, "/health");
-                Mono<String> notificationStatus = checkServiceHealth(notificationServiceUrl, "/health");
-
-                return Mono.zip(userStatus, hazardStatus, aiStatus, notificationStatus)
-                                .map(tuple -> {
-                                        Map<String, Object> status = new HashMap<>();
-                                        status.put("gateway", "UP");
-                                        status.put("timestamp", java.time.Instant.now());
-
-                                        Map<String, String> services = new HashMap<>();
-                                        services.put("user-service", tuple.getT1());
-                                        services.put("hazard-service", tuple.getT2());
-                                        services.put("ai-service", tuple.getT3());
-                                        services.put("notification-service", tuple.getT4());
-                                        status.put("services", services);
-
-                                        // Overall health
-                                        boolean allUp = tuple.getT1().equals("UP") &&
-                                                        tuple.getT2().equals("UP") &&
-                                                        tuple.getT3().equals("UP") &&
-                                                        tuple.getT4().equals("UP");
-                                        status.put("overall", allUp ? "HEALTHY" : "DEGRADED");
-
-                                        return ResponseEntity.ok(status);
-                                })
-                                .defaultIfEmpty(ResponseEntity.status(503).body(Map.of(
-                                                "gateway", "UP",
-                                                "overall", "ERROR",
-                                                "message", "Failed to check service health")));
+                return ResponseEntity.ok(status);
+        }
+
+        /**
+         * Latency percentiles per route, upstream and downstream service over the recent window
+         * (the same timers are exported with full histograms at /actuator/prometheus)
+         */
+        @GetMapping("/metrics")
+        public ResponseEntity<Map<String, Object>> getMetrics() {
+                return ResponseEntity.ok(gatewayMetrics.snapshot());
         }
 
         @GetMapping("/routes")
@@ -110,10 +89,12 @@ public class GatewayStatusController {
 
                 routes.put("aggregation", Map.of(
                                 "GET /api/dashboard", "Aggregated dashboard data",
-                                "GET /api/dashboard/quick", "Quick dashboard (reduced data)"));
+                                "GET /api/dashboard/quick", "Quick dashboard (reduced data)",
+                                "GET /api/dashboard/stream", "Dashboard sections streamed as they resolve (SSE/NDJSON)"));
 
                 routes.put("health", Map.of(
                                 "GET /api/gateway/status", "Gateway and all services status",
+                                "GET /api/gateway/metrics", "Gateway latency percentiles",
                                 "GET /api/health/user", "User service health",
                                 "GET /api/health/hazard", "Hazard service health",
                                 "GET /api/health/ai", "AI service health",
@@ -155,42 +136,22 @@ public class GatewayStatusController {
         }
 
         @GetMapping("/health/user")
-        public Mono<ResponseEntity<String>> checkUserService() {
-                return checkServiceHealth(userServiceUrl, "/actuator/health")
-                                .map(status -> ResponseEntity.ok(status));
+        public ResponseEntity<String> checkUserService() {
+                return ResponseEntity.ok(serviceHealthMonitor.status("user-service"));
         }
 
         @GetMapping("/health/hazard")
-        public Mono<ResponseEntity<String>> checkHazardService() {
-                return checkServiceHealth(hazardServiceUrl, "/actuator/health")
-                                .map(status -> ResponseEntity.ok(status));
+        public ResponseEntity<String> checkHazardService() {
+                return ResponseEntity.ok(serviceHealthMonitor.status("hazard-service"));
         }
 
         @GetMapping("/health/ai")
-        public Mono<ResponseEntity<String>> checkAiService() {
-                return checkServiceHealth(aiServiceUrl, "/health")
-                                .map(status -> ResponseEntity.ok(status));
+        public ResponseEntity<String> checkAiService() {
+                return ResponseEntity.ok(serviceHealthMonitor.status("ai-service"));
         }
 
         @GetMapping("/health/notification")
-        public Mono<ResponseEntity<String>> checkNotificationService() {
-                return checkServiceHealth(notificationServiceUrl, "/health")
-                                .map(status -> ResponseEntity.ok(status));
-        }
-
-        private Mono<String> checkServiceHealth(String baseUrl, String healthPath) {
-                WebClient client = webClientBuilder.baseUrl(baseUrl).build();
-
-                return client.get()
-                                .uri(healthPath)
-                                .retrieve()
-                                .toBodilessEntity()
-                                .timeout(Duration.ofSeconds(3))
-                                .map(response -> response.getStatusCode().is2xxSuccessful() ? "UP" : "DOWN")
-                                .onErrorResume(error -> {
-                                        log.error("Service health check failed for {}: {}", baseUrl,
-                                                        error.getMessage());
-                                        return Mono.just("DOWN");
-                                });
+        public ResponseEntity<String> checkNotificationService() {
+                return ResponseEntity.ok(serviceHealthMonitor.status("notification-service"));
         }
 }
\ No newline at end of file
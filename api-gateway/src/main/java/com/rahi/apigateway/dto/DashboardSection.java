@@ -0,0 +1,50 @@
+package com.rahi.apigateway.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One element of the streaming dashboard. Sections arrive in the order they resolve;
+ * the last element is always section "complete", listing the sections that are partial.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DashboardSection {
+
+    public static final String USER = "user";
+    public static final String HAZARDS = "hazards";
+    public static final String AI = "ai";
+    public static final String COMPLETE = "complete";
+
+    // Section status; anything but OK means the data is missing
+    public static final String OK = "ok";
+    public static final String TIMEOUT = "timeout";
+    public static final String ERROR = "error";
+    public static final String EMPTY = "empty";
+
+    private String section;
+    private String status;
+    private JsonNode data;
+    private String error;
+    private Long elapsedMs;
+
+    // Only on the "complete" section
+    private List<String> partial;
+
+    private String timestamp;
+
+    @JsonIgnore
+    public boolean isOk() {
+        return OK.equals(status);
+    }
+}
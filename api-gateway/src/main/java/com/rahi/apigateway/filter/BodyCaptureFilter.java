@@ -0,0 +1,29 @@
+package com.rahi.apigateway.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Wraps every response in a BodyCaptureResponseDecorator just outside NettyWriteResponseFilter,
+ * so the upstream body is written through it (see BodyCaptureResponseDecorator.onBody).
+ */
+@Component
+public class BodyCaptureFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        BodyCaptureResponseDecorator capture = new BodyCaptureResponseDecorator(exchange.getResponse());
+        exchange.getAttributes().put(BodyCaptureResponseDecorator.ATTR, capture);
+        return chain.filter(exchange.mutate().response(capture).build());
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+}
@@ -0,0 +1,72 @@
+package com.rahi.apigateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Lets route filters see the response body. Installed on every exchange by BodyCaptureFilter,
+ * outside the filter that writes the upstream body (route filters run inside it, so a decorator
+ * they install themselves would never be written to).
+ *
+ * Without callbacks the body passes straight through. Once a filter registers one with onBody,
+ * the whole body is buffered, handed to each callback and then written out unchanged; only for
+ * small bodies that are about to be cached or shared, as streaming responses would lose their
+ * streaming.
+ */
+public class BodyCaptureResponseDecorator extends ServerHttpResponseDecorator {
+
+    static final String ATTR = BodyCaptureResponseDecorator.class.getName();
+
+    private final List<Consumer<byte[]>> callbacks = new CopyOnWriteArrayList<>();
+
+    public BodyCaptureResponseDecorator(ServerHttpResponse delegate) {
+        super(delegate);
+    }
+
+    /**
+     * Registers a callback for the body of the exchange's response, whoever writes it
+     */
+    public static void onBody(ServerWebExchange exchange, Consumer<byte[]> callback) {
+        BodyCaptureResponseDecorator capture = exchange.getAttribute(ATTR);
+        if (capture != null) {
+            capture.callbacks.add(callback);
+        }
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (callbacks.isEmpty()) {
+            return getDelegate().writeWith(body);
+        }
+        return DataBufferUtils.join(Flux.from(body))
+                .map(joined -> {
+                    byte[] bytes = new byte[joined.readableByteCount()];
+                    joined.read(bytes);
+                    DataBufferUtils.release(joined);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .flatMap(bytes -> {
+                    callbacks.forEach(callback -> callback.accept(bytes));
+                    return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                });
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        if (callbacks.isEmpty()) {
+            return getDelegate().writeAndFlushWith(body);
+        }
+        return writeWith(Flux.from(body).flatMapSequential(part -> part));
+    }
+}
@@ -0,0 +1,89 @@
+package com.rahi.apigateway.filter;
+
+import com.rahi.apigateway.service.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Holds each proxied request to its route's adaptive concurrency limit (AdaptiveConcurrencyLimiter).
+ * Requests that can't get a slot in time are answered 503 with Retry-After instead of piling up
+ * behind a slow upstream. Goes last in the route's filters, so cache hits and coalesced
+ * requests never take a slot.
+ */
+@Component
+public class ConcurrencyLimitFilter extends AbstractGatewayFilterFactory<ConcurrencyLimitFilter.Config> {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.concurrency.enabled:true}")
+    private boolean enabled;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.limiter = limiter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            // An open event stream would hold its slot for as long as the client stays connected
+            if (!enabled || RequestCoalescingFilter.isStream(exchange.getRequest())) {
+                return chain.filter(exchange);
+            }
+            String routeId = MetricsFilter.routeId(exchange);
+            return limiter.acquire(routeId)
+                    .flatMap(permit -> chain.filter(exchange)
+                            .doFinally(signal -> {
+                                if (signal == SignalType.CANCEL) {
+                                    permit.discard();
+                                } else {
+                                    permit.release();
+                                }
+                            })
+                            .thenReturn(true))
+                    .switchIfEmpty(Mono.defer(() -> {
+                        rejected(routeId).increment();
+                        return serviceUnavailable(exchange.getResponse()).thenReturn(true);
+                    }))
+                    .then();
+        };
+    }
+
+    private Counter rejected(String routeId) {
+        return Counter.builder("gateway.concurrency.rejected")
+                .tag("route", routeId)
+                .register(meterRegistry);
+    }
+
+    private static Mono<Void> serviceUnavailable(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        String body = String.format(
+                "{\"error\":\"%s\",\"message\":\"Service is at capacity, retry shortly\",\"timestamp\":\"%s\"}",
+                HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(), Instant.now());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Data
+    public static class Config {
+        // Limits come from gateway.concurrency and adapt per route id
+    }
+}
@@ -0,0 +1,150 @@
+package com.rahi.apigateway.filter;
+
+import com.rahi.apigateway.service.HazardResponseCache;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Edge cache for GET /api/hazards (other hazard paths pass through). Coordinates and radius
+ * are snapped and the request is forwarded with the snapped values, so nearby users share one
+ * cached response per encoding (Accept); responses vary by Accept. A hit is answered here (X-Cache: HIT, or 304 when If-None-Match matches the
+ * cached ETag) and the user's alerts are replayed by hazard-service; a miss is proxied and, if
+ * it returns 200, stored (X-Cache: MISS).
+ */
+@Component
+public class HazardCacheFilter extends AbstractGatewayFilterFactory<HazardCacheFilter.Config> {
+
+    public static final String CACHE_HEADER = "X-Cache";
+    private static final String HAZARDS_PATH = "/api/hazards";
+
+    private final HazardResponseCache hazardResponseCache;
+    private final StickyCellFilter stickyCellFilter;
+
+    public HazardCacheFilter(HazardResponseCache hazardResponseCache, StickyCellFilter stickyCellFilter) {
+        super(Config.class);
+        this.hazardResponseCache = hazardResponseCache;
+        this.stickyCellFilter = stickyCellFilter;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || !HAZARDS_PATH.equals(request.getPath().value())) {
+                return chain.filter(exchange);
+            }
+
+            HazardResponseCache.Location location = snap(request.getQueryParams());
+            MediaType encoding = hazardResponseCache.encoding(request);
+            if (location == null || encoding == null) {
+                return chain.filter(exchange); // let hazard-service reject it
+            }
+
+            String userId = exchange.getAttribute(AuthenticationFilter.USER_ID_ATTR);
+            return hazardResponseCache.get(location, encoding)
+                    .flatMap(cached -> {
+                        if (userId != null) {
+                            // The cell StickyCellFilter gives the forwarded (snapped) request
+                            hazardResponseCache.replayAlerts(location, userId, stickyCellFilter.cellAt(
+                                    Double.parseDouble(location.lat()), Double.parseDouble(location.lon())));
+                        }
+                        return writeCached(exchange, cached);
+                    })
+                    .switchIfEmpty(Mono.defer(() -> forward(exchange, chain, location, encoding)));
+        };
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, HazardResponseCache.Location location,
+                               MediaType encoding) {
+        URI snapped = UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                .replaceQueryParam("lat", location.lat())
+                .replaceQueryParam("lon", location.lon())
+                .replaceQueryParam("radius", location.radius())
+                .build(true)
+                .toUri();
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().set(CACHE_HEADER, "MISS");
+        BodyCaptureResponseDecorator.onBody(exchange, body -> {
+            if (response.getStatusCode() == HttpStatus.OK && body.length > 0) {
+                MediaType contentType = response.getHeaders().getContentType();
+                hazardResponseCache.put(location, encoding, new HazardResponseCache.CachedResponse(
+                        contentType != null ? contentType.toString() : encoding.toString(),
+                        response.getHeaders().getETag(),
+                        body));
+            }
+        });
+
+        return chain.filter(exchange.mutate()
+                .request(exchange.getRequest().mutate().uri(snapped).build())
+                .build());
+    }
+
+    private static Mono<Void> writeCached(ServerWebExchange exchange, HazardResponseCache.CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.set(CACHE_HEADER, "HIT");
+        headers.setCacheControl("no-cache");
+        headers.setVary(List.of(HttpHeaders.ACCEPT));
+        if (cached.etag() != null) {
+            headers.setETag(cached.etag());
+            if (matches(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.etag())) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                return response.setComplete();
+            }
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.set(HttpHeaders.CONTENT_TYPE, cached.contentType());
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    // Weak comparison (RFC 9110 13.1.2), as for hazard-service's own If-None-Match handling
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        String opaque = opaque(etag);
+        return ifNoneMatch.stream().anyMatch(candidate -> "*".equals(candidate) || opaque(candidate).equals(opaque));
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private HazardResponseCache.Location snap(MultiValueMap<String, String> query) {
+        if (query.getFirst("lat") == null || query.getFirst("lon") == null) {
+            return null;
+        }
+        try {
+            double lat = Double.parseDouble(query.getFirst("lat"));
+            double lon = Double.parseDouble(query.getFirst("lon"));
+            String radiusParam = query.getFirst("radius");
+            double radius = radiusParam != null ? Double.parseDouble(radiusParam) : 5.0;
+            if (!Double.isFinite(lat) || !Double.isFinite(lon) || !Double.isFinite(radius)) {
+                return null;
+            }
+            return hazardResponseCache.snap(lat, lon, radius);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Data
+    public static class Config {
+        // Cache settings come from gateway.hazard-cache
+    }
+}
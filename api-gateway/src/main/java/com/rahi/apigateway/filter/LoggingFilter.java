@@ -1,70 +1,95 @@
 package com.rahi.apigateway.filter;
 
-import lombok.extern.slf4j.Slf4j;
+import com.rahi.apigateway.service.AccessLogWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
-import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Slf4j
+/**
+ * Request ids and access logging for proxied routes.
+ *
+ * Ids are a per-process prefix plus a counter, e.g. "k2x9f-1a3", and are passed downstream as
+ * X-Request-Id. Timing uses System.nanoTime. Finished requests are handed to AccessLogWriter,
+ * which writes them as JSON lines off the request thread. Ordinary requests are logged at
+ * sample-rate; errors (5xx, exceptions, cancellations) and requests slower than slow-threshold
+ * are always logged.
+ */
 @Component
+@RequiredArgsConstructor
 public class LoggingFilter implements GatewayFilter, Ordered {
 
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    // Random per process so ids from different gateway instances don't collide
+    private static final String ID_PREFIX =
+            Long.toString(ThreadLocalRandom.current().nextLong(36L * 36 * 36 * 36 * 36), 36) + "-";
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final AccessLogWriter accessLogWriter;
+
+    @Value("${gateway.access-log.sample-rate:1.0}")
+    private double sampleRate;
+
+    @Value("${gateway.access-log.slow-threshold:PT1S}")
+    private Duration slowThreshold;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
-        Instant startTime = Instant.now();
-        
-        // Generate request ID
-        String requestId = java.util.UUID.randomUUID().toString().substring(0, 8);
-        
-        // Log incoming request
-        log.info("🔵 [{}] {} {} from {} | Headers: {}",
-                requestId,
-                request.getMethod(),
-                request.getPath(),
-                request.getRemoteAddress(),
-                request.getHeaders().getFirst("User-Agent"));
+        long startedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String requestId = ID_PREFIX + Long.toString(SEQUENCE.incrementAndGet(), 36);
 
         // Add request ID to headers
-        ServerHttpRequest modifiedRequest = request.mutate()
-                .header("X-Request-Id", requestId)
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .header(REQUEST_ID_HEADER, requestId)
                 .build();
+        exchange.getResponse().getHeaders().set(REQUEST_ID_HEADER, requestId);
 
-        return chain.filter(exchange.mutate().request(modifiedRequest).build())
-                .doOnSuccess(aVoid -> {
-                    ServerHttpResponse response = exchange.getResponse();
-                    Duration duration = Duration.between(startTime, Instant.now());
-                    
-                    // Log response
-                    log.info("🟢 [{}] {} {} | Status: {} | Duration: {}ms",
-                            requestId,
-                            request.getMethod(),
-                            request.getPath(),
-                            response.getStatusCode(),
-                            duration.toMillis());
-                })
-                .doOnError(error -> {
-                    Duration duration = Duration.between(startTime, Instant.now());
-                    log.error("🔴 [{}] {} {} | Error: {} | Duration: {}ms",
-                            requestId,
-                            request.getMethod(),
-                            request.getPath(),
-                            error.getMessage(),
-                            duration.toMillis());
-                });
+        return chain.filter(exchange.mutate().request(request).build())
+                .doOnSuccess(aVoid -> record(exchange, requestId, startedAt, start, null))
+                .doOnError(error -> record(exchange, requestId, startedAt, start,
+                        error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName()))
+                .doOnCancel(() -> record(exchange, requestId, startedAt, start, "cancelled"));
+    }
+
+    private void record(ServerWebExchange exchange, String requestId, long startedAt, long start, String error) {
+        long durationNanos = System.nanoTime() - start;
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        int status = statusCode != null ? statusCode.value() : (error != null ? 500 : 200);
+
+        boolean always = error != null || status >= 500 || durationNanos >= slowThreshold.toNanos();
+        if (!always && (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate))) {
+            return;
+        }
+
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        accessLogWriter.submit(new AccessLogWriter.Entry(
+                startedAt,
+                requestId,
+                exchange.getRequest().getMethod().name(),
+                exchange.getRequest().getPath().value(),
+                route != null ? route.getId() : null,
+                status,
+                durationNanos,
+                exchange.getAttribute(AuthenticationFilter.USER_ID_ATTR),
+                error));
     }
 
     @Override
     public int getOrder() {
         return -1; // Run first
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package com.rahi.apigateway.filter;
+
+import com.rahi.apigateway.service.GatewayMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Outermost filter: stamps the arrival time and records gateway.request.total when the
+ * exchange finishes, tagged with the matched route ("none" for unrouted requests).
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricsFilter implements WebFilter, Ordered {
+
+    public static final String ARRIVAL_ATTR = "snowguard.arrivalNanos";
+
+    private final GatewayMetrics gatewayMetrics;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long arrival = System.nanoTime();
+        exchange.getAttributes().put(ARRIVAL_ATTR, arrival);
+        return chain.filter(exchange)
+                .doFinally(signal -> gatewayMetrics.recordTotal(routeId(exchange), System.nanoTime() - arrival));
+    }
+
+    static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "none";
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,112 @@
+package com.rahi.apigateway.filter;
+
+import com.rahi.apigateway.config.RateLimitProperties;
+import com.rahi.apigateway.service.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Per-user, per-route token-bucket rate limiting. Must run after AuthenticationFilter so the
+ * user id is known; unauthenticated requests are limited per client IP.
+ *
+ * Every limited response carries X-RateLimit-Limit and X-RateLimit-Remaining; a rejected request
+ * gets 429 with Retry-After (seconds).
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends AbstractGatewayFilterFactory<RateLimitFilter.Config> {
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitFilter(TokenBucketRateLimiter rateLimiter, RateLimitProperties properties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.rateLimiter = rateLimiter;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            if (!properties.isEnabled()) {
+                return chain.filter(exchange);
+            }
+
+            String routeId = routeId(exchange);
+            String client = clientKey(exchange);
+
+            return rateLimiter.tryAcquire(routeId, client)
+                    .flatMap(decision -> {
+                        ServerHttpResponse response = exchange.getResponse();
+                        if (decision.limit() >= 0) {
+                            response.getHeaders().set("X-RateLimit-Limit", Long.toString(decision.limit()));
+                            response.getHeaders().set("X-RateLimit-Remaining", Long.toString(decision.remaining()));
+                        }
+                        if (decision.allowed()) {
+                            return chain.filter(exchange);
+                        }
+
+                        // Counted rather than logged at warn: a client over its limit would flood the log
+                        rejected(routeId).increment();
+                        log.debug("🚦 Rate limit exceeded on {} for {}", routeId, client);
+                        return tooManyRequests(response, decision.retryAfterMs());
+                    });
+        };
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "unknown";
+    }
+
+    private static String clientKey(ServerWebExchange exchange) {
+        String userId = exchange.getAttribute(AuthenticationFilter.USER_ID_ATTR);
+        if (userId != null) {
+            return "user:" + userId;
+        }
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (remote != null ? remote.getAddress().getHostAddress() : "unknown");
+    }
+
+    private Counter rejected(String routeId) {
+        return Counter.builder("gateway.ratelimit.rejected")
+                .tag("route", routeId)
+                .register(meterRegistry);
+    }
+
+    private static Mono<Void> tooManyRequests(ServerHttpResponse response, long retryAfterMs) {
+        long retryAfterSeconds = Math.max(1, (retryAfterMs + 999) / 1000);
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        String body = String.format(
+                "{\"error\":\"%s\",\"message\":\"Rate limit exceeded, retry in %d s\",\"timestamp\":\"%s\"}",
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(), retryAfterSeconds, Instant.now());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Data
+    public static class Config {
+        // Limits come from gateway.rate-limit, looked up by route id
+    }
+}
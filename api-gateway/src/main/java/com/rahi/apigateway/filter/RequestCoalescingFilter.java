@@ -0,0 +1,196 @@
+package com.rahi.apigateway.filter;
+
+import com.rahi.apigateway.service.HazardResponseCache;
+import com.rahi.apigateway.service.LatencyAwareLoadBalancer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collapses identical in-flight GETs into one upstream call.
+ *
+ * The first request for a key (path, sorted query, Accept, and X-User-Id when perUser is set)
+ * goes upstream; requests arriving while it is in flight wait for its response and get a copy.
+ * At most max-waiters requests wait on one call and for at most wait-timeout; requests beyond
+ * that, conditional requests, event streams and waiters whose leader failed make their own
+ * upstream call.
+ *
+ * With replayAlerts set (hazard lookups), each waiter's alerts are replayed like a cache hit,
+ * since only the leader's call sent alerts.
+ */
+@Component
+public class RequestCoalescingFilter extends AbstractGatewayFilterFactory<RequestCoalescingFilter.Config> {
+
+    public static final String COALESCED_HEADER = "X-Coalesced";
+
+    // Not copied to waiters: per-request or per-connection
+    private static final List<String> PRIVATE_HEADERS = List.of(
+            HttpHeaders.SET_COOKIE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.CONNECTION, LoggingFilter.REQUEST_ID_HEADER);
+
+    private static final Shared FAILED = new Shared(null, null, null);
+
+    private final HazardResponseCache hazardResponseCache;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${gateway.coalescing.max-waiters:1000}")
+    private int maxWaiters;
+
+    @Value("${gateway.coalescing.wait-timeout:PT5S}")
+    private Duration waitTimeout;
+
+    public RequestCoalescingFilter(HazardResponseCache hazardResponseCache, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.hazardResponseCache = hazardResponseCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET
+                    || request.getHeaders().containsKey(HttpHeaders.IF_NONE_MATCH)
+                    || request.getHeaders().containsKey(HttpHeaders.RANGE)
+                    || isStream(request)) {
+                return chain.filter(exchange);
+            }
+
+            String key = key(exchange, config.isPerUser());
+            InFlight fresh = new InFlight();
+            InFlight leader = inFlight.putIfAbsent(key, fresh);
+            if (leader == null) {
+                return lead(exchange, chain, key, fresh);
+            }
+
+            String routeId = MetricsFilter.routeId(exchange);
+            if (leader.waiters.incrementAndGet() > maxWaiters) {
+                leader.waiters.decrementAndGet();
+                counter("gateway.coalescing.overflow", routeId).increment();
+                return chain.filter(exchange);
+            }
+            return leader.result.asMono()
+                    .timeout(waitTimeout, Mono.fromSupplier(() -> {
+                        counter("gateway.coalescing.timeouts", routeId).increment();
+                        return FAILED;
+                    }))
+                    .flatMap(shared -> {
+                        if (shared == FAILED) {
+                            return chain.filter(exchange);
+                        }
+                        counter("gateway.coalescing.coalesced", routeId).increment();
+                        if (config.isReplayAlerts()) {
+                            replayAlerts(exchange);
+                        }
+                        return write(exchange.getResponse(), shared);
+                    });
+        };
+    }
+
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key, InFlight call) {
+        ServerHttpResponse response = exchange.getResponse();
+        BodyCaptureResponseDecorator.onBody(exchange, body -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(response.getHeaders());
+            PRIVATE_HEADERS.forEach(headers::remove);
+            // Arrivals from now on start a new call instead of getting this finished one
+            inFlight.remove(key, call);
+            call.result.tryEmitValue(new Shared(response.getStatusCode(), headers, body));
+        });
+
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    inFlight.remove(key, call);
+                    call.result.tryEmitValue(FAILED); // no-op if the response was shared
+                });
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, Shared shared) {
+        response.setStatusCode(shared.status());
+        shared.headers().forEach((name, values) -> {
+            if (!response.getHeaders().containsKey(name)) {
+                response.getHeaders().put(name, values);
+            }
+        });
+        response.getHeaders().set(COALESCED_HEADER, "true");
+        response.getHeaders().setContentLength(shared.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private void replayAlerts(ServerWebExchange exchange) {
+        String userId = exchange.getAttribute(AuthenticationFilter.USER_ID_ATTR);
+        MultiValueMap<String, String> query = exchange.getRequest().getQueryParams();
+        if (userId != null && query.getFirst("lat") != null && query.getFirst("lon") != null) {
+            // After StickyCellFilter: the header names the replica this request was routed to
+            hazardResponseCache.replayAlerts(
+                    new HazardResponseCache.Location(query.getFirst("lat"), query.getFirst("lon"), query.getFirst("radius")),
+                    userId, exchange.getRequest().getHeaders().getFirst(LatencyAwareLoadBalancer.CELL_HEADER));
+        }
+    }
+
+    // Event streams never finish, so they can't be buffered and shared
+    static boolean isStream(ServerHttpRequest request) {
+        return request.getPath().value().endsWith("/stream")
+                || request.getHeaders().getAccept().contains(MediaType.TEXT_EVENT_STREAM);
+    }
+
+    static String key(ServerWebExchange exchange, boolean perUser) {
+        ServerHttpRequest request = exchange.getRequest();
+        StringBuilder key = new StringBuilder(MetricsFilter.routeId(exchange))
+                .append(' ').append(request.getPath().value());
+        // Sorted so parameter order doesn't split otherwise identical requests
+        new TreeMap<>(request.getQueryParams()).forEach((name, values) ->
+                key.append('&').append(name).append('=').append(String.join(",", values)));
+        key.append(" accept=").append(request.getHeaders().getFirst(HttpHeaders.ACCEPT));
+        if (perUser) {
+            key.append(" user=").append((String) exchange.getAttribute(AuthenticationFilter.USER_ID_ATTR));
+        }
+        return key.toString();
+    }
+
+    private Counter counter(String name, String routeId) {
+        return Counter.builder(name)
+                .tag("route", routeId)
+                .register(meterRegistry);
+    }
+
+    private static final class InFlight {
+        final Sinks.One<Shared> result = Sinks.one();
+        final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    private record Shared(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    @Data
+    public static class Config {
+        // Responses depend on the caller (e.g. /api/users/me), so only the same user's requests are merged
+        private boolean perUser;
+
+        // Waiters on a hazard lookup get their alerts replayed (see HazardCacheFilter)
+        private boolean replayAlerts;
+    }
+}
@@ -0,0 +1,306 @@
+package com.rahi.apigateway.filter;
+
+import com.rahi.apigateway.service.ServiceHealthMonitor;
+import com.rahi.apigateway.service.StaleResponseCache;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breaker, semaphore bulkhead and budgeted retries for a proxied route, with the last
+ * known good response as fallback.
+ *
+ * Breakers and bulkheads are the Resilience4j instances named by the route's config (one per
+ * downstream service, configured under resilience4j.*). A 5xx or an error counts as a failed
+ * call. GETs that fail with 502/503/504 or an error before the response is committed are
+ * retried (up to max-retries) while the route's retry budget allows: every GET adds
+ * budget-ratio of a retry, so retries stay a small share of traffic even when everything fails.
+ *
+ * With staleFallback set, 200 GET responses are remembered (StaleResponseCache) and served with
+ * X-Cache: STALE when the breaker is open, the bulkhead is full, the service is probed DOWN or
+ * the call failed. Without one the client gets 503, or the upstream's own error.
+ *
+ * Event streams skip the bulkhead and the breaker's call timing: a stream holds its connection
+ * for as long as the client stays subscribed, so it would pin a bulkhead permit and record every
+ * stream as a slow call. They are only refused while the breaker is open.
+ */
+@Slf4j
+@Component
+public class ResilienceFilter extends AbstractGatewayFilterFactory<ResilienceFilter.Config> {
+
+    private static final List<Integer> RETRYABLE_STATUSES = List.of(502, 503, 504);
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final StaleResponseCache staleResponseCache;
+    private final ServiceHealthMonitor serviceHealthMonitor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+
+    @Value("${gateway.resilience.max-retries:1}")
+    private int maxRetries;
+
+    @Value("${gateway.resilience.retry-budget-ratio:0.1}")
+    private double retryBudgetRatio;
+
+    @Value("${gateway.resilience.retry-budget-max:10}")
+    private double retryBudgetMax;
+
+    public ResilienceFilter(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                            StaleResponseCache staleResponseCache, ServiceHealthMonitor serviceHealthMonitor,
+                            MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.staleResponseCache = staleResponseCache;
+        this.serviceHealthMonitor = serviceHealthMonitor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        CircuitBreaker breaker = circuitBreakerRegistry.circuitBreaker(config.getName());
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(config.getName());
+
+        return (exchange, chain) -> {
+            Call call = new Call(exchange, chain, breaker, bulkhead, MetricsFilter.routeId(exchange));
+            if (RequestCoalescingFilter.isStream(exchange.getRequest())) {
+                return isOpen(breaker) ? rejected(call, "open") : chain.filter(exchange);
+            }
+            boolean idempotent = exchange.getRequest().getMethod() == HttpMethod.GET;
+
+            if (idempotent && config.isStaleFallback()) {
+                call.staleKey = RequestCoalescingFilter.key(exchange, config.isPerUser());
+                if (serviceHealthMonitor.isDown(config.getName())) {
+                    StaleResponseCache.StaleResponse stale = staleResponseCache.get(call.staleKey);
+                    if (stale != null) {
+                        return writeStale(call, stale, "down");
+                    }
+                }
+                remember(exchange, call.staleKey);
+            }
+            if (idempotent) {
+                call.budget = retryBudgets.computeIfAbsent(call.routeId, id -> new RetryBudget());
+                call.budget.deposit();
+            }
+            return attempt(call);
+        };
+    }
+
+    private Mono<Void> attempt(Call call) {
+        if (!call.bulkhead.tryAcquirePermission()) {
+            return rejected(call, "bulkhead");
+        }
+        if (!call.breaker.tryAcquirePermission()) {
+            call.bulkhead.onComplete();
+            return rejected(call, "open");
+        }
+
+        long started = call.breaker.getCurrentTimestamp();
+        return call.chain.filter(call.exchange)
+                .doOnCancel(() -> {
+                    call.breaker.releasePermission();
+                    call.bulkhead.onComplete();
+                })
+                .then(Mono.just(Optional.<Throwable>empty()))
+                .onErrorResume(error -> Mono.just(Optional.of(error)))
+                .flatMap(error -> {
+                    call.bulkhead.onComplete();
+                    long elapsed = call.breaker.getCurrentTimestamp() - started;
+                    return error.isPresent()
+                            ? onError(call, elapsed, error.get())
+                            : onResponse(call, elapsed);
+                });
+    }
+
+    private static boolean isOpen(CircuitBreaker breaker) {
+        CircuitBreaker.State state = breaker.getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    private Mono<Void> onError(Call call, long elapsed, Throwable error) {
+        call.breaker.onError(elapsed, call.breaker.getTimestampUnit(), error);
+        if (call.exchange.getResponse().isCommitted()) {
+            return Mono.error(error);
+        }
+        return retryOrFallback(call, "error", Mono.error(error));
+    }
+
+    private Mono<Void> onResponse(Call call, long elapsed) {
+        HttpStatusCode status = call.exchange.getResponse().getStatusCode();
+        if (status == null || !status.is5xxServerError()) {
+            call.breaker.onSuccess(elapsed, call.breaker.getTimestampUnit());
+            return Mono.empty();
+        }
+        call.breaker.onError(elapsed, call.breaker.getTimestampUnit(), new UpstreamStatusException(status));
+        if (!RETRYABLE_STATUSES.contains(status.value()) || call.exchange.getResponse().isCommitted()) {
+            return Mono.empty();
+        }
+        // The upstream body hasn't been written yet, so it can still be replaced
+        return retryOrFallback(call, "status", Mono.empty());
+    }
+
+    /**
+     * Retries if the budget allows, else serves the stale copy if there is one, else gives up
+     * with orElse (the upstream's error, or its 5xx response left as it is)
+     */
+    private Mono<Void> retryOrFallback(Call call, String reason, Mono<Void> orElse) {
+        if (call.budget != null && call.retries < maxRetries && call.budget.withdraw()) {
+            call.retries++;
+            counter("gateway.resilience.retries", call.routeId, reason).increment();
+            discardUpstreamResponse(call.exchange);
+            return attempt(call);
+        }
+        StaleResponseCache.StaleResponse stale = call.staleKey != null ? staleResponseCache.get(call.staleKey) : null;
+        if (stale != null) {
+            discardUpstreamResponse(call.exchange);
+            return writeStale(call, stale, reason);
+        }
+        return orElse;
+    }
+
+    private Mono<Void> rejected(Call call, String reason) {
+        StaleResponseCache.StaleResponse stale = call.staleKey != null ? staleResponseCache.get(call.staleKey) : null;
+        if (stale != null) {
+            return writeStale(call, stale, reason);
+        }
+        counter("gateway.resilience.rejected", call.routeId, reason).increment();
+        ServerHttpResponse response = call.exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "5");
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        String body = String.format(
+                "{\"error\":\"%s\",\"message\":\"Service temporarily unavailable, retry shortly\",\"timestamp\":\"%s\"}",
+                HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(), Instant.now());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    // Stores 200 responses as this request's last known good copy
+    private void remember(ServerWebExchange exchange, String key) {
+        ServerHttpResponse response = exchange.getResponse();
+        BodyCaptureResponseDecorator.onBody(exchange, body -> {
+            if (response.getStatusCode() == HttpStatus.OK
+                    && !"STALE".equals(response.getHeaders().getFirst(HazardCacheFilter.CACHE_HEADER))) {
+                HttpHeaders headers = new HttpHeaders();
+                headers.addAll(HttpHeaders.CONTENT_TYPE, response.getHeaders().getOrEmpty(HttpHeaders.CONTENT_TYPE));
+                headers.addAll(HttpHeaders.ETAG, response.getHeaders().getOrEmpty(HttpHeaders.ETAG));
+                staleResponseCache.put(key, headers, body);
+            }
+        });
+    }
+
+    private Mono<Void> writeStale(Call call, StaleResponseCache.StaleResponse stale, String reason) {
+        counter("gateway.resilience.stale", call.routeId, reason).increment();
+        log.warn("🥶 Serving stale response on {} ({}), {} s old", call.routeId, reason,
+                (System.currentTimeMillis() - stale.storedAtMillis()) / 1000);
+
+        ServerHttpResponse response = call.exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().putAll(stale.headers());
+        response.getHeaders().set(HazardCacheFilter.CACHE_HEADER, "STALE");
+        response.getHeaders().set(HttpHeaders.AGE,
+                Long.toString(Math.max(0, (System.currentTimeMillis() - stale.storedAtMillis()) / 1000)));
+        response.getHeaders().setContentLength(stale.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(stale.body())));
+    }
+
+    // Drops a received upstream response so the exchange can be routed again or answered here
+    private static void discardUpstreamResponse(ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+            exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        }
+        ServerWebExchangeUtils.reset(exchange);
+        exchange.getResponse().setStatusCode(null);
+    }
+
+    private Counter counter(String name, String routeId, String reason) {
+        return Counter.builder(name)
+                .tag("route", routeId)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static final class Call {
+        final ServerWebExchange exchange;
+        final GatewayFilterChain chain;
+        final CircuitBreaker breaker;
+        final Bulkhead bulkhead;
+        final String routeId;
+        String staleKey;
+        RetryBudget budget;
+        int retries;
+
+        Call(ServerWebExchange exchange, GatewayFilterChain chain, CircuitBreaker breaker, Bulkhead bulkhead, String routeId) {
+            this.exchange = exchange;
+            this.chain = chain;
+            this.breaker = breaker;
+            this.bulkhead = bulkhead;
+            this.routeId = routeId;
+        }
+    }
+
+    // Every request earns a fraction of a retry; a retry spends a whole one
+    private final class RetryBudget {
+        private double tokens = retryBudgetMax;
+
+        synchronized void deposit() {
+            tokens = Math.min(retryBudgetMax, tokens + retryBudgetRatio);
+        }
+
+        synchronized boolean withdraw() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    private static final class UpstreamStatusException extends RuntimeException {
+        UpstreamStatusException(HttpStatusCode status) {
+            super("Upstream responded " + status.value(), null, false, false);
+        }
+    }
+
+    @Data
+    public static class Config {
+        // Resilience4j circuit breaker and bulkhead instance, i.e. the downstream service id
+        private String name;
+
+        // Serve the last known good response when the service can't answer (GETs only)
+        private boolean staleFallback;
+
+        // Stale copies are per user, for responses that depend on the caller
+        private boolean perUser;
+    }
+}
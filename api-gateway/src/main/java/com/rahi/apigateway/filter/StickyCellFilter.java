@@ -0,0 +1,115 @@
+package com.rahi.apigateway.filter;
+
+import com.rahi.apigateway.service.LatencyAwareLoadBalancer;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Tags hazard and route requests with the map tile (z/x/y at gateway.sticky-routing.zoom) their
+ * location falls in, as X-Location-Cell. LatencyAwareLoadBalancer hashes it onto the
+ * hazard-service instances, so requests for one area keep landing on the replica whose caches
+ * already hold it.
+ *
+ * The location is lat/lon, fromLat/fromLon (routes: the origin) or the tile in
+ * /api/hazards/tiles/{z}/{x}/{y}; requests without one (e.g. the bounding-box stream) are
+ * balanced normally.
+ */
+@Component
+public class StickyCellFilter extends AbstractGatewayFilterFactory<StickyCellFilter.Config> {
+
+    private static final String TILES_PREFIX = "/api/hazards/tiles/";
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    @Value("${gateway.sticky-routing.enabled:true}")
+    private boolean enabled;
+
+    // 11 is ~15 km across at 45° latitude, 4x4 hazard-service cells
+    @Value("${gateway.sticky-routing.zoom:11}")
+    private int zoom;
+
+    public StickyCellFilter() {
+        super(Config.class);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            if (!enabled) {
+                return chain.filter(exchange);
+            }
+            String cell = cellOf(exchange.getRequest());
+            if (cell == null) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange.mutate()
+                    .request(request -> request.header(LatencyAwareLoadBalancer.CELL_HEADER, cell))
+                    .build());
+        };
+    }
+
+    private String cellOf(ServerHttpRequest request) {
+        String path = request.getPath().value();
+        if (path.startsWith(TILES_PREFIX)) {
+            return tileCell(path.substring(TILES_PREFIX.length()));
+        }
+        MultiValueMap<String, String> query = request.getQueryParams();
+        String cell = pointCell(query.getFirst("lat"), query.getFirst("lon"));
+        return cell != null ? cell : pointCell(query.getFirst("fromLat"), query.getFirst("fromLon"));
+    }
+
+    /**
+     * The X-Location-Cell this filter would give a request for the point, or null when sticky
+     * routing is off. For gateway-made calls that must reach the same replica.
+     */
+    public String cellAt(double lat, double lon) {
+        if (!enabled || !Double.isFinite(lat) || !Double.isFinite(lon)) {
+            return null;
+        }
+        int n = 1 << zoom;
+        int x = (int) Math.floor((lon + 180.0) / 360.0 * n);
+        double rad = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat)));
+        int y = (int) Math.floor((1 - Math.log(Math.tan(rad) + 1 / Math.cos(rad)) / Math.PI) / 2 * n);
+        return zoom + "/" + Math.max(0, Math.min(n - 1, x)) + "/" + Math.max(0, Math.min(n - 1, y));
+    }
+
+    private String pointCell(String latParam, String lonParam) {
+        if (latParam == null || lonParam == null) {
+            return null;
+        }
+        try {
+            return cellAt(Double.parseDouble(latParam), Double.parseDouble(lonParam));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // "{z}/{x}/{y}[.ext]": tiles at or below the sticky zoom map to the tile containing them
+    private String tileCell(String zxy) {
+        String[] parts = zxy.split("/");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            int z = Integer.parseInt(parts[0]);
+            int x = Integer.parseInt(parts[1]);
+            int dot = parts[2].indexOf('.');
+            int y = Integer.parseInt(dot >= 0 ? parts[2].substring(0, dot) : parts[2]);
+            if (z < zoom || z > 30) {
+                return null; // covers several sticky cells: no single owner
+            }
+            return zoom + "/" + (x >> (z - zoom)) + "/" + (y >> (z - zoom));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Data
+    public static class Config {
+        // Zoom comes from gateway.sticky-routing
+    }
+}
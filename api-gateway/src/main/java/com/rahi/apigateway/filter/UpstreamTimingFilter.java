@@ -0,0 +1,81 @@
+package com.rahi.apigateway.filter;
+
+import com.rahi.apigateway.service.GatewayMetrics;
+import com.rahi.apigateway.service.InstanceStatsRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Runs right before the routing filters: records gateway.request.queue (arrival until now) and
+ * gateway.request.upstream (until the routing filter completes, i.e. the upstream's response
+ * headers have arrived; body streaming is part of the total time only). On lb:// routes the
+ * same span, and whether it failed, is fed to the chosen instance's load balancing stats.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    private final GatewayMetrics gatewayMetrics;
+    private final InstanceStatsRegistry instanceStatsRegistry;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long dispatched = System.nanoTime();
+        String routeId = MetricsFilter.routeId(exchange);
+        Long arrival = exchange.getAttribute(MetricsFilter.ARRIVAL_ATTR);
+        if (arrival != null) {
+            gatewayMetrics.recordQueue(routeId, dispatched - arrival);
+        }
+        String upstream = upstreamId(exchange);
+        InstanceStatsRegistry.InstanceStats instance = chosenInstance(exchange, upstream);
+        if (instance != null) {
+            instance.start();
+        }
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    long elapsed = System.nanoTime() - dispatched;
+                    gatewayMetrics.recordUpstream(routeId, upstream, elapsed);
+                    if (instance != null) {
+                        HttpStatusCode status = exchange.getResponse().getStatusCode();
+                        // Client cancellations say nothing about the instance
+                        instance.finish(elapsed, signal == SignalType.ON_ERROR
+                                || (status != null && status.is5xxServerError()));
+                    }
+                });
+    }
+
+    // Set by the load balancer filter on lb:// routes, whose upstream id is the lb:// service id
+    private InstanceStatsRegistry.InstanceStats chosenInstance(ServerWebExchange exchange, String serviceId) {
+        Response<ServiceInstance> response = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (response == null || !response.hasServer()) {
+            return null;
+        }
+        return instanceStatsRegistry.stats(serviceId, response.getServer());
+    }
+
+    private static String upstreamId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return "none";
+        }
+        String host = route.getUri().getHost();
+        return host != null ? host : route.getUri().getScheme();
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+}
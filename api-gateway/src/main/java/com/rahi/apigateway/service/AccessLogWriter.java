@@ -0,0 +1,151 @@
+package com.rahi.apigateway.service;
+
+import com.rahi.apigateway.util.MpmcRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous JSON access log. Request threads only offer an entry to a lock-free ring buffer;
+ * a daemon thread drains it in batches and writes one JSON line per request to the
+ * "gateway.access" logger. When the buffer is full the entry is dropped and counted in
+ * gateway.accesslog.dropped rather than slowing the request down.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccessLogWriter {
+
+    private static final Logger ACCESS = LoggerFactory.getLogger("gateway.access");
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.access-log.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${gateway.access-log.batch-size:256}")
+    private int batchSize;
+
+    @Value("${gateway.access-log.flush-interval:PT0.2S}")
+    private Duration flushInterval;
+
+    private MpmcRingBuffer<Entry> buffer;
+    private Counter dropped;
+    private Thread drainer;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        buffer = new MpmcRingBuffer<>(bufferSize);
+        dropped = Counter.builder("gateway.accesslog.dropped")
+                .description("Access log entries dropped because the buffer was full")
+                .register(meterRegistry);
+        drainer = new Thread(this::drainLoop, "access-log");
+        drainer.setDaemon(true);
+        drainer.start();
+        log.info("📝 Access log buffer: {} entries, batches of {}", buffer.capacity(), batchSize);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(flushInterval.toMillis() * 5);
+    }
+
+    public void submit(Entry entry) {
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (running) {
+            if (buffer.drain(entry -> write(entry, line), batchSize) == 0) {
+                LockSupport.parkNanos(flushInterval.toNanos());
+            }
+        }
+        while (buffer.drain(entry -> write(entry, line), batchSize) > 0) {
+            // flush what is left on shutdown
+        }
+    }
+
+    private static void write(Entry entry, StringBuilder line) {
+        line.setLength(0);
+        line.append("{\"ts\":").append(entry.startedAtMillis())
+                .append(",\"id\":");
+        appendString(line, entry.requestId());
+        line.append(",\"method\":");
+        appendString(line, entry.method());
+        line.append(",\"path\":");
+        appendString(line, entry.path());
+        line.append(",\"route\":");
+        appendString(line, entry.route());
+        line.append(",\"status\":").append(entry.status())
+                .append(",\"durationMs\":").append(entry.durationNanos() / 1_000_000)
+                .append('.').append(entry.durationNanos() / 1_000 % 1_000 / 100);
+        if (entry.userId() != null) {
+            line.append(",\"userId\":");
+            appendString(line, entry.userId());
+        }
+        if (entry.error() != null) {
+            line.append(",\"error\":");
+            appendString(line, entry.error());
+        }
+        line.append('}');
+
+        try {
+            if (entry.status() >= 500 || entry.error() != null) {
+                ACCESS.warn(line.toString());
+            } else {
+                ACCESS.info(line.toString());
+            }
+        } catch (RuntimeException e) {
+            // Never let a broken appender kill the drain thread
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * One finished request; durationNanos comes from System.nanoTime
+     */
+    public record Entry(long startedAtMillis, String requestId, String method, String path, String route,
+                        int status, long durationNanos, String userId, String error) {
+    }
+}
@@ -0,0 +1,216 @@
+package com.rahi.apigateway.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-route concurrency limits that adapt to upstream latency (gradient algorithm).
+ *
+ * Each route tracks a short-term RTT average (the last few requests) and a long-term one (its
+ * normal latency). While they agree the limit grows by about sqrt(limit); when the short-term
+ * RTT rises above tolerance times the long-term one, requests are queueing upstream and the
+ * limit shrinks in proportion. Each update moves the limit by a smoothing share of the new
+ * estimate. So a slowing service sees fewer concurrent requests instead of an ever-growing queue.
+ *
+ * Requests over the limit wait up to queue-timeout in a bounded queue (max-queue per route);
+ * beyond that they are rejected at once. Limits and in-flight counts are exported as
+ * gateway.concurrency.limit and gateway.concurrency.inflight per route.
+ */
+@Service
+@RequiredArgsConstructor
+public class AdaptiveConcurrencyLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.concurrency.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${gateway.concurrency.min-limit:5}")
+    private int minLimit;
+
+    @Value("${gateway.concurrency.max-limit:500}")
+    private int maxLimit;
+
+    // Short-term RTT rising above tolerance times the long-term RTT shrinks the limit
+    @Value("${gateway.concurrency.rtt-tolerance:1.5}")
+    private double rttTolerance;
+
+    // Share of each new estimate applied to the limit
+    @Value("${gateway.concurrency.smoothing:0.2}")
+    private double smoothing;
+
+    // Samples averaged by the short- and long-term RTT
+    @Value("${gateway.concurrency.short-window:10}")
+    private int shortWindow;
+
+    @Value("${gateway.concurrency.long-window:600}")
+    private int longWindow;
+
+    @Value("${gateway.concurrency.max-queue:50}")
+    private int maxQueue;
+
+    @Value("${gateway.concurrency.queue-timeout:PT0.1S}")
+    private Duration queueTimeout;
+
+    private final Map<String, RouteLimit> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Emits a permit once the route is under its limit, or empty when the queue is full or the
+     * wait exceeded queue-timeout. Every permit must be released exactly once.
+     */
+    public Mono<Permit> acquire(String routeId) {
+        return routeLimit(routeId).acquire();
+    }
+
+    private RouteLimit routeLimit(String routeId) {
+        RouteLimit existing = routes.get(routeId);
+        if (existing != null) {
+            return existing;
+        }
+        return routes.computeIfAbsent(routeId, id -> {
+            RouteLimit created = new RouteLimit();
+            Gauge.builder("gateway.concurrency.limit", created, RouteLimit::limit)
+                    .tag("route", id)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.concurrency.inflight", created, RouteLimit::inFlight)
+                    .tag("route", id)
+                    .register(meterRegistry);
+            return created;
+        });
+    }
+
+    public final class Permit {
+
+        private final RouteLimit route;
+        private final long startedAt = System.nanoTime();
+        private boolean released;
+
+        private Permit(RouteLimit route) {
+            this.route = route;
+        }
+
+        /**
+         * Releases the slot and feeds the request's RTT into the limit
+         */
+        public synchronized void release() {
+            if (!released) {
+                released = true;
+                route.release(System.nanoTime() - startedAt);
+            }
+        }
+
+        /**
+         * Releases the slot without a sample (e.g. the client went away)
+         */
+        public synchronized void discard() {
+            if (!released) {
+                released = true;
+                route.release(-1);
+            }
+        }
+    }
+
+    private final class RouteLimit {
+
+        private final ArrayDeque<Sinks.One<Permit>> waiting = new ArrayDeque<>();
+
+        // Guarded by this
+        private double limit = initialLimit;
+        private int inFlight;
+        private double shortRtt;
+        private double longRtt;
+
+        Mono<Permit> acquire() {
+            Sinks.One<Permit> waiter;
+            synchronized (this) {
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return Mono.just(new Permit(this));
+                }
+                if (waiting.size() >= maxQueue) {
+                    return Mono.empty();
+                }
+                waiter = Sinks.one();
+                waiting.add(waiter);
+            }
+            return waiter.asMono()
+                    .timeout(queueTimeout, Mono.defer(() -> {
+                        synchronized (this) {
+                            if (waiting.remove(waiter)) {
+                                return Mono.<Permit>empty();
+                            }
+                        }
+                        return waiter.asMono(); // a slot was handed over just as the wait ran out
+                    }))
+                    .doOnCancel(() -> {
+                        boolean granted;
+                        synchronized (this) {
+                            granted = !waiting.remove(waiter);
+                        }
+                        if (granted) {
+                            waiter.asMono().subscribe(Permit::discard);
+                        }
+                    });
+        }
+
+        void release(long rttNanos) {
+            Sinks.One<Permit> next = null;
+            synchronized (this) {
+                if (rttNanos >= 0) {
+                    update(rttNanos);
+                }
+                if (!waiting.isEmpty() && inFlight <= (int) limit) {
+                    next = waiting.poll(); // the slot passes straight to the first waiter
+                } else {
+                    inFlight--;
+                }
+            }
+            if (next != null) {
+                next.tryEmitValue(new Permit(this));
+            }
+        }
+
+        private void update(long rttNanos) {
+            double rtt = rttNanos;
+            if (longRtt == 0) {
+                shortRtt = rtt;
+                longRtt = rtt;
+                return;
+            }
+            shortRtt += (rtt - shortRtt) / shortWindow;
+            longRtt += (rtt - longRtt) / longWindow;
+
+            // After a slowdown ends the long-term average lags behind; let it catch up
+            if (longRtt > shortRtt * 2) {
+                longRtt *= 0.95;
+            }
+
+            // With under half the limit in use the RTT says nothing about where the limit should be
+            if (inFlight < limit / 2) {
+                return;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+            double estimate = limit * gradient + Math.sqrt(limit);
+            limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + estimate * smoothing));
+        }
+
+        synchronized double limit() {
+            return limit;
+        }
+
+        synchronized double inFlight() {
+            return inFlight;
+        }
+    }
+}
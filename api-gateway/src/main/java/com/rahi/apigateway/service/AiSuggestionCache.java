@@ -0,0 +1,123 @@
+package com.rahi.apigateway.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rahi.apigateway.config.DownstreamClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Dashboard AI suggestions per coarse location cell and hazard state.
+ *
+ * The prompt is the same for everyone, so the reply only depends on roughly where the user is
+ * and which hazards are active there. Keys are a lat/lon grid cell plus a canonical summary of
+ * the hazards (type and severity rounded to SEVERITY_STEP); the AI is asked about the cell centre.
+ * Once an entry is older than refresh-after, reads still get the cached reply while a reload
+ * runs in the background (stale-while-revalidate); entries are dropped after max-age.
+ * Concurrent misses for a key share one AI call, and failed calls are not cached.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AiSuggestionCache {
+
+    private static final String PROMPT = "What safety precautions should I take at my current location?";
+    private static final int SEVERITY_STEP = 10;
+
+    private final DownstreamClients downstreamClients;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${dashboard.ai-cache.cell-degrees:0.05}")
+    private double cellDegrees; // ~5 km
+
+    @Value("${dashboard.ai-cache.max-size:5000}")
+    private long maxSize;
+
+    @Value("${dashboard.ai-cache.refresh-after:PT15M}")
+    private Duration refreshAfter;
+
+    @Value("${dashboard.ai-cache.max-age:PT2H}")
+    private Duration maxAge;
+
+    private AsyncLoadingCache<Key, JsonNode> replies;
+
+    @PostConstruct
+    public void init() {
+        replies = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refreshAfter)
+                .expireAfterWrite(maxAge)
+                .recordStats()
+                .buildAsync(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, replies.synchronous(), "dashboard.ai-suggestions");
+    }
+
+    /**
+     * Cached reply for the location and hazard response (null when hazards are unknown).
+     * Cancelling the returned Mono (e.g. a dashboard deadline) doesn't cancel the shared load.
+     */
+    public Mono<JsonNode> suggestion(double lat, double lon, JsonNode hazards) {
+        Key key = new Key((long) Math.floor(lat / cellDegrees), (long) Math.floor(lon / cellDegrees),
+                hazardState(hazards));
+        return Mono.fromFuture(replies.get(key), true);
+    }
+
+    private CompletableFuture<JsonNode> load(Key key, Executor executor) {
+        double lat = (key.row() + 0.5) * cellDegrees;
+        double lon = (key.column() + 0.5) * cellDegrees;
+        log.debug("🤖 Loading AI suggestion for cell {}/{} with hazards [{}]", key.row(), key.column(), key.hazards());
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("message", PROMPT);
+        request.put("context", Map.of(
+                "location", Map.of("lat", lat, "lon", lon),
+                "hazards", key.hazards(),
+                "preferences", Map.of("concise", true)
+        ));
+
+        return downstreamClients.aiService().post()
+                .uri("/api/chat")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .toFuture();
+    }
+
+    /**
+     * Canonical, order-independent summary of a hazard response, e.g. "ICE:60,SNOW:30"
+     */
+    private static String hazardState(JsonNode hazards) {
+        if (hazards == null || !hazards.has("hazardSummary")) {
+            return "unknown";
+        }
+        List<String> parts = new ArrayList<>();
+        for (JsonNode hazard : hazards.get("hazardSummary")) {
+            int severity = hazard.path("severity").asInt();
+            int rounded = Math.round(severity / (float) SEVERITY_STEP) * SEVERITY_STEP;
+            if (rounded > 0) {
+                parts.add(hazard.path("type").asText().toUpperCase(Locale.ROOT) + ":" + rounded);
+            }
+        }
+        parts.sort(null);
+        return String.join(",", parts);
+    }
+
+    private record Key(long row, long column, String hazards) {
+    }
+}
@@ -1,83 +1,103 @@
 package com.rahi.apigateway.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.rahi.apigateway.config.DownstreamClients;
 import com.rahi.apigateway.dto.DashboardResponse;
+import com.rahi.apigateway.dto.DashboardSection;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.util.HashMap;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service to aggregate data from multiple microservices
  * Demonstrates BFF (Backend for Frontend) pattern
+ *
+ * Every section has its own deadline and always resolves to a DashboardSection, with a
+ * timeout/error/empty status instead of data when its service doesn't answer in time, so one
+ * slow or failing service never takes the other sections down with it. Services that
+ * ServiceHealthMonitor reports down are skipped without waiting for their deadline.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DashboardAggregationService {
 
-    private final WebClient.Builder webClientBuilder;
+    private final DownstreamClients downstreamClients;
+    private final AiSuggestionCache aiSuggestionCache;
+    private final GatewayMetrics gatewayMetrics;
+    private final ServiceHealthMonitor serviceHealthMonitor;
 
-    @Value("${services.user-service.url}")
-    private String userServiceUrl;
+    @Value("${dashboard.deadlines.user:PT2S}")
+    private Duration userDeadline;
 
-    @Value("${services.hazard-service.url}")
-    private String hazardServiceUrl;
+    @Value("${dashboard.deadlines.hazards:PT3S}")
+    private Duration hazardsDeadline;
 
-    @Value("${services.ai-service.url}")
-    private String aiServiceUrl;
+    @Value("${dashboard.deadlines.ai:PT10S}")
+    private Duration aiDeadline;
 
     public Mono<DashboardResponse> aggregateDashboardData(Long userId, Double lat, Double lon, Double radius, String authorizationHeader) {
         log.info("🔄 Aggregating dashboard data for user {} at ({}, {})", userId, lat, lon);
 
-        // Parallel calls to all three services
-        Mono<JsonNode> userMono = fetchUserData(userId, authorizationHeader);
-        Mono<JsonNode> hazardMono = fetchHazardData(lat, lon, radius);
-        Mono<JsonNode> suggestionMono = fetchAISuggestions(lat, lon);
-
-        // Combine all responses
-        return Mono.zip(userMono, hazardMono, suggestionMono)
+        // Parallel calls to all three services; sections never complete empty, so zip always emits
+        Mono<DashboardSection> hazardSection = hazardSection(lat, lon, radius).cache();
+        return Mono.zip(userSection(authorizationHeader), hazardSection, aiSection(lat, lon, hazardSection))
                 .map(tuple -> {
-                    JsonNode user = tuple.getT1();
-                    JsonNode hazards = tuple.getT2();
-                    JsonNode suggestions = tuple.getT3();
+                    DashboardSection user = tuple.getT1();
+                    DashboardSection hazards = tuple.getT2();
+                    DashboardSection suggestions = tuple.getT3();
+                    List<String> partial = partialSections(List.of(user, hazards, suggestions));
 
                     return DashboardResponse.builder()
                             .userId(userId)
                             .location(Map.of("lat", lat, "lon", lon))
-                            .userName(user != null ? user.get("name").asText() : "User")
-                            .preferences(user != null && user.has("preferences") ? 
-                                    user.get("preferences") : null)
-                            .hazards(hazards)
-                            .aiSuggestions(suggestions != null ? suggestions.get("reply").asText() : null)
-                            .timestamp(java.time.Instant.now().toString())
+                            .userName(user.isOk() ? user.getData().path("name").asText("User") : "User")
+                            .preferences(user.isOk() && user.getData().has("preferences") ?
+                                    user.getData().get("preferences") : null)
+                            .hazards(hazards.isOk() ? hazards.getData() : null)
+                            .aiSuggestions(suggestions.isOk() ? suggestions.getData().path("reply").asText(null) : null)
+                            .timestamp(Instant.now().toString())
+                            .error(partial.isEmpty() ? null : "Some services unavailable: " + String.join(", ", partial))
                             .build();
                 })
-                .doOnSuccess(response -> log.info("✅ Dashboard aggregation completed for user {}", userId))
-                .doOnError(error -> log.error("❌ Dashboard aggregation failed: {}", error.getMessage()))
-                .onErrorResume(error -> {
-                    // Return partial data on error
-                    log.warn("⚠️ Returning partial dashboard data due to error: {}", error.getMessage());
-                    return Mono.just(DashboardResponse.builder()
-                            .userId(userId)
-                            .location(Map.of("lat", lat, "lon", lon))
-                            .userName("User")
-                            .error("Some services unavailable")
-                            .timestamp(java.time.Instant.now().toString())
-                            .build());
-                });
+                .doOnSuccess(response -> log.info("✅ Dashboard aggregation completed for user {}", userId));
+    }
+
+    /**
+     * Same sections as aggregateDashboardData, emitted one by one as each resolves, followed by
+     * a "complete" section naming the partial ones. The first section arrives as soon as the
+     * fastest service answers instead of after the slowest.
+     */
+    public Flux<DashboardSection> streamDashboardData(Long userId, Double lat, Double lon, Double radius, String authorizationHeader) {
+        log.info("🔄 Streaming dashboard data for user {} at ({}, {})", userId, lat, lon);
+
+        return Flux.defer(() -> {
+            List<DashboardSection> emitted = new ArrayList<>(3);
+            Mono<DashboardSection> hazardSection = hazardSection(lat, lon, radius).cache();
+            return Flux.merge(userSection(authorizationHeader), hazardSection, aiSection(lat, lon, hazardSection))
+                    .doOnNext(emitted::add)
+                    .concatWith(Mono.fromSupplier(() -> DashboardSection.builder()
+                            .section(DashboardSection.COMPLETE)
+                            .status(DashboardSection.OK)
+                            .partial(partialSections(emitted))
+                            .timestamp(Instant.now().toString())
+                            .build()))
+                    .doOnComplete(() -> log.info("✅ Dashboard stream completed for user {}", userId));
+        });
     }
 
-    private Mono<JsonNode> fetchUserData(Long userId, String authorizationHeader) {
-        WebClient client = webClientBuilder.baseUrl(userServiceUrl).build();
-        
-        return client.get()
+    private Mono<DashboardSection> userSection(String authorizationHeader) {
+        return section(DashboardSection.USER, userDeadline, downstreamClients.userService().get()
                 .uri("/api/users/me")
                 .headers(headers -> {
                     if (authorizationHeader != null && !authorizationHeader.isEmpty()) {
@@ -85,16 +105,11 @@ public class DashboardAggregationService {
                     }
                 })
                 .retrieve()
-                .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(5))
-                .doOnError(error -> log.error("Failed to fetch user data: {}", error.getMessage()))
-                .onErrorResume(error -> Mono.empty());
+                .bodyToMono(JsonNode.class));
     }
 
-    private Mono<JsonNode> fetchHazardData(Double lat, Double lon, Double radius) {
-        WebClient client = webClientBuilder.baseUrl(hazardServiceUrl).build();
-        
-        return client.get()
+    private Mono<DashboardSection> hazardSection(Double lat, Double lon, Double radius) {
+        return section(DashboardSection.HAZARDS, hazardsDeadline, downstreamClients.hazardService().get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/api/hazards")
                         .queryParam("lat", lat)
@@ -102,29 +117,75 @@ public class DashboardAggregationService {
                         .queryParam("radius", radius)
                         .build())
                 .retrieve()
-                .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(5))
-                .doOnError(error -> log.error("Failed to fetch hazard data: {}", error.getMessage()))
-                .onErrorResume(error -> Mono.empty());
+                .bodyToMono(JsonNode.class));
     }
 
-    private Mono<JsonNode> fetchAISuggestions(Double lat, Double lon) {
-        WebClient client = webClientBuilder.baseUrl(aiServiceUrl).build();
-        
-        Map<String, Object> request = new HashMap<>();
-        request.put("message", "What safety precautions should I take at my current location?");
-        request.put("context", Map.of(
-                "location", Map.of("lat", lat, "lon", lon),
-                "preferences", Map.of("concise", true)
-        ));
-        
-        return client.post()
-                .uri("/api/chat")
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(10))
-                .doOnError(error -> log.error("Failed to fetch AI suggestions: {}", error.getMessage()))
-                .onErrorResume(error -> Mono.empty());
+    /**
+     * AI replies are cached per location cell and hazard state, so this waits for the hazard
+     * section (subscribed once, shared with the hazards section itself) to pick the entry.
+     * The wait counts against the AI deadline, which like every other runs from the start of
+     * the request, so the dashboard never takes longer than its longest deadline.
+     */
+    private Mono<DashboardSection> aiSection(Double lat, Double lon, Mono<DashboardSection> hazardSection) {
+        return section(DashboardSection.AI, aiDeadline, hazardSection.flatMap(hazards ->
+                aiSuggestionCache.suggestion(lat, lon, hazards.isOk() ? hazards.getData() : null)));
+    }
+
+    /**
+     * Applies the section's deadline and turns every outcome into exactly one DashboardSection
+     */
+    private Mono<DashboardSection> section(String name, Duration deadline, Mono<JsonNode> call) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            // Don't spend the deadline on a service the probes report down; AI replies may
+            // still come from AiSuggestionCache, so that section is always attempted
+            if (!DashboardSection.AI.equals(name) && serviceHealthMonitor.isDown(serviceOf(name))) {
+                return Mono.just(sectionOf(name, DashboardSection.ERROR, null, "Service unavailable", started));
+            }
+            return call
+                    .timeout(deadline)
+                    .map(data -> sectionOf(name, DashboardSection.OK, data, null, started))
+                    .switchIfEmpty(Mono.fromSupplier(() -> sectionOf(name, DashboardSection.EMPTY, null, null, started)))
+                    .onErrorResume(error -> {
+                        if (error instanceof TimeoutException) {
+                            log.error("Failed to fetch {} section: no answer within {}", name, deadline);
+                            return Mono.just(sectionOf(name, DashboardSection.TIMEOUT, null,
+                                    "Deadline of " + deadline.toMillis() + "ms exceeded", started));
+                        }
+                        log.error("Failed to fetch {} section: {}", name, error.getMessage());
+                        return Mono.just(sectionOf(name, DashboardSection.ERROR, null, "Service unavailable", started));
+                    })
+                    .doOnNext(section -> gatewayMetrics.recordDownstream(serviceOf(name), section.getStatus(),
+                            System.nanoTime() - started));
+        });
+    }
+
+    private static String serviceOf(String section) {
+        return switch (section) {
+            case DashboardSection.USER -> "user-service";
+            case DashboardSection.HAZARDS -> "hazard-service";
+            default -> "ai-service";
+        };
+    }
+
+    private static DashboardSection sectionOf(String name, String status, JsonNode data, String error, long started) {
+        return DashboardSection.builder()
+                .section(name)
+                .status(status)
+                .data(data)
+                .error(error)
+                .elapsedMs(Duration.ofNanos(System.nanoTime() - started).toMillis())
+                .timestamp(Instant.now().toString())
+                .build();
+    }
+
+    private static List<String> partialSections(List<DashboardSection> sections) {
+        List<String> partial = new ArrayList<>();
+        for (DashboardSection section : sections) {
+            if (!section.isOk()) {
+                partial.add(section.getSection());
+            }
+        }
+        return partial;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package com.rahi.apigateway.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency timers for the gateway, with percentile histograms for Prometheus and p50/p99/p999
+ * over a sliding window for /api/gateway/metrics:
+ *
+ *   gateway.request.total      arrival to response complete, per route
+ *   gateway.request.queue      arrival to upstream dispatch (matching, auth, rate limiting), per route
+ *   gateway.request.upstream   dispatch to upstream response headers, per route and upstream
+ *   gateway.auth.duration      JWT verification (cached or not), per route
+ *   gateway.downstream.duration calls made by gateway controllers, per service and outcome
+ *
+ * Timers are created once per tag combination and looked up with a plain map get, so
+ * recording a request allocates nothing after warm-up.
+ */
+@Component
+@RequiredArgsConstructor
+public class GatewayMetrics {
+
+    private static final String[] NAMES = {
+            "gateway.request.total", "gateway.request.queue", "gateway.request.upstream",
+            "gateway.auth.duration", "gateway.downstream.duration"
+    };
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.metrics.percentiles:0.5,0.99,0.999}")
+    private double[] percentiles;
+
+    // Percentiles cover roughly the last window, rotating through buffer-length sub-windows
+    @Value("${gateway.metrics.window:PT1M}")
+    private Duration window;
+
+    @Value("${gateway.metrics.window-buffer-length:3}")
+    private int windowBufferLength;
+
+    private final Map<String, Timer> total = new ConcurrentHashMap<>();
+    private final Map<String, Timer> queue = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Timer>> upstream = new ConcurrentHashMap<>();
+    private final Map<String, Timer> auth = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Timer>> downstream = new ConcurrentHashMap<>();
+
+    public void recordTotal(String route, long nanos) {
+        timer(total, NAMES[0], "route", route).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordQueue(String route, long nanos) {
+        timer(queue, NAMES[1], "route", route).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordUpstream(String route, String upstreamId, long nanos) {
+        timer(upstream, NAMES[2], "route", route, "upstream", upstreamId).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAuth(String route, long nanos) {
+        timer(auth, NAMES[3], "route", route).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDownstream(String service, String outcome, long nanos) {
+        timer(downstream, NAMES[4], "service", service, "outcome", outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Count, mean, max and the configured percentiles in milliseconds for every gateway timer
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : NAMES) {
+            Map<String, Object> series = new LinkedHashMap<>();
+            for (Timer timer : meterRegistry.find(name).timers()) {
+                series.put(describeTags(timer), summarize(timer.takeSnapshot()));
+            }
+            result.put(name, series);
+        }
+        result.put("window", window.toString());
+        return result;
+    }
+
+    private Timer timer(Map<String, Timer> timers, String name, String tag, String value) {
+        Timer timer = timers.get(value);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(value, v -> build(name).tag(tag, v).register(meterRegistry));
+        }
+        return timer;
+    }
+
+    private Timer timer(Map<String, Map<String, Timer>> timers, String name,
+                        String tag, String value, String secondTag, String secondValue) {
+        Map<String, Timer> inner = timers.get(value);
+        if (inner == null) {
+            inner = timers.computeIfAbsent(value, v -> new ConcurrentHashMap<>());
+        }
+        Timer timer = inner.get(secondValue);
+        if (timer == null) {
+            timer = inner.computeIfAbsent(secondValue,
+                    v -> build(name).tag(tag, value).tag(secondTag, v).register(meterRegistry));
+        }
+        return timer;
+    }
+
+    private Timer.Builder build(String name) {
+        return Timer.builder(name)
+                .publishPercentileHistogram()
+                .publishPercentiles(percentiles)
+                .distributionStatisticExpiry(window)
+                .distributionStatisticBufferLength(windowBufferLength);
+    }
+
+    private static String describeTags(Timer timer) {
+        StringBuilder description = new StringBuilder();
+        timer.getId().getTags().forEach(tag -> {
+            if (description.length() > 0) {
+                description.append(',');
+            }
+            description.append(tag.getKey()).append('=').append(tag.getValue());
+        });
+        return description.toString();
+    }
+
+    private static Map<String, Object> summarize(HistogramSnapshot snapshot) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", snapshot.count());
+        summary.put("meanMs", round(snapshot.mean(TimeUnit.MILLISECONDS)));
+        summary.put("maxMs", round(snapshot.max(TimeUnit.MILLISECONDS)));
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            summary.put("p" + percentileLabel(value.percentile()) + "Ms", round(value.value(TimeUnit.MILLISECONDS)));
+        }
+        return summary;
+    }
+
+    // 0.5 -> "50", 0.99 -> "99", 0.999 -> "999"
+    private static String percentileLabel(double percentile) {
+        String digits = Double.toString(percentile).substring(2);
+        return digits.length() == 1 ? digits + "0" : digits;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,179 @@
+package com.rahi.apigateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rahi.apigateway.config.DownstreamClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Shared cache of GET /api/hazards responses, keyed by snapped coordinates, radius and the
+ * encoding hazard-service negotiates from Accept (JSON, CBOR or Smile).
+ *
+ * L1 is an in-process Caffeine cache; L2 (gateway.hazard-cache.redis-enabled) is Redis, shared by
+ * all gateway instances. Both use the same short TTL, which has to stay below hazard-service's
+ * live cache TTL: a hit replays the user's alerts from that live cache via
+ * POST /api/hazards/alerts, which can only replay cells that are still fresh there. The replay
+ * carries the request's X-Location-Cell so it reaches the replica holding that cache.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HazardResponseCache {
+
+    private static final String KEY_PREFIX = "gateway:hazards:v2:";
+
+    // hazard-service's encodings, in its converter order (JSON wins ties)
+    private static final List<MediaType> ENCODINGS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+            new MediaType("application", "x-jackson-smile"));
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final DownstreamClients downstreamClients;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.hazard-cache.cell-degrees:0.01}")
+    private double cellDegrees; // ~1 km
+
+    @Value("${gateway.hazard-cache.radius-step-km:0.5}")
+    private double radiusStepKm;
+
+    @Value("${gateway.hazard-cache.ttl:PT30S}")
+    private Duration ttl;
+
+    @Value("${gateway.hazard-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${gateway.hazard-cache.redis-enabled:false}")
+    private boolean redisEnabled;
+
+    private Cache<String, CachedResponse> local;
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "gateway.hazard-responses");
+        log.info("🧊 Hazard response cache: ttl {}, {} entries, redis tier {}", ttl, maxSize,
+                redisEnabled ? "on" : "off");
+    }
+
+    /**
+     * Snaps a request to the grid; the request is forwarded with the snapped values so the cached
+     * response is exactly what every request mapping to the key would have received
+     */
+    public Location snap(double lat, double lon, double radius) {
+        double snappedLat = Math.round(lat / cellDegrees) * cellDegrees;
+        double snappedLon = Math.round(lon / cellDegrees) * cellDegrees;
+        double snappedRadius = Math.max(radiusStepKm, Math.round(radius / radiusStepKm) * radiusStepKm);
+        return new Location(
+                String.format(Locale.ROOT, "%.5f", snappedLat),
+                String.format(Locale.ROOT, "%.5f", snappedLon),
+                String.format(Locale.ROOT, "%.2f", snappedRadius));
+    }
+
+    /**
+     * The encoding hazard-service will answer the request in, or null if it would refuse the
+     * Accept header (not cached)
+     */
+    public MediaType encoding(ServerHttpRequest request) {
+        List<MediaType> accepted = request.getHeaders().getAccept();
+        if (accepted.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> sorted = new ArrayList<>(accepted);
+        MimeTypeUtils.sortBySpecificity(sorted);
+        for (MediaType type : sorted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            for (MediaType encoding : ENCODINGS) {
+                if (type.isCompatibleWith(encoding)) {
+                    return encoding;
+                }
+            }
+        }
+        return null;
+    }
+
+    public Mono<CachedResponse> get(Location location, MediaType encoding) {
+        String key = location.key() + ":" + encoding.getSubtype();
+        CachedResponse cached = local.getIfPresent(key);
+        if (cached != null || !redisEnabled) {
+            return Mono.justOrEmpty(cached);
+        }
+        return redisTemplate.opsForValue().get(KEY_PREFIX + key)
+                .flatMap(json -> Mono.fromCallable(() -> objectMapper.readValue(json, CachedResponse.class)))
+                .doOnNext(shared -> local.put(key, shared))
+                .onErrorResume(e -> {
+                    log.debug("L2 read failed for hazards {}: {}", key, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    public void put(Location location, MediaType encoding, CachedResponse response) {
+        String key = location.key() + ":" + encoding.getSubtype();
+        local.put(key, response);
+        if (!redisEnabled) {
+            return;
+        }
+        Mono.fromCallable(() -> objectMapper.writeValueAsString(response))
+                .flatMap(json -> redisTemplate.opsForValue().set(KEY_PREFIX + key, json, ttl))
+                .subscribe(ok -> { }, e -> log.debug("L2 write failed for hazards {}: {}", key, e.getMessage()));
+    }
+
+    /**
+     * Fire-and-forget: have hazard-service send the alerts the proxied request would have sent.
+     * cell is the request's X-Location-Cell (null: balanced normally).
+     */
+    public void replayAlerts(Location location, String userId, String cell) {
+        downstreamClients.hazardServiceBalanced().post()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/api/hazards/alerts")
+                        .queryParam("lat", location.lat())
+                        .queryParam("lon", location.lon())
+                        .build())
+                .header("X-User-Id", userId)
+                .headers(headers -> {
+                    if (cell != null) {
+                        headers.set(LatencyAwareLoadBalancer.CELL_HEADER, cell);
+                    }
+                })
+                .retrieve()
+                .toBodilessEntity()
+                .subscribe(ok -> { },
+                        e -> log.warn("⚠️ Alert replay failed for user {} at {}: {}", userId, location.key(), e.getMessage()));
+    }
+
+    public record Location(String lat, String lon, String radius) {
+
+        String key() {
+            return lat + ":" + lon + ":" + radius;
+        }
+    }
+
+    /**
+     * A 200 response from hazard-service; body is as received, in contentType
+     */
+    public record CachedResponse(String contentType, String etag, byte[] body) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.rahi.apigateway.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-flight requests and latency EWMA per upstream instance, fed by UpstreamTimingFilter and
+ * read by LatencyAwareLoadBalancer. Exported as gateway.lb.inflight, gateway.lb.latency.ewma
+ * and gateway.lb.choices, tagged with service and instance (host:port).
+ *
+ * The EWMA fades towards zero while an instance gets no traffic (halving every decay-half-life),
+ * so a replica that was avoided for being slow is tried again once it has had time to recover.
+ */
+@Component
+@RequiredArgsConstructor
+public class InstanceStatsRegistry {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.load-balancer.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+
+    @Value("${gateway.load-balancer.decay-half-life:PT10S}")
+    private Duration decayHalfLife;
+
+    // Failed calls count as at least this slow, so a fast-failing replica doesn't attract traffic
+    @Value("${gateway.load-balancer.error-penalty:PT1S}")
+    private Duration errorPenalty;
+
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    public InstanceStats stats(String serviceId, ServiceInstance instance) {
+        String key = serviceId + '/' + instance.getHost() + ':' + instance.getPort();
+        InstanceStats existing = stats.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        return stats.computeIfAbsent(key, k -> register(serviceId, instance.getHost() + ':' + instance.getPort()));
+    }
+
+    private InstanceStats register(String serviceId, String instance) {
+        InstanceStats created = new InstanceStats(Counter.builder("gateway.lb.choices")
+                .tag("service", serviceId)
+                .tag("instance", instance)
+                .register(meterRegistry));
+        Gauge.builder("gateway.lb.inflight", created.inFlight, AtomicInteger::get)
+                .tag("service", serviceId)
+                .tag("instance", instance)
+                .register(meterRegistry);
+        Gauge.builder("gateway.lb.latency.ewma", created, s -> s.latencyNanos(System.nanoTime()) / 1_000_000.0)
+                .tag("service", serviceId)
+                .tag("instance", instance)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        return created;
+    }
+
+    public final class InstanceStats {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToLongBits(0));
+        private final Counter choices;
+        private volatile long lastSampleAt;
+        private volatile boolean sampled;
+
+        private InstanceStats(Counter choices) {
+            this.choices = choices;
+        }
+
+        public void chosen() {
+            choices.increment();
+        }
+
+        public void start() {
+            inFlight.incrementAndGet();
+        }
+
+        public void finish(long elapsedNanos, boolean failed) {
+            inFlight.decrementAndGet();
+            double sample = failed ? Math.max(elapsedNanos, errorPenalty.toNanos()) : elapsedNanos;
+            long now = System.nanoTime();
+            while (true) {
+                long current = ewmaBits.get();
+                double previous = sampled ? decayed(Double.longBitsToDouble(current), now) : sample;
+                double next = ewmaAlpha * sample + (1 - ewmaAlpha) * previous;
+                if (ewmaBits.compareAndSet(current, Double.doubleToLongBits(next))) {
+                    break;
+                }
+            }
+            lastSampleAt = now;
+            sampled = true;
+        }
+
+        public int inFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Latency EWMA with idle decay applied; zero for an instance that has never answered
+         */
+        public double latencyNanos(long now) {
+            return sampled ? decayed(Double.longBitsToDouble(ewmaBits.get()), now) : 0;
+        }
+
+        /**
+         * Lower is better: expected wait behind the requests already in flight, plus this one
+         */
+        public double score(long now) {
+            // 1 ms floor so instances without samples still compare by in-flight count
+            return (inFlight.get() + 1) * Math.max(latencyNanos(now), TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        private double decayed(double ewma, long now) {
+            long idle = now - lastSampleAt;
+            return idle <= 0 ? ewma : ewma * Math.pow(0.5, (double) idle / decayHalfLife.toNanos());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.rahi.apigateway.service;
+
+import com.rahi.apigateway.util.BoundedLoadHashRing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: picks two instances at random and sends the request to the one with the
+ * lower score (in-flight requests times latency EWMA, see InstanceStatsRegistry). Slow or
+ * overloaded replicas get less traffic without the herding that always picking the single
+ * best instance causes when every gateway sees the same stats.
+ *
+ * Requests carrying a location cell (X-Location-Cell, set by StickyCellFilter) instead go to
+ * the cell's instance on a bounded-load consistent-hash ring, so each replica's caches only warm
+ * the cells it owns; an owner with more than load-factor times the average in-flight requests
+ * passes the request on to the next instance on the ring.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String CELL_HEADER = "X-Location-Cell";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+    private final String serviceId;
+    private final InstanceStatsRegistry instanceStats;
+    private final int ringReplicas;
+    private final double loadFactor;
+    private final Counter stickyOwned;
+    private final Counter stickySpilled;
+
+    // Rebuilt when the discovery client hands out a new instance list
+    private volatile BoundedLoadHashRing<ServiceInstance> ring;
+    private volatile List<ServiceInstance> ringInstances;
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, String serviceId,
+                                    InstanceStatsRegistry instanceStats, int ringReplicas, double loadFactor,
+                                    MeterRegistry meterRegistry) {
+        this.suppliers = suppliers;
+        this.serviceId = serviceId;
+        this.instanceStats = instanceStats;
+        this.ringReplicas = ringReplicas;
+        this.loadFactor = loadFactor;
+        this.stickyOwned = Counter.builder("gateway.lb.sticky")
+                .tag("service", serviceId)
+                .tag("outcome", "owner")
+                .register(meterRegistry);
+        this.stickySpilled = Counter.builder("gateway.lb.sticky")
+                .tag("service", serviceId)
+                .tag("outcome", "spilled")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String cell = cellOf(request);
+        return supplier.get(request).next().map(instances -> choose(instances, cell));
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances, String cell) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        ServiceInstance chosen;
+        if (instances.size() == 1) {
+            chosen = instances.get(0);
+        } else if (cell != null) {
+            chosen = sticky(instances, cell);
+        } else {
+            chosen = powerOfTwoChoices(instances);
+        }
+        instanceStats.stats(serviceId, chosen).chosen();
+        return new DefaultResponse(chosen);
+    }
+
+    private ServiceInstance sticky(List<ServiceInstance> instances, String cell) {
+        BoundedLoadHashRing<ServiceInstance> current = ring;
+        if (current == null || ringInstances != instances) {
+            current = new BoundedLoadHashRing<>(instances, instance -> instance.getHost() + ':' + instance.getPort(),
+                    ringReplicas);
+            ring = current;
+            ringInstances = instances;
+        }
+        BoundedLoadHashRing.Selection<ServiceInstance> selection = current.select(cell,
+                instance -> instanceStats.stats(serviceId, instance).inFlight(), loadFactor);
+        (selection.owned() ? stickyOwned : stickySpilled).increment();
+        return selection.node();
+    }
+
+    private ServiceInstance powerOfTwoChoices(List<ServiceInstance> instances) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++; // distinct from first
+        }
+        long now = System.nanoTime();
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return instanceStats.stats(serviceId, a).score(now) <= instanceStats.stats(serviceId, b).score(now) ? a : b;
+    }
+
+    private static String cellOf(Request request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null) {
+            return context.getClientRequest().getHeaders().getFirst(CELL_HEADER);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,189 @@
+package com.rahi.apigateway.service;
+
+import com.rahi.apigateway.config.DownstreamClients;
+import com.rahi.apigateway.config.DownstreamProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Probes every downstream service's health endpoint in the background and keeps the latest
+ * result, so status endpoints and routing decisions read a snapshot instead of calling out.
+ *
+ * Each service is probed every interval, randomly stretched or shortened by up to jitter so
+ * gateway instances don't probe in lockstep. A service is DOWN after down-after consecutive
+ * failed probes and UP again after one successful probe; UNKNOWN until it has been probed.
+ * Latency is an exponentially weighted moving average of successful probes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ServiceHealthMonitor {
+
+    public static final String UP = "UP";
+    public static final String DOWN = "DOWN";
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private final DownstreamClients downstreamClients;
+    private final DownstreamProperties downstreamProperties;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${gateway.health.interval:PT10S}")
+    private Duration interval;
+
+    @Value("${gateway.health.jitter:0.2}")
+    private double jitter;
+
+    @Value("${gateway.health.timeout:PT3S}")
+    private Duration timeout;
+
+    @Value("${gateway.health.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+
+    @Value("${gateway.health.down-after:2}")
+    private int downAfter;
+
+    private final Map<String, ServiceHealth> snapshot = new ConcurrentHashMap<>();
+    private Disposable probing;
+
+    @PostConstruct
+    public void start() {
+        List<Probe> probes = List.of(
+                new Probe("user-service", downstreamClients.userService(),
+                        downstreamProperties.getUserService().getHealthPath()),
+                new Probe("hazard-service", downstreamClients.hazardService(),
+                        downstreamProperties.getHazardService().getHealthPath()),
+                new Probe("ai-service", downstreamClients.aiService(),
+                        downstreamProperties.getAiService().getHealthPath()),
+                new Probe("notification-service", downstreamClients.notificationService(),
+                        downstreamProperties.getNotificationService().getHealthPath()));
+
+        for (Probe probe : probes) {
+            snapshot.put(probe.service(), ServiceHealth.unknown(probe.service()));
+            Gauge.builder("gateway.downstream.up", () -> UP.equals(status(probe.service())) ? 1 : 0)
+                    .tag("service", probe.service())
+                    .register(meterRegistry);
+        }
+
+        // One independent loop per service: a slow probe never delays the others
+        probing = Flux.fromIterable(probes)
+                .flatMap(probe -> Mono.defer(() -> check(probe).then(Mono.delay(nextDelay()))).repeat())
+                .subscribe();
+        log.info("🩺 Health probes every {} (±{}%) for {} services", interval, Math.round(jitter * 100), probes.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (probing != null) {
+            probing.dispose();
+        }
+    }
+
+    /**
+     * Latest probe result per service, in probe order
+     */
+    public Map<String, ServiceHealth> snapshot() {
+        Map<String, ServiceHealth> result = new LinkedHashMap<>();
+        for (String service : List.of("user-service", "hazard-service", "ai-service", "notification-service")) {
+            result.put(service, snapshot.get(service));
+        }
+        return result;
+    }
+
+    public String status(String service) {
+        ServiceHealth health = snapshot.get(service);
+        return health != null ? health.status() : UNKNOWN;
+    }
+
+    /**
+     * True only once probes have confirmed the service is down; UNKNOWN counts as available
+     */
+    public boolean isDown(String service) {
+        return DOWN.equals(status(service));
+    }
+
+    private Mono<Void> check(Probe probe) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return probe.client().get()
+                    .uri(probe.path())
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(timeout)
+                    .doOnSuccess(response -> record(probe.service(), System.nanoTime() - started, null))
+                    .onErrorResume(error -> {
+                        record(probe.service(), System.nanoTime() - started,
+                                error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+    }
+
+    // Probes of one service never overlap, so a plain get/put is enough
+    private void record(String service, long elapsedNanos, String error) {
+        ServiceHealth previous = snapshot.get(service);
+        double latencyMs = elapsedNanos / 1_000_000.0;
+        ServiceHealth next;
+        if (error == null) {
+            Double ewma = previous.latencyEwmaMs() == null ? latencyMs
+                    : ewmaAlpha * latencyMs + (1 - ewmaAlpha) * previous.latencyEwmaMs();
+            next = new ServiceHealth(service, UP, round(ewma), round(latencyMs),
+                    previous.lastError(), Instant.now(), 0);
+        } else {
+            int failures = previous.consecutiveFailures() + 1;
+            String status = failures >= downAfter ? DOWN : previous.status();
+            next = new ServiceHealth(service, status, previous.latencyEwmaMs(), round(latencyMs),
+                    error, Instant.now(), failures);
+        }
+        snapshot.put(service, next);
+
+        if (!next.status().equals(previous.status())) {
+            if (UP.equals(next.status())) {
+                log.info("🟢 {} is UP ({} ms)", service, next.lastLatencyMs());
+            } else {
+                log.warn("🔴 {} is {} after {} failed probes: {}", service, next.status(), next.consecutiveFailures(), error);
+            }
+        }
+    }
+
+    private Duration nextDelay() {
+        double factor = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitter;
+        return Duration.ofMillis(Math.max(1, Math.round(interval.toMillis() * factor)));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private record Probe(String service, WebClient client, String path) {
+    }
+
+    /**
+     * Latest known health of one service; lastError is kept after recovery for diagnosis
+     */
+    public record ServiceHealth(String service, String status, Double latencyEwmaMs, Double lastLatencyMs,
+                                String lastError, Instant lastCheckedAt, int consecutiveFailures) {
+
+        static ServiceHealth unknown(String service) {
+            return new ServiceHealth(service, UNKNOWN, null, null, null, null, 0);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.rahi.apigateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Last known good (200) response per request, served marked stale by ResilienceFilter when the
+ * upstream can't answer. In-process only and bounded by total body size (max-bytes); entries
+ * older than max-age are not worth serving and are dropped. A user's per-user copies go as soon
+ * as user-service invalidates them on the CacheInvalidationBus (namespace users), so a fallback
+ * never resurrects a profile or route from before a preference change.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StaleResponseCache {
+
+    private final MeterRegistry meterRegistry;
+    private final CacheInvalidationBus invalidationBus;
+
+    @Value("${gateway.resilience.stale.max-age:PT1H}")
+    private Duration maxAge;
+
+    @Value("${gateway.resilience.stale.max-bytes:67108864}")
+    private long maxBytes;
+
+    private Cache<String, StaleResponse> responses;
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, StaleResponse response) -> key.length() + response.body().length)
+                .expireAfterWrite(maxAge)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "gateway.stale-responses");
+        // Per-user keys end with the user id (RequestCoalescingFilter.key)
+        invalidationBus.subscribe("users",
+                invalidation -> responses.asMap().keySet().removeIf(key -> key.endsWith(" user=" + invalidation.key())),
+                responses::invalidateAll);
+        log.info("🧊 Stale response cache: max age {}, {} MB", maxAge, maxBytes / (1024 * 1024));
+    }
+
+    public StaleResponse get(String key) {
+        return responses.getIfPresent(key);
+    }
+
+    public void put(String key, HttpHeaders headers, byte[] body) {
+        responses.put(key, new StaleResponse(headers, body, System.currentTimeMillis()));
+    }
+
+    public record StaleResponse(HttpHeaders headers, byte[] body, long storedAtMillis) {
+    }
+}
@@ -0,0 +1,259 @@
+package com.rahi.apigateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rahi.apigateway.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Distributed token buckets with local leases.
+ *
+ * The authoritative bucket for each (route, client) lives in Redis and is updated by
+ * scripts/token_bucket.lua. Instead of a round-trip per request, an instance takes up to
+ * lease-size tokens at once and spends them locally; only when its lease runs out (or expires
+ * after lease-ttl) does it go back to Redis. Concurrent requests that find the lease empty share
+ * one Redis call. The cost is accuracy: across N instances a client can exceed its limit by at
+ * most N * lease-size tokens.
+ *
+ * Tokens still unspent when a lease expires are handed back to the bucket: with the next refill
+ * if the client is still sending, otherwise by a sweep every lease-ttl. A client that moves to
+ * another instance therefore doesn't lose the tokens its previous instance was holding.
+ *
+ * If Redis is unreachable requests are allowed (fail open) and counted in
+ * gateway.ratelimit.redis.errors.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenBucketRateLimiter {
+
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private RedisScript<String> script;
+    private Cache<String, Lease> leases;
+    private Counter redisErrors;
+    private Counter tokensReturned;
+    private Disposable sweeping;
+
+    @PostConstruct
+    public void init() {
+        script = RedisScript.of(new ClassPathResource("scripts/token_bucket.lua"), String.class);
+        leases = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMinutes(5))
+                .build();
+        redisErrors = Counter.builder("gateway.ratelimit.redis.errors")
+                .description("Rate limit checks allowed because Redis could not be reached")
+                .register(meterRegistry);
+        tokensReturned = Counter.builder("gateway.ratelimit.lease.returned")
+                .description("Leased tokens handed back to Redis unspent")
+                .register(meterRegistry);
+        Duration sweepInterval = properties.getLeaseTtl();
+        sweeping = Flux.interval(sweepInterval, sweepInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> returnExpiredLeases(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeping != null) {
+            sweeping.dispose();
+        }
+    }
+
+    public Mono<Decision> tryAcquire(String routeId, String client) {
+        RateLimitProperties.Limit limit = properties.limitFor(routeId);
+        if (limit == null) {
+            return Mono.just(Decision.unlimited());
+        }
+
+        String key = KEY_PREFIX + routeId + ":" + client;
+        Lease lease = leases.get(key, k -> new Lease(key));
+        Decision local = lease.take(limit);
+        if (local != null) {
+            return Mono.just(local);
+        }
+        return lease.refill(limit, returned -> fetch(key, limit, returned))
+                .map(grant -> {
+                    Decision decision = lease.take(limit);
+                    // Tokens from this refill were used up by requests that arrived with us
+                    return decision != null ? decision : Decision.denied(limit.getCapacity(), 1000);
+                });
+    }
+
+    private Mono<Grant> fetch(String key, RateLimitProperties.Limit limit, int returned) {
+        int wanted = Math.max(1, Math.min(properties.getLeaseSize(), limit.getCapacity()));
+        return call(key, limit, wanted, returned)
+                .map(Grant::parse)
+                .onErrorResume(e -> {
+                    redisErrors.increment();
+                    log.warn("⚠️ Rate limit check failed open for {}: {}", key, e.getMessage());
+                    return Mono.just(Grant.unavailable());
+                });
+    }
+
+    /**
+     * Hands back the unspent tokens of leases that expired without a refill taking them along;
+     * emits how many went back
+     */
+    Mono<Long> returnExpiredLeases() {
+        return Flux.fromIterable(leases.asMap().values())
+                .flatMap(lease -> {
+                    int unspent = lease.reclaim();
+                    if (unspent == 0) {
+                        return Mono.empty();
+                    }
+                    return call(lease.key, lease.limit, 0, unspent)
+                            .thenReturn((long) unspent)
+                            .onErrorResume(e -> {
+                                log.debug("Could not return {} tokens to {}: {}", unspent, lease.key, e.getMessage());
+                                return Mono.empty();
+                            });
+                }, 16)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<String> call(String key, RateLimitProperties.Limit limit, int wanted, int returned) {
+        return redisTemplate.execute(script, List.of(key),
+                        List.of(Integer.toString(limit.getCapacity()),
+                                Double.toString(limit.getRefillPerSecond()),
+                                Integer.toString(wanted),
+                                Integer.toString(returned)))
+                .next()
+                .doOnNext(reply -> tokensReturned.increment(returned));
+    }
+
+    /**
+     * Tokens this instance holds for one bucket, plus the Redis call refilling them, if any.
+     * An empty grant is remembered until Redis says a token is due, so a client hammering a
+     * bucket that is already empty doesn't cause a Redis call per request.
+     */
+    private final class Lease {
+
+        private final String key;
+
+        // nanoTime values, compared by subtraction; both start out already passed
+        private long expiresAt = System.nanoTime();
+        private long deniedUntil = expiresAt;
+        private int tokens;
+        private long remoteRemaining;
+        private boolean failOpen;
+        private Mono<Grant> pending;
+        private RateLimitProperties.Limit limit; // of the last refill, for handing tokens back
+
+        Lease(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Allowed or denied from local state, or null when Redis has to be asked
+         */
+        synchronized Decision take(RateLimitProperties.Limit limit) {
+            long now = System.nanoTime();
+            if (now - deniedUntil < 0) {
+                return Decision.denied(limit.getCapacity(), Duration.ofNanos(deniedUntil - now).toMillis());
+            }
+            if (now - expiresAt >= 0) {
+                return null;
+            }
+            if (failOpen) {
+                return Decision.allowed(limit.getCapacity(), limit.getCapacity());
+            }
+            if (tokens > 0) {
+                tokens--;
+                return Decision.allowed(limit.getCapacity(), remoteRemaining + tokens);
+            }
+            return null;
+        }
+
+        synchronized Mono<Grant> refill(RateLimitProperties.Limit limit, IntFunction<Mono<Grant>> fetch) {
+            if (pending == null) {
+                this.limit = limit;
+                pending = fetch.apply(reclaim())
+                        .doOnNext(this::apply)
+                        .doFinally(signal -> clearPending())
+                        .cache();
+            }
+            return pending;
+        }
+
+        private synchronized void apply(Grant grant) {
+            long now = System.nanoTime();
+            tokens = grant.granted();
+            remoteRemaining = grant.remaining();
+            failOpen = grant.failOpen();
+            expiresAt = now + properties.getLeaseTtl().toNanos();
+            deniedUntil = grant.granted() == 0 && !grant.failOpen()
+                    ? now + Duration.ofMillis(Math.max(1, grant.retryAfterMs())).toNanos()
+                    : now;
+        }
+
+        private synchronized void clearPending() {
+            pending = null;
+        }
+
+        /**
+         * Takes the tokens left in an expired lease, to be handed back to Redis; 0 while the lease
+         * is live, being refilled, or failing open (those tokens never came from Redis)
+         */
+        synchronized int reclaim() {
+            if (pending != null || failOpen || tokens == 0 || System.nanoTime() - expiresAt < 0) {
+                return 0;
+            }
+            int unspent = tokens;
+            tokens = 0;
+            return unspent;
+        }
+    }
+
+    private record Grant(int granted, long remaining, long retryAfterMs, boolean failOpen) {
+
+        static Grant parse(String reply) {
+            String[] parts = reply.split(":");
+            return new Grant(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]), false);
+        }
+
+        static Grant unavailable() {
+            return new Grant(0, 0, 0, true);
+        }
+    }
+
+    /**
+     * Outcome of one request; limit and remaining feed the X-RateLimit-* headers
+     */
+    public record Decision(boolean allowed, long limit, long remaining, long retryAfterMs) {
+
+        static Decision allowed(long limit, long remaining) {
+            return new Decision(true, limit, remaining, 0);
+        }
+
+        static Decision denied(long limit, long retryAfterMs) {
+            return new Decision(false, limit, 0, retryAfterMs);
+        }
+
+        static Decision unlimited() {
+            return new Decision(true, -1, -1, 0);
+        }
+    }
+}
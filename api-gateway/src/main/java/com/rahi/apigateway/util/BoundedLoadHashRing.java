@@ -0,0 +1,105 @@
+package com.rahi.apigateway.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Consistent-hash ring with bounded loads (Mirrokni et al.).
+ *
+ * Every node is placed on the ring replicas times; a key belongs to the first node clockwise
+ * from its hash, so adding or removing a node only moves the keys next to it. select skips
+ * nodes that already carry more than loadFactor times the average load (counting the new
+ * request), so a hot key spills onto the following nodes instead of overloading its owner.
+ *
+ * Immutable; build a new ring when the node set changes.
+ */
+public final class BoundedLoadHashRing<T> {
+
+    private final List<T> nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    public BoundedLoadHashRing(List<T> nodes, Function<T, String> nodeId, int replicas) {
+        this.nodes = List.copyOf(nodes);
+        int size = this.nodes.size() * replicas;
+        long[][] entries = new long[size][];
+        for (int n = 0; n < this.nodes.size(); n++) {
+            String id = nodeId.apply(this.nodes.get(n));
+            for (int r = 0; r < replicas; r++) {
+                entries[n * replicas + r] = new long[]{hash(id + '#' + r), n};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    public List<T> nodes() {
+        return nodes;
+    }
+
+    /**
+     * The key's owner, or the next node clockwise whose load is within the bound
+     *
+     * @param load       current load per node (e.g. in-flight requests)
+     * @param loadFactor allowed load relative to the average, > 1
+     */
+    public Selection<T> select(String key, ToIntFunction<T> load, double loadFactor) {
+        if (nodes.isEmpty()) {
+            return null;
+        }
+        long total = 0;
+        for (T node : nodes) {
+            total += load.applyAsInt(node);
+        }
+        long bound = (long) Math.ceil(loadFactor * (total + 1) / nodes.size());
+
+        int start = Arrays.binarySearch(points, hash(key));
+        if (start < 0) {
+            start = -start - 1;
+        }
+        boolean[] tried = new boolean[nodes.size()];
+        int owner = owners[start % points.length];
+        for (int i = 0; i < points.length; i++) {
+            int n = owners[(start + i) % points.length];
+            if (tried[n]) {
+                continue;
+            }
+            tried[n] = true;
+            if (load.applyAsInt(nodes.get(n)) + 1 <= bound) {
+                return new Selection<>(nodes.get(n), n == owner);
+            }
+        }
+        return new Selection<>(nodes.get(owner), true); // every node at the bound: stay with the owner
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche (splitmix64), so similar keys land far apart
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h;
+    }
+
+    /**
+     * @param owned false when the owner was over the bound and the request spilled to a neighbour
+     */
+    public record Selection<T>(T node, boolean owned) {
+    }
+}
@@ -1,14 +1,25 @@
 package com.rahi.apigateway.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
 
 @Slf4j
@@ -18,10 +29,29 @@ public class JwtUtil {
     private final Key key;
     private final long validityMs;
 
-    public JwtUtil(@Value("${jwt.secret}") String secret) {
+    // Immutable and thread-safe, so one parser serves every request
+    private final JwtParser parser;
+
+    // Verified claims keyed by SHA-256 of the whole token; each entry expires at min(exp, ttl)
+    private final Cache<ByteBuffer, Claims> verified;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.claims-cache.max-size:10000}") long cacheMaxSize,
+                   @Value("${jwt.claims-cache.ttl:PT5M}") Duration cacheTtl,
+                   MeterRegistry meterRegistry) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.validityMs = 86400000; // 24 hours
-        log.info("JWT Util initialized with expiration: {}ms", validityMs);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new ClaimsExpiry(cacheTtl.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.claims");
+        log.info("JWT Util initialized with expiration: {}ms, claims cache {} entries / {}",
+                validityMs, cacheMaxSize, cacheTtl);
     }
 
     /**
@@ -30,7 +60,7 @@ public class JwtUtil {
     public String generateToken(Long userId, String email) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + validityMs);
-        
+
         String token = Jwts.builder()
                 .setSubject(email)
                 .claim("uid", userId)
@@ -38,7 +68,7 @@ public class JwtUtil {
                 .setExpiration(exp)
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
-        
+
         log.debug("Generated JWT token for user: {} (ID: {})", email, userId);
         return token;
     }
@@ -48,21 +78,34 @@ public class JwtUtil {
      */
     public Claims validateToken(String token) {
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            
+            Claims claims = parser.parseClaimsJws(token).getBody();
+
             log.debug("JWT token validated for user: {}", claims.getSubject());
             return claims;
-            
+
         } catch (Exception e) {
             log.warn("JWT validation failed: {}", e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Per-request authentication: same result as validateToken, but a token that was already
+     * verified skips the signature check and claims parsing until it expires (or the cache TTL
+     * passes). Only successful verifications are cached. The returned claims are shared between
+     * requests and must not be modified.
+     */
+    public Claims authenticate(String token) {
+        ByteBuffer digest = digest(token);
+        Claims claims = verified.getIfPresent(digest);
+        if (claims != null) {
+            return claims;
+        }
+        claims = validateToken(token);
+        verified.put(digest, claims);
+        return claims;
+    }
+
     /**
      * Extract email from token
      */
@@ -88,4 +131,38 @@ public class JwtUtil {
             return true;
         }
     }
-}
\ No newline at end of file
+
+    private static ByteBuffer digest(String token) {
+        try {
+            // ByteBuffer compares by content, so it works as a map key
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Package-private for tests
+    record ClaimsExpiry(long ttlNanos) implements Expiry<ByteBuffer, Claims> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return ttlNanos;
+            }
+            long remainingMs = expiration.getTime() - System.currentTimeMillis();
+            return Math.max(0, Math.min(ttlNanos, Duration.ofMillis(remainingMs).toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+-- Token bucket shared by all gateway instances; hands out up to ARGV[3] tokens at once.
+-- KEYS[1]  bucket hash (tokens, ts)
+-- ARGV[1]  capacity
+-- ARGV[2]  refill rate in tokens per second
+-- ARGV[3]  tokens wanted (0 to only hand tokens back)
+-- ARGV[4]  unspent tokens of an expired lease, handed back
+-- Returns "granted:remaining:retryAfterMs"; Redis time is used so gateway clocks don't matter.
+
+local capacity = tonumber(ARGV[1])
+local rate = tonumber(ARGV[2]) / 1000
+local wanted = tonumber(ARGV[3])
+local returned = tonumber(ARGV[4]) or 0
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1]) or capacity
+local ts = tonumber(state[2]) or now
+
+tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate + returned)
+local granted = math.min(math.floor(tokens), wanted)
+tokens = tokens - granted
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000)
+
+local retry = 0
+if granted == 0 and wanted > 0 then
+  retry = math.ceil((1 - tokens) / rate)
+end
+return granted .. ':' .. math.floor(tokens) .. ':' .. retry
@@ -0,0 +1,217 @@
+package com.rahi.apigateway.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Limit adaptation to RTT, the wait queue, and permit accounting on every path out of it
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final String ROUTE = "hazard-service-hazards";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdaptiveConcurrencyLimiter limiter; // held so the route's gauges stay readable
+
+    @Test
+    void limitShrinksWhenRttRisesAndRecoversAfterwards() throws InterruptedException {
+        limiter = limiter(10, 2, 100, 50, Duration.ofMillis(100));
+
+        for (int i = 0; i < 20; i++) {
+            round(2);
+        }
+        double normal = limit();
+        assertThat(normal).isGreaterThan(10);
+
+        for (int i = 0; i < 15; i++) {
+            round(20);
+        }
+        double slowed = limit();
+        assertThat(slowed).isLessThan(normal / 2);
+
+        for (int i = 0; i < 40; i++) {
+            round(2);
+        }
+        assertThat(limit()).isGreaterThan(slowed * 2);
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void releasedSlotPassesStraightToTheFirstWaiter() throws Exception {
+        limiter = limiter(2, 2, 2, 5, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(ROUTE).block();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.acquire(ROUTE).block();
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> third = limiter.acquire(ROUTE).toFuture();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> fourth = limiter.acquire(ROUTE).toFuture();
+        assertThat(third).isNotDone();
+
+        first.release();
+
+        AdaptiveConcurrencyLimiter.Permit handedOver = third.get(1, TimeUnit.SECONDS);
+        assertThat(fourth).isNotDone();
+        assertThat(inFlight()).isEqualTo(2);
+
+        second.release();
+        handedOver.release();
+        fourth.get(1, TimeUnit.SECONDS).release();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void fullQueueRejectsAtOnce() {
+        limiter = limiter(1, 1, 1, 1, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(ROUTE).block();
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = limiter.acquire(ROUTE).toFuture();
+
+        long started = System.nanoTime();
+        assertThat(limiter.acquire(ROUTE).block()).isNull();
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(1));
+
+        held.release();
+        queued.join().release();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void timedOutWaiterLeavesTheQueueAndTakesNoSlot() {
+        limiter = limiter(1, 1, 1, 5, Duration.ofMillis(50));
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(ROUTE).block();
+
+        assertThat(limiter.acquire(ROUTE).block()).isNull();
+
+        held.release();
+        assertThat(inFlight()).isZero();
+        limiter.acquire(ROUTE).block().release(); // the slot is free again
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheQueueAndTakesNoSlot() {
+        limiter = limiter(1, 1, 1, 5, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire(ROUTE).block();
+        List<AdaptiveConcurrencyLimiter.Permit> granted = new ArrayList<>();
+        Disposable waiter = limiter.acquire(ROUTE).subscribe(granted::add);
+
+        waiter.dispose();
+        held.release();
+
+        assertThat(granted).isEmpty();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void releasingTwiceFreesOneSlot() {
+        limiter = limiter(2, 2, 2, 5, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(ROUTE).block();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.acquire(ROUTE).block();
+
+        first.release();
+        first.release();
+        first.discard();
+
+        assertThat(inFlight()).isEqualTo(1);
+        second.discard();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void noPermitIsLeakedUnderConcurrentTimeoutsAndCancels() throws Exception {
+        // A fixed limit, so only the accounting is under test
+        limiter = limiter(4, 4, 4, 8, Duration.ofMillis(2));
+        AtomicInteger holding = new AtomicInteger();
+        AtomicInteger maxHolding = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                workers.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 2000; i++) {
+                        if (random.nextInt(4) == 0) {
+                            // Gone before or while its slot is handed over
+                            limiter.acquire(ROUTE).subscribe(AdaptiveConcurrencyLimiter.Permit::release).dispose();
+                            continue;
+                        }
+                        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(ROUTE).block();
+                        if (permit == null) {
+                            continue; // queue full or timed out
+                        }
+                        maxHolding.accumulateAndGet(holding.incrementAndGet(), Math::max);
+                        Thread.onSpinWait();
+                        holding.decrementAndGet();
+                        if (random.nextBoolean()) {
+                            permit.release();
+                        } else {
+                            permit.discard();
+                        }
+                        permit.release(); // a second release must not free another slot
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(maxHolding.get()).isLessThanOrEqualTo(4);
+        // Slots handed to cancelled waiters are discarded asynchronously
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (inFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(inFlight()).isZero();
+        assertThat(limiter.acquire(ROUTE).block()).isNotNull(); // and the route still admits
+    }
+
+    // Takes every slot, holds them for the given RTT and releases them
+    private void round(long rttMillis) throws InterruptedException {
+        int slots = (int) limit();
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            permits.add(limiter.acquire(ROUTE).block());
+        }
+        Thread.sleep(rttMillis);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initial, int min, int max, int maxQueue, Duration queueTimeout) {
+        AdaptiveConcurrencyLimiter created = new AdaptiveConcurrencyLimiter(meterRegistry);
+        ReflectionTestUtils.setField(created, "initialLimit", initial);
+        ReflectionTestUtils.setField(created, "minLimit", min);
+        ReflectionTestUtils.setField(created, "maxLimit", max);
+        ReflectionTestUtils.setField(created, "rttTolerance", 1.5);
+        ReflectionTestUtils.setField(created, "smoothing", 0.2);
+        ReflectionTestUtils.setField(created, "shortWindow", 10);
+        ReflectionTestUtils.setField(created, "longWindow", 600);
+        ReflectionTestUtils.setField(created, "maxQueue", maxQueue);
+        ReflectionTestUtils.setField(created, "queueTimeout", queueTimeout);
+        created.acquire(ROUTE).block().discard(); // registers the route's gauges
+        return created;
+    }
+
+    private double limit() {
+        return meterRegistry.get("gateway.concurrency.limit").tag("route", ROUTE).gauge().value();
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("gateway.concurrency.inflight").tag("route", ROUTE).gauge().value();
+    }
+}
@@ -0,0 +1,185 @@
+package com.rahi.apigateway.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.LinkedMultiValueMap;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Instance choice under skewed in-flight counts and latencies, with and without a sticky cell
+ */
+class LatencyAwareLoadBalancerTest {
+
+    private static final String SERVICE_ID = "hazard-service";
+    private static final int CHOICES = 3000;
+
+    private final ServiceInstance fast = instance("fast", 1);
+    private final ServiceInstance medium = instance("medium", 2);
+    private final ServiceInstance slow = instance("slow", 3);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private InstanceStatsRegistry instanceStats;
+
+    @BeforeEach
+    void setUp() {
+        instanceStats = new InstanceStatsRegistry(meterRegistry);
+        ReflectionTestUtils.setField(instanceStats, "ewmaAlpha", 0.3);
+        // Long enough that the EWMA doesn't fade mid-test
+        ReflectionTestUtils.setField(instanceStats, "decayHalfLife", Duration.ofHours(1));
+        ReflectionTestUtils.setField(instanceStats, "errorPenalty", Duration.ofSeconds(1));
+    }
+
+    @Test
+    void slowestInstanceIsNeverPickedAndFastestWinsItsPairs() {
+        answeredIn(fast, 10);
+        answeredIn(medium, 50);
+        answeredIn(slow, 500);
+        LatencyAwareLoadBalancer balancer = balancer(fast, medium, slow);
+
+        Map<String, Integer> counts = choose(balancer, null, CHOICES);
+
+        // Each pair is equally likely; fast wins both of its two pairs, medium only the one with slow
+        assertThat(counts.getOrDefault("slow", 0)).isZero();
+        assertThat(counts.get("fast")).isBetween((int) (CHOICES * 0.6), (int) (CHOICES * 0.73));
+        assertThat(counts.get("medium")).isBetween((int) (CHOICES * 0.27), (int) (CHOICES * 0.4));
+    }
+
+    @Test
+    void busyInstanceLosesToIdleOneAtEqualLatency() {
+        answeredIn(fast, 20);
+        answeredIn(medium, 20);
+        inFlight(medium, 5);
+        LatencyAwareLoadBalancer balancer = balancer(fast, medium);
+
+        Map<String, Integer> counts = choose(balancer, null, 200);
+
+        assertThat(counts).containsOnlyKeys("fast");
+    }
+
+    @Test
+    void instancesWithoutSamplesCompareByInFlight() {
+        inFlight(fast, 3);
+        LatencyAwareLoadBalancer balancer = balancer(fast, medium);
+
+        assertThat(choose(balancer, null, 200)).containsOnlyKeys("medium");
+    }
+
+    @Test
+    void cellStaysWithItsOwnerRegardlessOfLatency() {
+        LatencyAwareLoadBalancer balancer = balancer(fast, medium, slow);
+        ServiceInstance owner = chooseOne(balancer, "0313131311");
+        answeredIn(owner, 500); // slow but not overloaded: stickiness wins over latency
+
+        assertThat(choose(balancer, "0313131311", 100)).containsOnlyKeys(owner.getInstanceId());
+        assertThat(meterRegistry.counter("gateway.lb.sticky", "service", SERVICE_ID, "outcome", "owner").count())
+                .isEqualTo(101);
+    }
+
+    @Test
+    void cellsSpreadAcrossInstances() {
+        LatencyAwareLoadBalancer balancer = balancer(fast, medium, slow);
+
+        Set<String> owners = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            owners.add(chooseOne(balancer, "03131313" + i).getInstanceId());
+        }
+
+        assertThat(owners).containsExactlyInAnyOrder("fast", "medium", "slow");
+    }
+
+    @Test
+    void overloadedOwnerSpillsToAnotherInstance() {
+        LatencyAwareLoadBalancer balancer = balancer(fast, medium, slow);
+        ServiceInstance owner = chooseOne(balancer, "0313131311");
+        inFlight(owner, 30); // well past 1.25x the average of 31 / 3
+
+        ServiceInstance spilled = chooseOne(balancer, "0313131311");
+
+        assertThat(spilled.getInstanceId()).isNotEqualTo(owner.getInstanceId());
+        assertThat(meterRegistry.counter("gateway.lb.sticky", "service", SERVICE_ID, "outcome", "spilled").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void singleInstanceIsReturnedAndEmptyListHasNoServer() {
+        inFlight(slow, 50);
+
+        assertThat(chooseOne(balancer(slow), null)).isSameAs(slow);
+        assertThat(balancer().choose(request(null)).block().hasServer()).isFalse();
+    }
+
+    private LatencyAwareLoadBalancer balancer(ServiceInstance... instances) {
+        ServiceInstanceListSupplier supplier = ServiceInstanceListSuppliers.from(SERVICE_ID, instances);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(supplier);
+        return new LatencyAwareLoadBalancer(provider, SERVICE_ID, instanceStats, 100, 1.25, meterRegistry);
+    }
+
+    private Map<String, Integer> choose(LatencyAwareLoadBalancer balancer, String cell, int times) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            counts.merge(chooseOne(balancer, cell).getInstanceId(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static ServiceInstance chooseOne(LatencyAwareLoadBalancer balancer, String cell) {
+        Response<ServiceInstance> response = balancer.choose(request(cell)).block();
+        assertThat(response.hasServer()).isTrue();
+        return response.getServer();
+    }
+
+    private void answeredIn(ServiceInstance instance, long millis) {
+        InstanceStatsRegistry.InstanceStats stats = instanceStats.stats(SERVICE_ID, instance);
+        stats.start();
+        stats.finish(TimeUnit.MILLISECONDS.toNanos(millis), false);
+    }
+
+    private void inFlight(ServiceInstance instance, int requests) {
+        for (int i = 0; i < requests; i++) {
+            instanceStats.stats(SERVICE_ID, instance).start();
+        }
+    }
+
+    private static Request<RequestDataContext> request(String cell) {
+        HttpHeaders headers = new HttpHeaders();
+        if (cell != null) {
+            headers.add(LatencyAwareLoadBalancer.CELL_HEADER, cell);
+        }
+        RequestData data = new RequestData(HttpMethod.GET, URI.create("http://hazard-service/api/hazards"), headers,
+                new LinkedMultiValueMap<>(), Map.of());
+        return new DefaultRequest<>(new RequestDataContext(data));
+    }
+
+    private static ServiceInstance instance(String id, int host) {
+        return new DefaultServiceInstance(id, SERVICE_ID, "10.0.0." + host, 8082, false);
+    }
+}
@@ -0,0 +1,97 @@
+package com.rahi.apigateway.service;
+
+import com.rahi.apigateway.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Several limiter instances (one per simulated gateway) sharing one bucket in a real Redis under
+ * concurrent load: admissions stay within the bucket (plus refill), short of it by at most the
+ * leases left unspent, and denials carry a retry-after.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TokenBucketRateLimiterRedisTest {
+
+    private static final int INSTANCES = 4;
+    private static final int CAPACITY = 200;
+    private static final int LEASE_SIZE = 10;
+    private static final int REQUESTS = 4000;
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static ReactiveStringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void instancesSharingABucketAdmitAtMostItsCapacity() {
+        List<TokenBucketRateLimiter> limiters = new ArrayList<>();
+        List<SimpleMeterRegistry> registries = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(redisTemplate, properties(), registry);
+            limiter.init();
+            limiters.add(limiter);
+            registries.add(registry);
+        }
+
+        long started = System.nanoTime();
+        List<TokenBucketRateLimiter.Decision> decisions = Flux.range(0, REQUESTS)
+                .parallel(16)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> limiters.get(i % INSTANCES).tryAcquire("load-test", "client-1"))
+                .sequential()
+                .collectList()
+                .block(Duration.ofSeconds(60));
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        long allowed = decisions.stream().filter(TokenBucketRateLimiter.Decision::allowed).count();
+        // Refill is 1/s, so a slow run may admit a few more
+        assertThat(allowed).isLessThanOrEqualTo(CAPACITY + (long) Math.ceil(elapsedSeconds) + 1);
+        assertThat(allowed).isGreaterThanOrEqualTo(CAPACITY - (long) INSTANCES * LEASE_SIZE);
+        assertThat(decisions).hasSize(REQUESTS);
+        assertThat(decisions).filteredOn(decision -> !decision.allowed())
+                .allSatisfy(decision -> assertThat(decision.retryAfterMs()).isPositive());
+        assertThat(registries).allSatisfy(registry ->
+                assertThat(registry.counter("gateway.ratelimit.redis.errors").count()).isZero());
+        assertThat(redisTemplate.hasKey("ratelimit:load-test:client-1").block()).isTrue();
+    }
+
+    private static RateLimitProperties properties() {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(CAPACITY);
+        limit.setRefillPerSecond(1);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLeaseSize(LEASE_SIZE);
+        properties.setLeaseTtl(Duration.ofMinutes(1));
+        properties.setDefaultLimit(limit);
+        return properties;
+    }
+}
@@ -0,0 +1,206 @@
+package com.rahi.apigateway.service;
+
+import com.rahi.apigateway.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Lease handling against a stubbed Redis script; replies are "granted:remaining:retryAfterMs"
+ */
+class TokenBucketRateLimiterTest {
+
+    private static final String ROUTE = "hazard-service-hazards";
+
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TokenBucketRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = limiter(Duration.ofMinutes(1)); // long enough not to expire mid-test
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiter.stop();
+    }
+
+    @Test
+    void spendsLeaseLocallyThenGoesBackToRedis() {
+        replies("3:50:0", "2:48:0");
+
+        List<TokenBucketRateLimiter.Decision> decisions = acquire(4);
+
+        assertThat(decisions).allMatch(TokenBucketRateLimiter.Decision::allowed);
+        assertThat(decisions).extracting(TokenBucketRateLimiter.Decision::remaining)
+                .containsExactly(52L, 51L, 50L, 49L);
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void emptyBucketDeniesWithoutRedisUntilRetryAfter() {
+        replies("0:0:5000");
+
+        List<TokenBucketRateLimiter.Decision> decisions = acquire(5);
+
+        assertThat(decisions).noneMatch(TokenBucketRateLimiter.Decision::allowed);
+        assertThat(decisions).allSatisfy(decision -> {
+            assertThat(decision.remaining()).isZero();
+            assertThat(decision.retryAfterMs()).isBetween(1L, 5000L);
+        });
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void failsOpenForTheLeaseWhenRedisIsDown() {
+        doReturn(Flux.error(new RedisConnectionFailureException("down")))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+
+        List<TokenBucketRateLimiter.Decision> decisions = acquire(20);
+
+        assertThat(decisions).allMatch(TokenBucketRateLimiter.Decision::allowed);
+        assertThat(meterRegistry.counter("gateway.ratelimit.redis.errors").count()).isEqualTo(1);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void concurrentRequestsShareOneRefill() {
+        replies("2:40:0");
+
+        // Both find the lease empty before either refill completes
+        Mono<TokenBucketRateLimiter.Decision> first = limiter.tryAcquire(ROUTE, "client-1");
+        Mono<TokenBucketRateLimiter.Decision> second = limiter.tryAcquire(ROUTE, "client-1");
+        Mono<TokenBucketRateLimiter.Decision> third = limiter.tryAcquire(ROUTE, "client-1");
+
+        List<TokenBucketRateLimiter.Decision> decisions = Flux.concat(first, second, third).collectList().block();
+
+        assertThat(decisions).extracting(TokenBucketRateLimiter.Decision::allowed)
+                .containsExactly(true, true, false);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void clientsHaveSeparateLeases() {
+        replies("1:59:0", "1:59:0");
+
+        assertThat(limiter.tryAcquire(ROUTE, "client-1").block().allowed()).isTrue();
+        assertThat(limiter.tryAcquire(ROUTE, "client-2").block().allowed()).isTrue();
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void unspentTokensGoBackWithTheNextRefillAfterExpiry() throws InterruptedException {
+        limiter = limiter(Duration.ofMillis(50));
+        limiter.stop(); // no sweep: the refill takes them along
+        replies("5:50:0", "5:48:0");
+
+        acquire(2);
+        Thread.sleep(100);
+        TokenBucketRateLimiter.Decision decision = limiter.tryAcquire(ROUTE, "client-1").block();
+
+        assertThat(decision.allowed()).isTrue();
+        assertThat(decision.remaining()).isEqualTo(52);
+        List<List<String>> calls = scriptArgs(2);
+        assertThat(calls.get(0)).containsExactly("60", "1.0", "10", "0");
+        assertThat(calls.get(1)).containsExactly("60", "1.0", "10", "3");
+        assertThat(meterRegistry.counter("gateway.ratelimit.lease.returned").count()).isEqualTo(3);
+    }
+
+    @Test
+    void sweepReturnsTokensOfIdleLeasesOnce() throws InterruptedException {
+        limiter = limiter(Duration.ofMillis(50));
+        limiter.stop(); // swept by hand below
+        replies("5:50:0", "0:54:0");
+
+        acquire(1);
+        assertThat(limiter.returnExpiredLeases().block()).isZero(); // still live
+        Thread.sleep(100);
+
+        assertThat(limiter.returnExpiredLeases().block()).isEqualTo(4);
+        assertThat(limiter.returnExpiredLeases().block()).isZero();
+        assertThat(scriptArgs(2).get(1)).containsExactly("60", "1.0", "0", "4");
+    }
+
+    @Test
+    void failOpenLeaseHasNothingToReturn() throws InterruptedException {
+        limiter = limiter(Duration.ofMillis(50));
+        limiter.stop();
+        doReturn(Flux.error(new RedisConnectionFailureException("down")))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+
+        acquire(3);
+        Thread.sleep(100);
+
+        assertThat(limiter.returnExpiredLeases().block()).isZero();
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    @Test
+    void noLimitConfiguredIsUnlimited() {
+        RateLimitProperties properties = new RateLimitProperties();
+        TokenBucketRateLimiter unconfigured = new TokenBucketRateLimiter(redisTemplate, properties, meterRegistry);
+        unconfigured.init();
+
+        TokenBucketRateLimiter.Decision decision = unconfigured.tryAcquire(ROUTE, "client-1").block();
+        unconfigured.stop();
+
+        assertThat(decision.allowed()).isTrue();
+        assertThat(decision.limit()).isEqualTo(-1);
+    }
+
+    private TokenBucketRateLimiter limiter(Duration leaseTtl) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setCapacity(60);
+        limit.setRefillPerSecond(1);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLeaseSize(10);
+        properties.setLeaseTtl(leaseTtl);
+        properties.setDefaultLimit(limit);
+
+        TokenBucketRateLimiter created = new TokenBucketRateLimiter(redisTemplate, properties, meterRegistry);
+        created.init();
+        return created;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<String>> scriptArgs(int calls) {
+        ArgumentCaptor<List<String>> args = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, times(calls)).execute(any(RedisScript.class), anyList(), args.capture());
+        return args.getAllValues();
+    }
+
+    private void replies(String first, String... rest) {
+        Flux<?>[] more = new Flux<?>[rest.length];
+        for (int i = 0; i < rest.length; i++) {
+            more[i] = Flux.just(rest[i]);
+        }
+        doReturn(Flux.just(first), (Object[]) more)
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+    }
+
+    private List<TokenBucketRateLimiter.Decision> acquire(int requests) {
+        return Flux.range(0, requests)
+                .concatMap(i -> limiter.tryAcquire(ROUTE, "client-1"))
+                .collectList()
+                .block();
+    }
+}
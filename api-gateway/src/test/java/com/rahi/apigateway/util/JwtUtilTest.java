@@ -0,0 +1,85 @@
+package com.rahi.apigateway.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-0123456789";
+    private static final long TTL_NANOS = Duration.ofMinutes(5).toNanos();
+    private static final ByteBuffer KEY = ByteBuffer.wrap(new byte[32]);
+
+    private final JwtUtil.ClaimsExpiry expiry = new JwtUtil.ClaimsExpiry(TTL_NANOS);
+
+    @Test
+    void cachesForTtlWhenTokenOutlivesIt() {
+        Claims claims = expiringIn(Duration.ofHours(1));
+
+        assertThat(expiry.expireAfterCreate(KEY, claims, 0)).isEqualTo(TTL_NANOS);
+    }
+
+    @Test
+    void cachesUntilExpWhenTokenExpiresFirst() {
+        Claims claims = expiringIn(Duration.ofSeconds(30));
+
+        assertThat(expiry.expireAfterCreate(KEY, claims, 0))
+                .isBetween(Duration.ofSeconds(28).toNanos(), Duration.ofSeconds(30).toNanos());
+    }
+
+    @Test
+    void expiredTokenIsNotCached() {
+        Claims claims = expiringIn(Duration.ofSeconds(-1));
+
+        assertThat(expiry.expireAfterCreate(KEY, claims, 0)).isZero();
+    }
+
+    @Test
+    void tokenWithoutExpUsesTtl() {
+        assertThat(expiry.expireAfterCreate(KEY, Jwts.claims(), 0)).isEqualTo(TTL_NANOS);
+    }
+
+    @Test
+    void readsKeepAndUpdatesRecomputeExpiry() {
+        Claims claims = expiringIn(Duration.ofSeconds(30));
+
+        assertThat(expiry.expireAfterRead(KEY, claims, 0, 1234)).isEqualTo(1234);
+        assertThat(expiry.expireAfterUpdate(KEY, claims, 0, TTL_NANOS)).isLessThanOrEqualTo(Duration.ofSeconds(30).toNanos());
+    }
+
+    @Test
+    void authenticateReusesVerifiedClaims() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        String token = jwtUtil.generateToken(42L, "user@example.com");
+
+        Claims first = jwtUtil.authenticate(token);
+        Claims second = jwtUtil.authenticate(token);
+
+        assertThat(first.getSubject()).isEqualTo("user@example.com");
+        assertThat(first.get("uid", Long.class)).isEqualTo(42L);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void authenticateRejectsTamperedToken() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        String token = jwtUtil.generateToken(42L, "user@example.com");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtUtil.authenticate(tampered)).isInstanceOf(RuntimeException.class);
+    }
+
+    private static Claims expiringIn(Duration duration) {
+        Claims claims = Jwts.claims();
+        claims.setExpiration(new Date(System.currentTimeMillis() + duration.toMillis()));
+        return claims;
+    }
+}
@@ -0,0 +1,58 @@
+package com.rahi.apigateway.util;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Per-request cost of full JWT verification (signature and claims parsing) against the claims
+ * cache, over a working set of active users' tokens. Timings are printed, not asserted (they
+ * depend on the machine); that both paths agree is.
+ */
+class JwtVerificationBenchmarkTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-0123456789";
+    private static final int ACTIVE_USERS = 1000;
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int MEASURED_CALLS = 100_000;
+
+    @Test
+    void cachedAgainstFullVerification() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 10_000, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        List<String> tokens = new ArrayList<>(ACTIVE_USERS);
+        for (long id = 0; id < ACTIVE_USERS; id++) {
+            tokens.add(jwtUtil.generateToken(id, "user" + id + "@example.com"));
+        }
+        for (String token : tokens) {
+            assertThat(jwtUtil.authenticate(token).get("uid", Long.class))
+                    .isEqualTo(jwtUtil.validateToken(token).get("uid", Long.class));
+        }
+
+        double full = nanosPerCall(tokens, jwtUtil::validateToken);
+        double cached = nanosPerCall(tokens, jwtUtil::authenticate);
+
+        System.out.printf("full verification %8.0f ns/request%n", full);
+        System.out.printf("claims cache      %8.0f ns/request (%.1fx)%n", cached, full / cached);
+    }
+
+    private static double nanosPerCall(List<String> tokens, Function<String, Claims> verify) {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            checksum += verify.apply(tokens.get(i % tokens.size())).get("uid", Long.class);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            checksum += verify.apply(tokens.get(i % tokens.size())).get("uid", Long.class);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(checksum).isPositive(); // keeps the calls from being optimised away
+        return (double) elapsed / MEASURED_CALLS;
+    }
+}
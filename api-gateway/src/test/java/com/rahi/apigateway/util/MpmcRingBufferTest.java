@@ -0,0 +1,119 @@
+package com.rahi.apigateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpmcRingBufferTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int CONSUMERS = 4;
+    private static final int PER_PRODUCER = 200_000;
+
+    @Test
+    void capacityRoundsUpToAPowerOfTwo() {
+        assertThat(new MpmcRingBuffer<>(1).capacity()).isEqualTo(2);
+        assertThat(new MpmcRingBuffer<>(8).capacity()).isEqualTo(8);
+        assertThat(new MpmcRingBuffer<>(9).capacity()).isEqualTo(16);
+    }
+
+    @Test
+    void fullBufferRefusesAndEmptyBufferReturnsNull() {
+        MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.poll()).isZero();
+        assertThat(buffer.offer(4)).isTrue(); // the freed slot is reused
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(buffer.drain(drained::add, 10)).isEqualTo(4);
+        assertThat(drained).containsExactly(1, 2, 3, 4);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void concurrentProducersAndConsumersHandOverEveryElementOnceInOrder() throws Exception {
+        // Small enough that producers keep hitting a full buffer and consumers an empty one
+        MpmcRingBuffer<Long> buffer = new MpmcRingBuffer<>(64);
+        ExecutorService pool = Executors.newFixedThreadPool(PRODUCERS + CONSUMERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger remaining = new AtomicInteger(PRODUCERS * PER_PRODUCER);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                long first = (long) p * PER_PRODUCER;
+                producers.add(pool.submit(() -> {
+                    start.await();
+                    for (long value = first; value < first + PER_PRODUCER; value++) {
+                        while (!buffer.offer(value)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<List<Long>>> consumers = new ArrayList<>();
+            for (int c = 0; c < CONSUMERS; c++) {
+                consumers.add(pool.submit(() -> {
+                    List<Long> taken = new ArrayList<>();
+                    start.await();
+                    while (remaining.get() > 0) {
+                        Long value = buffer.poll();
+                        if (value == null) {
+                            Thread.onSpinWait();
+                        } else {
+                            taken.add(value);
+                            remaining.decrementAndGet();
+                        }
+                    }
+                    return taken;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> producer : producers) {
+                producer.get(60, TimeUnit.SECONDS);
+            }
+            BitSet seen = new BitSet(PRODUCERS * PER_PRODUCER);
+            int duplicates = 0;
+            int outOfOrder = 0;
+            for (Future<List<Long>> consumer : consumers) {
+                long[] lastPerProducer = new long[PRODUCERS];
+                Arrays.fill(lastPerProducer, -1);
+                for (long value : consumer.get(60, TimeUnit.SECONDS)) {
+                    if (seen.get((int) value)) {
+                        duplicates++;
+                    }
+                    seen.set((int) value);
+                    // FIFO: one consumer sees each producer's elements in the order they were offered
+                    int producer = (int) (value / PER_PRODUCER);
+                    if (value < lastPerProducer[producer]) {
+                        outOfOrder++;
+                    }
+                    lastPerProducer[producer] = value;
+                }
+            }
+
+            assertThat(duplicates).isZero();
+            assertThat(outOfOrder).isZero();
+            assertThat(seen.cardinality()).isEqualTo(PRODUCERS * PER_PRODUCER);
+            assertThat(buffer.poll()).isNull();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
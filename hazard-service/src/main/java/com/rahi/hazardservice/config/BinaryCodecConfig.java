@@ -0,0 +1,73 @@
+package com.rahi.hazardservice.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * CBOR and Smile responses for clients that ask for them with Accept.
+ * The converters are built from the application's Jackson builder so binary and JSON
+ * output use the same modules and settings, and they go after the JSON converter so
+ * JSON stays the default for wildcard or missing Accept headers.
+ * Responses with validators put the negotiated type in their ETag and vary by Accept,
+ * since the same data has a different body per encoding.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class BinaryCodecConfig implements WebMvcConfigurer {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    // In converter order, so ties go to JSON as they do in content negotiation
+    private static final List<MediaType> ENCODINGS =
+            List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    /**
+     * The encoding a JSON/CBOR/Smile response gets for this Accept header
+     */
+    public static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(accepted);
+            for (MediaType type : accepted) {
+                if (type.getQualityValue() == 0) {
+                    continue;
+                }
+                for (MediaType encoding : ENCODINGS) {
+                    if (type.isCompatibleWith(encoding)) {
+                        return encoding;
+                    }
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Spring answers 406 for these; the validator doesn't matter then
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(c -> c instanceof MappingJackson2CborHttpMessageConverter
+                || c instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.build().copyWith(new CBORFactory())));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilder.build().copyWith(new SmileFactory())));
+    }
+}
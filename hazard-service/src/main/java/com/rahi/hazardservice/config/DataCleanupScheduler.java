@@ -1,7 +1,7 @@
 
 package com.rahi.hazardservice.config;
 
-import com.rahi.hazardservice.repository.HazardRepository;
+import com.rahi.hazardservice.repository.HazardStore;
 import com.rahi.hazardservice.repository.RouteRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,7 +17,7 @@ import java.time.temporal.ChronoUnit;
 @RequiredArgsConstructor
 public class DataCleanupScheduler {
 
-    private final HazardRepository hazardRepository;
+    private final HazardStore hazardStore;
     private final RouteRepository routeRepository;
 
     // Clean up old hazards daily at 2 AM
@@ -26,7 +26,7 @@ public class DataCleanupScheduler {
     public void cleanupOldHazards() {
         Instant cutoff = Instant.now().minus(7, ChronoUnit.DAYS);
         log.info("Cleaning up hazards older than {}", cutoff);
-        hazardRepository.deleteByTimestampBefore(cutoff);
+        hazardStore.deleteByTimestampBefore(cutoff);
     }
 
     // Clean up old routes daily at 3 AM
@@ -0,0 +1,156 @@
+package com.rahi.hazardservice.config;
+
+import com.rahi.hazardservice.entity.HazardType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hazard detection rule table (hazard.detection.rules).
+ * Compiled by HazardRuleEngine; an empty table falls back to the built-in defaults.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "hazard.detection")
+public class HazardRuleProperties {
+
+    private List<Rule> rules = new ArrayList<>();
+
+    public enum Metric {
+        TEMPERATURE, // Celsius
+        WIND_SPEED, // m/s
+        PRECIPITATION, // mm
+        VISIBILITY // meters
+    }
+
+    public enum Operator {
+        LT, LTE, GT, GTE
+    }
+
+    @Data
+    public static class Rule {
+        private HazardType type;
+        private List<String> conditions = new ArrayList<>(); // any keyword in the weather condition
+        private List<Threshold> when = new ArrayList<>(); // all must hold
+        private int baseSeverity;
+        private List<Tier> tiers = new ArrayList<>(); // first match replaces base severity
+        private List<Boost> boosts = new ArrayList<>(); // added on top
+        private int maxSeverity = 100;
+    }
+
+    @Data
+    public static class Threshold {
+        private Metric metric;
+        private Operator op;
+        private double value;
+    }
+
+    @Data
+    public static class Tier {
+        private Metric metric;
+        private Operator op;
+        private double value;
+        private int severity;
+    }
+
+    /**
+     * Step boost (op set): adds points when the threshold holds.
+     * Scaled boost (op unset): adds min(cap, whole units of metric * perUnit).
+     */
+    @Data
+    public static class Boost {
+        private Metric metric;
+        private Operator op;
+        private double value;
+        private int points;
+        private int perUnit;
+        private int cap = 100;
+    }
+
+    /**
+     * Built-in table, mirrors config-repo/hazard-service.yml
+     */
+    public static List<Rule> defaultRules() {
+        List<Rule> rules = new ArrayList<>();
+
+        Rule snow = rule(HazardType.SNOW, 50);
+        snow.getConditions().add("snow");
+        snow.getBoosts().add(scaled(Metric.PRECIPITATION, 10, 30));
+        snow.getBoosts().add(step(Metric.WIND_SPEED, Operator.GT, 5, 10)); // Blowing snow
+        rules.add(snow);
+
+        Rule ice = rule(HazardType.ICE, 70); // Ice is inherently dangerous
+        ice.getWhen().add(threshold(Metric.TEMPERATURE, Operator.LTE, 0));
+        ice.getWhen().add(threshold(Metric.PRECIPITATION, Operator.GT, 0));
+        ice.getBoosts().add(step(Metric.TEMPERATURE, Operator.LT, -5, 15)); // Black ice risk
+        rules.add(ice);
+
+        Rule visibility = rule(HazardType.LOW_VISIBILITY, 50);
+        visibility.getWhen().add(threshold(Metric.VISIBILITY, Operator.LT, 1000));
+        visibility.getTiers().add(tier(Metric.VISIBILITY, Operator.LT, 100, 95));
+        visibility.getTiers().add(tier(Metric.VISIBILITY, Operator.LT, 500, 75));
+        rules.add(visibility);
+
+        Rule wind = rule(HazardType.WIND, 50);
+        wind.getWhen().add(threshold(Metric.WIND_SPEED, Operator.GT, 10));
+        wind.getTiers().add(tier(Metric.WIND_SPEED, Operator.GT, 20, 90));
+        wind.getTiers().add(tier(Metric.WIND_SPEED, Operator.GT, 15, 70));
+        rules.add(wind);
+
+        Rule cold = rule(HazardType.EXTREME_COLD, 60);
+        cold.getWhen().add(threshold(Metric.TEMPERATURE, Operator.LT, -10));
+        cold.getTiers().add(tier(Metric.TEMPERATURE, Operator.LT, -20, 95));
+        cold.getTiers().add(tier(Metric.TEMPERATURE, Operator.LT, -15, 80));
+        rules.add(cold);
+
+        Rule fog = rule(HazardType.FOG, 60);
+        fog.getConditions().add("fog");
+        rules.add(fog);
+
+        return rules;
+    }
+
+    private static Rule rule(HazardType type, int baseSeverity) {
+        Rule rule = new Rule();
+        rule.setType(type);
+        rule.setBaseSeverity(baseSeverity);
+        return rule;
+    }
+
+    private static Threshold threshold(Metric metric, Operator op, double value) {
+        Threshold threshold = new Threshold();
+        threshold.setMetric(metric);
+        threshold.setOp(op);
+        threshold.setValue(value);
+        return threshold;
+    }
+
+    private static Tier tier(Metric metric, Operator op, double value, int severity) {
+        Tier tier = new Tier();
+        tier.setMetric(metric);
+        tier.setOp(op);
+        tier.setValue(value);
+        tier.setSeverity(severity);
+        return tier;
+    }
+
+    private static Boost step(Metric metric, Operator op, double value, int points) {
+        Boost boost = new Boost();
+        boost.setMetric(metric);
+        boost.setOp(op);
+        boost.setValue(value);
+        boost.setPoints(points);
+        return boost;
+    }
+
+    private static Boost scaled(Metric metric, int perUnit, int cap) {
+        Boost boost = new Boost();
+        boost.setMetric(metric);
+        boost.setPerUnit(perUnit);
+        boost.setCap(cap);
+        return boost;
+    }
+}
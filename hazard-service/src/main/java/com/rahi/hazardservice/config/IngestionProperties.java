@@ -0,0 +1,44 @@
+package com.rahi.hazardservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Regional bulk weather ingestion (hazard.ingestion).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "hazard.ingestion")
+public class IngestionProperties {
+
+    private boolean enabled = false;
+
+    // "provider" (bulk weather endpoint) or "file" (local snapshot)
+    private String source = "provider";
+
+    private Region region = new Region();
+
+    private String providerUrl = "https://api.open-meteo.com/v1/forecast";
+    private int providerChunkSize = 100; // coordinates per provider call
+
+    // Spring resource location, e.g. file:/data/weather-snapshot.json or classpath:snapshot.json
+    private String snapshotFile;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 500; // rows per JDBC insert batch
+    private int maxCells = 5000; // guard against a mistyped region
+
+    // One replica ingests per round: keep below interval, above the longest run
+    private Duration lockTtl = Duration.ofMinutes(9);
+
+    @Data
+    public static class Region {
+        private double minLat;
+        private double maxLat;
+        private double minLon;
+        private double maxLon;
+    }
+}
@@ -0,0 +1,51 @@
+package com.rahi.hazardservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geographic sharding of the hazards table (hazard.sharding).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "hazard.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // Shards own quadkey prefixes of this length (zoom 4: 256 prefixes, ~2500 km tiles)
+    private int prefixZoom = 4;
+
+    // Shard i hands out ids i+1, i+1+max-shards, ...: ids stay unique across shards and moves
+    private int maxShards = 64;
+
+    // How often each instance reloads prefix assignments made by other instances
+    private Duration mapRefresh = Duration.ofSeconds(30);
+
+    // Shards queried at once by a fan-out query
+    private int parallelism = 8;
+
+    // Move rows left in the unsharded hazards table into the shards on startup; when false, such
+    // rows fail startup instead of silently disappearing from reads
+    private boolean backfill = true;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String id;
+
+        // Schema holding this shard's hazards table
+        private String schema;
+
+        // Separate database; unset means the service's own datasource
+        private String url;
+        private String username;
+        private String password;
+    }
+}
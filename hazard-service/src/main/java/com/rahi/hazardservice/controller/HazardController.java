@@ -1,13 +1,23 @@
 package com.rahi.hazardservice.controller;
 
+import com.rahi.hazardservice.config.BinaryCodecConfig;
 import com.rahi.hazardservice.dto.HazardResponse;
+import com.rahi.hazardservice.dto.HazardTile;
 import com.rahi.hazardservice.entity.Hazard;
 import com.rahi.hazardservice.service.HazardAnalysisService;
+import com.rahi.hazardservice.service.HazardStreamService;
+import com.rahi.hazardservice.service.HazardTilePyramid;
 import com.rahi.hazardservice.service.ValidationService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -20,13 +30,18 @@ public class HazardController {
 
     private final HazardAnalysisService hazardAnalysisService;
     private final ValidationService validationService;
+    private final HazardStreamService hazardStreamService;
+    private final HazardTilePyramid hazardTilePyramid;
 
     @GetMapping
     public ResponseEntity<HazardResponse> getHazards(
             @RequestParam(name = "lat", required = true) Double lat,
             @RequestParam(name = "lon", required = true) Double lon,
             @RequestParam(name = "radius", defaultValue = "5.0") Double radius,
-            @RequestHeader(value = "X-User-Id", required = false) String userIdHeader) {
+            @RequestHeader(value = "X-User-Id", required = false) String userIdHeader,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest,
+            HttpServletResponse servletResponse) {
 
         log.info("GET /api/hazards - lat={}, lon={}, radius={}km, userId={}",
                 lat, lon, radius, userIdHeader);
@@ -44,8 +59,43 @@ public class HazardController {
             }
         }
 
+        // The ETag names the encoding, so 200s and 304s both vary by Accept
+        MediaType encoding = BinaryCodecConfig.negotiate(accept);
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        // Polling clients whose cell is fresh and unchanged get 304 without running the pipeline
+        String etag = hazardAnalysisService.responseETag(lat, lon, radius, encoding);
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            hazardAnalysisService.replayAlerts(lat, lon, userId);
+            return null;
+        }
+
         HazardResponse response = hazardAnalysisService.analyzeLocation(lat, lon, radius, userId);
-        return ResponseEntity.ok(response);
+
+        // Analysis freshens the cell, so the version is available now unless the weather API fell back
+        etag = hazardAnalysisService.responseETag(lat, lon, radius, encoding);
+        if (etag == null) {
+            return ResponseEntity.ok(response);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(response);
+    }
+
+    /**
+     * Sends the alerts a GET /api/hazards for this location would send to the user. Used by the
+     * gateway when it answers that GET from its response cache.
+     */
+    @PostMapping("/alerts")
+    public ResponseEntity<Void> replayAlerts(
+            @RequestParam(name = "lat", required = true) Double lat,
+            @RequestParam(name = "lon", required = true) Double lon,
+            @RequestHeader(value = "X-User-Id", required = true) Long userId) {
+
+        validationService.validateCoordinates(lat, lon, "Location");
+        hazardAnalysisService.replayAlerts(lat, lon, userId);
+        return ResponseEntity.accepted().build();
     }
 
     @GetMapping("/history")
@@ -67,6 +117,46 @@ public class HazardController {
         return ResponseEntity.ok(history);
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHazards(
+            @RequestParam(name = "minLat", required = true) Double minLat,
+            @RequestParam(name = "maxLat", required = true) Double maxLat,
+            @RequestParam(name = "minLon", required = true) Double minLon,
+            @RequestParam(name = "maxLon", required = true) Double maxLon) {
+
+        log.info("GET /api/hazards/stream - lat=[{}, {}], lon=[{}, {}]", minLat, maxLat, minLon, maxLon);
+
+        // Validate inputs
+        validationService.validateBoundingBox(minLat, maxLat, minLon, maxLon);
+
+        return hazardStreamService.subscribe(minLat, maxLat, minLon, maxLon);
+    }
+
+    @GetMapping("/tiles/{z}/{x}/{y}")
+    public ResponseEntity<HazardTile> getTile(
+            @PathVariable("z") Integer z,
+            @PathVariable("x") Integer x,
+            @PathVariable("y") Integer y,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest,
+            HttpServletResponse servletResponse) {
+
+        // Validate inputs
+        validationService.validateTile(z, x, y, hazardTilePyramid.maxZoom());
+
+        // Version check is a map lookup; a matching client gets 304 without building the body
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = "\"" + z + "-" + x + "-" + y + "-" + Long.toHexString(hazardTilePyramid.version(z, x, y)) + "-" + BinaryCodecConfig.negotiate(accept).getSubtype() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(hazardTilePyramid.tile(z, x, y));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         return ResponseEntity.ok(Map.of(
@@ -93,6 +183,22 @@ public class HazardController {
                                         "lon", "Longitude (-180 to 180) - REQUIRED",
                                         "radius", "Search radius in km - Optional, default: 5.0",
                                         "days", "Number of days (1 to 90) - Optional, default: 7"),
-                                "example", "/api/hazards/history?lat=43.65&lon=-79.38&days=7"))));
+                                "example", "/api/hazards/history?lat=43.65&lon=-79.38&days=7"),
+                        "GET /api/hazards/stream", Map.of(
+                                "description", "Server-Sent Events of hazard changes inside a map viewport",
+                                "parameters", Map.of(
+                                        "minLat", "South edge latitude - REQUIRED",
+                                        "maxLat", "North edge latitude - REQUIRED",
+                                        "minLon", "West edge longitude - REQUIRED",
+                                        "maxLon", "East edge longitude - REQUIRED"),
+                                "events", "hazard-cell: current hazards of one grid cell, sent on connect and on change",
+                                "example", "/api/hazards/stream?minLat=43.58&maxLat=43.86&minLon=-79.64&maxLon=-79.12"),
+                        "GET /api/hazards/tiles/{z}/{x}/{y}", Map.of(
+                                "description", "Max severity per hazard type inside a web map tile (supports If-None-Match)",
+                                "parameters", Map.of(
+                                        "z", "Zoom level (0 to " + hazardTilePyramid.maxZoom() + ")",
+                                        "x", "Tile column (0 to 2^z - 1)",
+                                        "y", "Tile row (0 to 2^z - 1)"),
+                                "example", "/api/hazards/tiles/10/286/398"))));
     }
 }
\ No newline at end of file
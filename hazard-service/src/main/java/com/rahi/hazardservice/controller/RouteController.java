@@ -1,13 +1,19 @@
 package com.rahi.hazardservice.controller;
 
+import com.rahi.hazardservice.config.BinaryCodecConfig;
 import com.rahi.hazardservice.dto.RouteResponse;
 import com.rahi.hazardservice.entity.Route;
 import com.rahi.hazardservice.service.RouteService;
 import com.rahi.hazardservice.service.ValidationService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -30,13 +36,18 @@ public class RouteController {
             @RequestParam(name = "toLat", required = true) Double toLat,
             @RequestParam(name = "toLon", required = true) Double toLon,
             @RequestParam(name = "pref", defaultValue = "safe") String pref,
-            @RequestHeader(value = "X-User-Id", required = false) String userIdHeader) {  // ✅ Get user from header
+            @RequestParam(name = "detail", required = false) Integer detail,
+            @RequestHeader(value = "X-User-Id", required = false) String userIdHeader,  // ✅ Get user from header
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest,
+            HttpServletResponse servletResponse) {
         
         log.info("GET /api/route - from=({},{}), to=({},{}), pref={}, userId={}", 
                 fromLat, fromLon, toLat, toLon, pref, userIdHeader);
         
         // Validate inputs
         validationService.validateRouteCoordinates(fromLat, fromLon, toLat, toLon);
+        validationService.validateDetail(detail);
         
         // Parse userId (can be null for anonymous users)
         Long userId = null;
@@ -48,11 +59,31 @@ public class RouteController {
             }
         }
         
+        // The ETag names the encoding, so 200s and 304s both vary by Accept
+        MediaType encoding = BinaryCodecConfig.negotiate(accept);
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        // A recent route for the user is reused as is: unchanged, it gets 304 before resolving
+        Optional<Route> recent = routeService.findRecentRoute(fromLat, fromLon, toLat, toLon, userId);
+        if (recent.isPresent() && webRequest.checkNotModified(routeService.routeETag(recent.get(), detail, encoding))) {
+            return null;
+        }
+
         // Calculate route with userId
-        RouteResponse response = routeService.calculateSafeRoute(
+        Route route = recent.isPresent() ? recent.get() : routeService.resolveRoute(
                 fromLat, fromLon, toLat, toLon, pref, userId);  // ✅ Pass userId
-        
-        return ResponseEntity.ok(response);
+
+        // A recalculated route identical to the client's: 304 before parsing and re-serializing the path
+        String etag = routeService.routeETag(route, detail, encoding);
+        if (recent.isEmpty() && webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        RouteResponse response = routeService.buildRouteResponse(route, detail);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(response);
     }
 
     @GetMapping("/history")
@@ -168,7 +199,8 @@ public class RouteController {
                         "fromLon", "Start longitude (-180 to 180) - REQUIRED",
                         "toLat", "End latitude (-90 to 90) - REQUIRED",
                         "toLon", "End longitude (-180 to 180) - REQUIRED",
-                        "pref", "Route preference (safe/fast/short) - Optional, default: safe"
+                        "pref", "Route preference (safe/fast/short) - Optional, default: safe",
+                        "detail", "Map zoom level (0 to 22) to simplify the path for - Optional, default: full stored path"
                     ),
                     "headers", Map.of(
                         "X-User-Id", "User ID for route history tracking - Optional"
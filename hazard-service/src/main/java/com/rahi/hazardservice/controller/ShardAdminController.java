@@ -0,0 +1,60 @@
+package com.rahi.hazardservice.controller;
+
+import com.rahi.hazardservice.exception.ErrorResponse;
+import com.rahi.hazardservice.repository.HazardShardMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operator endpoints for hazard shards: current prefix assignments and moving a prefix to
+ * another shard. The gateway answers /hazard-service/internal/** with 404, so these are
+ * reachable only inside the cluster.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/internal/shards")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hazard.sharding", name = "enabled", havingValue = "true")
+public class ShardAdminController {
+
+    private final HazardShardMap shardMap;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> assignments() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("shards", shardMap.shards().stream().map(HazardShardMap.Shard::id).toList());
+        body.put("prefixes", shardMap.assignments());
+        return ResponseEntity.ok(body);
+    }
+
+    // Returns once the rows are copied and the prefix switched; the old shard drains later
+    @PutMapping("/{prefix}")
+    public ResponseEntity<HazardShardMap.MoveResult> move(
+            @PathVariable String prefix,
+            @RequestParam(name = "shard") String shard) {
+        log.info("PUT /internal/shards/{} - shard={}", prefix, shard);
+        return ResponseEntity.ok(shardMap.move(prefix, shard));
+    }
+
+    // A prefix still draining from its last move, or moved by another instance meanwhile
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<ErrorResponse> conflict(IllegalStateException ex) {
+        log.warn("Shard move refused: {}", ex.getMessage());
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(Instant.now())
+                .status(HttpStatus.CONFLICT.value())
+                .error("Shard Move Conflict")
+                .message(ex.getMessage())
+                .build();
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+}
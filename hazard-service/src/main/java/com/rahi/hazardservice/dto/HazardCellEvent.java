@@ -0,0 +1,25 @@
+package com.rahi.hazardservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Current hazards of one grid cell, pushed to stream subscribers when they change.
+ * An empty hazard list means the cell has cleared.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HazardCellEvent {
+    private String cellId;
+    private Double lat; // cell center
+    private Double lon;
+    private List<HazardSummary> hazards; // max severity per type
+    private Instant updatedAt;
+}
@@ -0,0 +1,24 @@
+package com.rahi.hazardservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Aggregated hazards of one z/x/y map tile: the max severity per type over every cell in it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HazardTile {
+    private Integer z;
+    private Integer x;
+    private Integer y;
+    private Integer maxSeverity; // 0 when the tile has no hazards
+    private List<HazardSummary> hazards;
+    private Long version;
+}
@@ -1,5 +1,9 @@
 package com.rahi.hazardservice.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.rahi.hazardservice.util.PackedPathDeserializer;
+import com.rahi.hazardservice.util.PackedPathSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,7 +16,9 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class RouteResponse {
-    private List<LocationDto> path;
+    @JsonSerialize(using = PackedPathSerializer.class)
+    @JsonDeserialize(using = PackedPathDeserializer.class)
+    private List<LocationDto> path; // packed bytes in CBOR/Smile responses, see PackedCoordinates
     private Double distanceMeters;
     private Integer durationSeconds;
     private Integer riskScore; // 0-100
@@ -11,4 +11,5 @@ public class WeatherData {
     private Double visibility;
     private Integer humidity;
     private String description;
+    private boolean fallback; // safe defaults used when the weather API is unavailable
 }
\ No newline at end of file
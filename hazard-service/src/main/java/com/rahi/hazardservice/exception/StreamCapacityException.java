@@ -0,0 +1,13 @@
+package com.rahi.hazardservice.exception;
+
+import lombok.Getter;
+
+@Getter
+public class StreamCapacityException extends RuntimeException {
+    private final int limit;
+
+    public StreamCapacityException(int limit) {
+        super("Too many open hazard streams, try again later");
+        this.limit = limit;
+    }
+}
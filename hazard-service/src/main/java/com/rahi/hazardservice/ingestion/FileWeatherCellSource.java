@@ -0,0 +1,94 @@
+package com.rahi.hazardservice.ingestion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rahi.hazardservice.config.IngestionProperties;
+import com.rahi.hazardservice.dto.WeatherData;
+import com.rahi.hazardservice.util.GeoCells;
+import com.rahi.hazardservice.util.GeoCells.GridCell;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads weather from a local JSON snapshot, for offline runs and tests.
+ * The file is a JSON array of observations:
+ * [{"lat":43.65,"lon":-79.38,"temperature":-4.0,"weatherCondition":"Snow","windSpeed":6.0,
+ *   "precipitation":1.5,"visibility":800,"humidity":85,"description":"light snow"}, ...]
+ * Each observation is assigned to the cell containing it; the last one per cell wins.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FileWeatherCellSource implements WeatherCellSource {
+
+    private final IngestionProperties properties;
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public String hazardSource() {
+        return "snapshot";
+    }
+
+    @Override
+    public List<WeatherData> fetch(List<GridCell> cells) throws Exception {
+        if (properties.getSnapshotFile() == null || properties.getSnapshotFile().isBlank()) {
+            throw new IllegalStateException("hazard.ingestion.snapshot-file is not configured");
+        }
+
+        Resource resource = resourceLoader.getResource(properties.getSnapshotFile());
+        JsonNode root;
+        try (InputStream in = resource.getInputStream()) {
+            root = objectMapper.readTree(in);
+        }
+        if (root == null || !root.isArray()) {
+            throw new IllegalStateException("Weather snapshot must be a JSON array: " + properties.getSnapshotFile());
+        }
+
+        Map<String, WeatherData> byCell = new HashMap<>();
+        for (JsonNode node : root) {
+            if (!node.hasNonNull("lat") || !node.hasNonNull("lon")) {
+                continue;
+            }
+            String cellId = GeoCells.cellId(node.get("lat").asDouble(), node.get("lon").asDouble());
+            byCell.put(cellId, toWeather(node));
+        }
+
+        List<WeatherData> weather = new ArrayList<>(cells.size());
+        for (GridCell cell : cells) {
+            weather.add(byCell.get(cell.id()));
+        }
+        log.info("Loaded {} snapshot observations from {}", byCell.size(), properties.getSnapshotFile());
+        return weather;
+    }
+
+    private WeatherData toWeather(JsonNode node) {
+        WeatherData data = new WeatherData();
+        data.setTemperature(doubleOrNull(node, "temperature"));
+        data.setWindSpeed(doubleOrNull(node, "windSpeed"));
+        data.setPrecipitation(doubleOrNull(node, "precipitation"));
+        data.setVisibility(doubleOrNull(node, "visibility"));
+        data.setHumidity(node.hasNonNull("humidity") ? node.get("humidity").asInt() : null);
+        data.setWeatherCondition(node.hasNonNull("weatherCondition") ? node.get("weatherCondition").asText() : null);
+        data.setDescription(node.hasNonNull("description") ? node.get("description").asText() : null);
+        return data;
+    }
+
+    private Double doubleOrNull(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asDouble() : null;
+    }
+}
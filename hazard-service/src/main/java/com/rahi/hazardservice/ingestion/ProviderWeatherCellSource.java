@@ -0,0 +1,117 @@
+package com.rahi.hazardservice.ingestion;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rahi.hazardservice.config.IngestionProperties;
+import com.rahi.hazardservice.dto.WeatherData;
+import com.rahi.hazardservice.util.GeoCells.GridCell;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk current weather from Open-Meteo, which accepts comma-separated coordinate
+ * lists and returns one result per coordinate in request order.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProviderWeatherCellSource implements WeatherCellSource {
+
+    private static final String CURRENT_FIELDS =
+            "temperature_2m,relative_humidity_2m,precipitation,weather_code,wind_speed_10m,visibility";
+
+    private final IngestionProperties properties;
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String name() {
+        return "provider";
+    }
+
+    @Override
+    public String hazardSource() {
+        return "open-meteo";
+    }
+
+    @Override
+    public List<WeatherData> fetch(List<GridCell> cells) throws Exception {
+        List<WeatherData> weather = new ArrayList<>(cells.size());
+        int chunkSize = Math.max(1, properties.getProviderChunkSize());
+
+        for (int from = 0; from < cells.size(); from += chunkSize) {
+            List<GridCell> chunk = cells.subList(from, Math.min(cells.size(), from + chunkSize));
+            String latitudes = chunk.stream().map(c -> String.format(Locale.ROOT, "%.5f", c.lat())).collect(Collectors.joining(","));
+            String longitudes = chunk.stream().map(c -> String.format(Locale.ROOT, "%.5f", c.lon())).collect(Collectors.joining(","));
+            String url = String.format("%s?latitude=%s&longitude=%s&current=%s&wind_speed_unit=ms",
+                    properties.getProviderUrl(), latitudes, longitudes, CURRENT_FIELDS);
+
+            log.debug("Fetching bulk weather for {} cells", chunk.size());
+            String response = restTemplate.getForObject(url, String.class);
+            JsonNode root = objectMapper.readTree(response);
+
+            // A single coordinate comes back as an object, several as an array of the same length.
+            // Anything else can't be matched to the cells, so the chunk is skipped (no data)
+            if (root.isArray() && root.size() == chunk.size()) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    weather.add(parseCurrent(root.get(i)));
+                }
+            } else if (!root.isArray() && chunk.size() == 1) {
+                weather.add(parseCurrent(root));
+            } else {
+                log.warn("Skipping weather chunk of {} cells: provider returned {} results",
+                        chunk.size(), root.isArray() ? root.size() : "a single object");
+                for (int i = 0; i < chunk.size(); i++) {
+                    weather.add(null);
+                }
+            }
+        }
+        return weather;
+    }
+
+    private WeatherData parseCurrent(JsonNode result) {
+        JsonNode current = result.get("current");
+        if (current == null) {
+            return null;
+        }
+
+        WeatherData data = new WeatherData();
+        data.setTemperature(doubleOrNull(current, "temperature_2m"));
+        data.setWindSpeed(doubleOrNull(current, "wind_speed_10m"));
+        data.setPrecipitation(doubleOrNull(current, "precipitation"));
+        data.setVisibility(doubleOrNull(current, "visibility"));
+        data.setHumidity(current.hasNonNull("relative_humidity_2m") ? current.get("relative_humidity_2m").asInt() : null);
+
+        if (current.hasNonNull("weather_code")) {
+            int code = current.get("weather_code").asInt();
+            data.setWeatherCondition(conditionFor(code));
+            data.setDescription(conditionFor(code).toLowerCase(Locale.ROOT) + " (WMO " + code + ")");
+        }
+        return data;
+    }
+
+    /**
+     * WMO weather code to the OpenWeather-style condition names the rule table matches on
+     */
+    private String conditionFor(int code) {
+        if (code == 0) return "Clear";
+        if (code <= 3) return "Clouds";
+        if (code == 45 || code == 48) return "Fog";
+        if (code >= 51 && code <= 57) return "Drizzle";
+        if ((code >= 61 && code <= 67) || (code >= 80 && code <= 82)) return "Rain";
+        if ((code >= 71 && code <= 77) || code == 85 || code == 86) return "Snow";
+        if (code >= 95) return "Thunderstorm";
+        return "Unknown";
+    }
+
+    private Double doubleOrNull(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asDouble() : null;
+    }
+}
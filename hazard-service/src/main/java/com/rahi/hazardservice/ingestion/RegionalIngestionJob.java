@@ -0,0 +1,229 @@
+package com.rahi.hazardservice.ingestion;
+
+import com.rahi.hazardservice.config.IngestionProperties;
+import com.rahi.hazardservice.dto.WeatherData;
+import com.rahi.hazardservice.entity.Hazard;
+import com.rahi.hazardservice.repository.HazardStore;
+import com.rahi.hazardservice.service.HazardRuleEngine;
+import com.rahi.hazardservice.service.LiveHazardCache;
+import com.rahi.hazardservice.util.GeoCells;
+import com.rahi.hazardservice.util.GeoCells.GridCell;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scheduled weather ingestion for a configured region.
+ * Covers the region with a grid of cells, pulls weather for all of them in bulk,
+ * runs detection in parallel over cell ranges, batch-inserts the hazards and
+ * refreshes the live hazard cache so reads inside the region skip weather calls. The cache
+ * shares the round through Redis, so that holds on every replica, not just the one ingesting.
+ *
+ * Every replica schedules the job, but a run first takes a Redis lock (SET NX PX) that is kept
+ * for lock-ttl, so only one replica ingests per interval: no duplicate provider calls or rows.
+ * A failed run releases the lock so another replica can retry on its next tick.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hazard.ingestion", name = "enabled", havingValue = "true")
+public class RegionalIngestionJob {
+
+    private static final int LEAF_CELLS = 256;
+    private static final String LOCK_KEY = "hazard:ingestion:lock";
+
+    // Deletes the lock only if this replica still holds it
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final IngestionProperties properties;
+    private final List<WeatherCellSource> sources;
+    private final HazardRuleEngine hazardRuleEngine;
+    private final HazardStore hazardStore;
+    private final LiveHazardCache liveHazardCache;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final String lockToken = UUID.randomUUID().toString();
+
+    private ForkJoinPool detectionPool;
+    private List<GridCell> cells;
+
+    @PostConstruct
+    public void init() {
+        IngestionProperties.Region region = properties.getRegion();
+        cells = GeoCells.cellsCovering(region.getMinLat(), region.getMaxLat(),
+                region.getMinLon(), region.getMaxLon());
+        if (cells.size() > properties.getMaxCells()) {
+            throw new IllegalStateException(String.format(
+                    "Ingestion region covers %d cells, more than hazard.ingestion.max-cells=%d",
+                    cells.size(), properties.getMaxCells()));
+        }
+        detectionPool = new ForkJoinPool(Math.max(1, properties.getParallelism()));
+        log.info("Regional ingestion enabled: {} cells from source '{}'", cells.size(), properties.getSource());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        detectionPool.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${hazard.ingestion.interval:PT10M}",
+            initialDelayString = "${hazard.ingestion.initial-delay:PT30S}")
+    public void ingest() {
+        if (!acquireLock()) {
+            return;
+        }
+        // Kept after a successful run (until lock-ttl) so other replicas skip this round
+        try {
+            run();
+        } catch (Exception e) {
+            log.error("Regional ingestion failed: {}", e.getMessage());
+            releaseLock();
+        }
+    }
+
+    private void run() throws Exception {
+        WeatherCellSource source = resolveSource();
+        long started = System.nanoTime();
+
+        List<WeatherData> weather = source.fetch(cells);
+
+        Instant now = Instant.now();
+        List<Hazard> hazards = detectionPool.invoke(
+                new DetectTask(weather, source.hazardSource(), now, 0, cells.size()));
+
+        // Every cell with data gets a cache entry, including "no hazards"
+        Map<String, List<Hazard>> byCell = new LinkedHashMap<>();
+        for (int i = 0; i < cells.size(); i++) {
+            if (weather.get(i) != null) {
+                byCell.put(cells.get(i).id(), new ArrayList<>());
+            }
+        }
+        for (Hazard hazard : hazards) {
+            byCell.get(GeoCells.cellId(hazard.getLatitude(), hazard.getLongitude())).add(hazard);
+        }
+
+        hazardStore.insertAll(hazards, properties.getBatchSize());
+        liveHazardCache.updateAll(byCell, source.hazardSource());
+
+        log.info("Regional ingestion: {} cells with data, {} hazards in {} ms",
+                byCell.size(), hazards.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private boolean acquireLock() {
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, lockToken, properties.getLockTtl());
+            if (!Boolean.TRUE.equals(acquired)) {
+                log.debug("Regional ingestion: another replica holds the lock, skipping this round");
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            // Without the lock every replica would ingest; skip rather than duplicate
+            log.warn("Regional ingestion: lock unavailable ({}), skipping this round", e.getMessage());
+            return false;
+        }
+    }
+
+    private void releaseLock() {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY), lockToken);
+        } catch (Exception e) {
+            log.warn("Regional ingestion: could not release lock: {}", e.getMessage());
+        }
+    }
+
+    private WeatherCellSource resolveSource() {
+        return sources.stream()
+                .filter(s -> s.name().equals(properties.getSource()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(
+                        "Unknown hazard.ingestion.source: " + properties.getSource()));
+    }
+
+    private Hazard buildHazard(GridCell cell, WeatherData weather, int index, HazardRuleEngine.BatchResult result,
+            String hazardSource, Instant timestamp) {
+        return Hazard.builder()
+                .latitude(cell.lat())
+                .longitude(cell.lon())
+                .hazardType(result.type(index))
+                .severity(result.severity(index))
+                .source(hazardSource)
+                .timestamp(timestamp)
+                .description(weather.getDescription())
+                .temperature(weather.getTemperature())
+                .windSpeed(weather.getWindSpeed())
+                .precipitation(weather.getPrecipitation())
+                .visibility(weather.getVisibility())
+                .build();
+    }
+
+    /**
+     * Splits the cell range until it is small enough, then evaluates it as one batch.
+     */
+    private final class DetectTask extends RecursiveTask<List<Hazard>> {
+        private final List<WeatherData> weather;
+        private final String hazardSource;
+        private final Instant timestamp;
+        private final int from;
+        private final int to;
+
+        private DetectTask(List<WeatherData> weather, String hazardSource, Instant timestamp, int from, int to) {
+            this.weather = weather;
+            this.hazardSource = hazardSource;
+            this.timestamp = timestamp;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Hazard> compute() {
+            if (to - from <= LEAF_CELLS) {
+                return detect();
+            }
+            int mid = (from + to) >>> 1;
+            DetectTask left = new DetectTask(weather, hazardSource, timestamp, from, mid);
+            left.fork();
+            List<Hazard> right = new DetectTask(weather, hazardSource, timestamp, mid, to).compute();
+            List<Hazard> merged = new ArrayList<>(left.join());
+            merged.addAll(right);
+            return merged;
+        }
+
+        private List<Hazard> detect() {
+            List<WeatherData> observations = new ArrayList<>(to - from);
+            int[] cellIndex = new int[to - from];
+            for (int i = from; i < to; i++) {
+                if (weather.get(i) != null) {
+                    cellIndex[observations.size()] = i;
+                    observations.add(weather.get(i));
+                }
+            }
+
+            HazardRuleEngine.BatchResult result = hazardRuleEngine.evaluateBatch(hazardRuleEngine.newBatch(observations));
+            List<Hazard> hazards = new ArrayList<>(result.count());
+            for (int d = 0; d < result.count(); d++) {
+                int cell = cellIndex[result.observation(d)];
+                hazards.add(buildHazard(cells.get(cell), weather.get(cell), d, result, hazardSource, timestamp));
+            }
+            return hazards;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.rahi.hazardservice.ingestion;
+
+import com.rahi.hazardservice.dto.WeatherData;
+import com.rahi.hazardservice.util.GeoCells.GridCell;
+
+import java.util.List;
+
+/**
+ * Bulk weather for a grid of cells.
+ */
+public interface WeatherCellSource {
+
+    /**
+     * Source key matched against hazard.ingestion.source
+     */
+    String name();
+
+    /**
+     * Value stored in Hazard.source for hazards detected from this source
+     */
+    String hazardSource();
+
+    /**
+     * Weather per cell, index-aligned with cells; null where the source has no data.
+     */
+    List<WeatherData> fetch(List<GridCell> cells) throws Exception;
+}
@@ -0,0 +1,332 @@
+package com.rahi.hazardservice.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Cluster-wide invalidation of in-process caches over Redis pub/sub (cache:invalidations).
+ *
+ * Every namespace (users, hazard-cells, ...) has a monotonic epoch in Redis. publish bumps it,
+ * stamps the key's version with the new epoch and broadcasts the invalidation in one script, so a
+ * key's version only ever grows and a cache keyed by it (e.g. an L2 entry) can't be overwritten
+ * by a reader racing the update.
+ *
+ * Pub/sub drops messages while a subscriber is disconnected, so receivers track which epochs they
+ * have seen, starting from the epoch in Redis when the namespace is first used. If Redis is still
+ * ahead of them one check-interval later, an invalidation was lost and the namespace is flushed;
+ * while the epochs can't be read at all, local caches are flushed every max-staleness. A local
+ * entry therefore outlives its invalidation by at most about two check-intervals (max-staleness
+ * without Redis), and caches stay hot in between.
+ *
+ * The bus is copied into user-service (service/), hazard-service (publisher/) and api-gateway
+ * (service/) so any service can invalidate another's caches. Keep the copies identical apart from
+ * the package, the Redis template and the gateway's reactive plumbing; the Namespace bookkeeping
+ * below is byte-identical in all three, and each copy runs the same CacheInvalidationBusTest.
+ * Metrics, tagged with namespace: cache.invalidation.lag (publish to receipt, wall clock across
+ * hosts), cache.invalidation.published, .received and .flushes (by reason), plus
+ * cache.invalidation.sync.age, the time since epochs were last confirmed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationBus implements MessageListener {
+
+    public static final String CHANNEL = "cache:invalidations";
+
+    // KEYS: epoch, version; ARGV: version ttl (s), channel, message up to the epoch, message after it
+    private static final RedisScript<Long> PUBLISH_SCRIPT = new DefaultRedisScript<>(
+            "local epoch = redis.call('INCR', KEYS[1]) " +
+            "redis.call('SET', KEYS[2], epoch, 'EX', ARGV[1]) " +
+            "redis.call('PUBLISH', ARGV[2], ARGV[3] .. epoch .. ARGV[4]) " +
+            "return epoch", Long.class);
+
+    // Epochs received out of order waiting for the gap before them to fill
+    private static final int MAX_AHEAD = 10000;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.invalidation.max-staleness:PT30S}")
+    private Duration maxStaleness;
+
+    // Must outlive anything cached under a version, or a version could fall back to 0 while it's cached
+    @Value("${cache.invalidation.version-ttl:P1D}")
+    private Duration versionTtl;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+    private volatile long lastSyncAt;
+    private volatile long lastBlindFlushAt;
+
+    @PostConstruct
+    public void init() {
+        lastSyncAt = System.nanoTime();
+        lastBlindFlushAt = lastSyncAt;
+        Gauge.builder("cache.invalidation.sync.age", this, bus -> (System.nanoTime() - bus.lastSyncAt) / 1e9)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Calls onInvalidate for every key another instance invalidates in the namespace, and onFlush
+     * when invalidations may have been lost and everything cached for the namespace must go
+     */
+    public void subscribe(String namespace, Consumer<Invalidation> onInvalidate, Runnable onFlush) {
+        namespace(namespace).listeners.add(new Listener(onInvalidate, onFlush));
+    }
+
+    /**
+     * Invalidates the key on every other instance and returns its new version (the namespace's
+     * new epoch), or -1 if Redis is unavailable. The caller updates its own cache.
+     */
+    public long publish(String namespace, String key) {
+        Namespace ns = namespace(namespace);
+        String head = namespace + '|';
+        String tail = "|" + System.currentTimeMillis() + '|' + instanceId + '|' + key;
+        try {
+            Long epoch = redisTemplate.execute(PUBLISH_SCRIPT, List.of(epochKey(namespace), versionKey(namespace, key)),
+                    Long.toString(versionTtl.toSeconds()), CHANNEL, head, tail);
+            ns.published.increment();
+            return epoch != null ? epoch : -1;
+        } catch (Exception e) {
+            // Peers find out through the max-staleness flush if Redis stays away
+            log.warn("⚠️ Could not publish invalidation of {} {}: {}", namespace, key, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * The key's current version: the epoch of its last invalidation, 0 if it was never (or not
+     * within version-ttl) invalidated, -1 if Redis is unavailable
+     */
+    public long version(String namespace, String key) {
+        try {
+            String value = redisTemplate.opsForValue().get(versionKey(namespace, key));
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (Exception e) {
+            log.debug("Redis unavailable reading version of {} {}: {}", namespace, key, e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            String[] parts = body.split("\\|", 5);
+            Invalidation invalidation = new Invalidation(parts[0], parts[4], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            Namespace ns = namespaces.get(invalidation.namespace());
+            if (ns == null) {
+                return; // nothing cached here for that namespace
+            }
+            ns.received.increment();
+            ns.lag.record(Math.max(0, System.currentTimeMillis() - invalidation.publishedAtMillis()), TimeUnit.MILLISECONDS);
+            if (!ns.receive(invalidation.epoch()) || instanceId.equals(parts[3])) {
+                return;
+            }
+            for (Listener listener : ns.listeners) {
+                try {
+                    listener.onInvalidate().accept(invalidation);
+                } catch (Exception e) {
+                    log.error("Invalidation listener for {} failed", ns.name, e);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed message on {}: {}", CHANNEL, body);
+        }
+    }
+
+    /**
+     * Compares the epochs in Redis with the ones received; see the class comment
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.check-interval:PT5S}",
+            initialDelayString = "${cache.invalidation.check-interval:PT5S}")
+    public void checkEpochs() {
+        List<Namespace> subscribed = List.copyOf(namespaces.values());
+        if (subscribed.isEmpty()) {
+            return;
+        }
+        List<String> epochs;
+        try {
+            epochs = redisTemplate.opsForValue().multiGet(subscribed.stream().map(ns -> epochKey(ns.name)).toList());
+        } catch (Exception e) {
+            long now = System.nanoTime();
+            if (now - lastSyncAt > maxStaleness.toNanos() && now - lastBlindFlushAt > maxStaleness.toNanos()) {
+                lastBlindFlushAt = now;
+                log.warn("⚠️ Cache invalidations unconfirmed for over {} ({}): flushing local caches",
+                        maxStaleness, e.getMessage());
+                subscribed.forEach(ns -> flush(ns, "redis-unavailable"));
+            }
+            return;
+        }
+        lastSyncAt = System.nanoTime();
+        for (int i = 0; i < subscribed.size(); i++) {
+            String value = epochs != null ? epochs.get(i) : null;
+            Namespace ns = subscribed.get(i);
+            if (ns.lost(value != null ? Long.parseLong(value) : 0)) {
+                log.warn("⚠️ Missed invalidations for {}: flushing local cache", ns.name);
+                flush(ns, "missed");
+            }
+        }
+    }
+
+    private void flush(Namespace ns, String reason) {
+        Counter.builder("cache.invalidation.flushes")
+                .tag("namespace", ns.name)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        for (Listener listener : ns.listeners) {
+            try {
+                listener.onFlush().run();
+            } catch (Exception e) {
+                log.error("Flush listener for {} failed", ns.name, e);
+            }
+        }
+    }
+
+    private Namespace namespace(String name) {
+        Namespace existing = namespaces.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (name.indexOf('|') >= 0) {
+            throw new IllegalArgumentException("Invalid cache namespace: " + name);
+        }
+        return namespaces.computeIfAbsent(name, n -> {
+            Namespace created = new Namespace(n);
+            try {
+                String epoch = redisTemplate.opsForValue().get(epochKey(n));
+                created.seed(epoch != null ? Long.parseLong(epoch) : 0);
+            } catch (Exception e) {
+                log.debug("Redis unavailable reading epoch of {}: {}", n, e.getMessage());
+            }
+            return created;
+        });
+    }
+
+    // Hash tags keep a namespace's keys in one slot, as the script needs on a cluster
+    private static String epochKey(String namespace) {
+        return "cache:epoch:{" + namespace + "}";
+    }
+
+    private static String versionKey(String namespace, String key) {
+        return "cache:ver:{" + namespace + "}:" + key;
+    }
+
+    /**
+     * @param epoch the namespace's epoch after this invalidation, which is also the key's new version
+     */
+    public record Invalidation(String namespace, String key, long epoch, long publishedAtMillis) {
+    }
+
+    private record Listener(Consumer<Invalidation> onInvalidate, Runnable onFlush) {
+    }
+
+    private final class Namespace {
+
+        final String name;
+        final List<Listener> listeners = new CopyOnWriteArrayList<>();
+        final Counter published;
+        final Counter received;
+        final Timer lag;
+
+        // Guarded by this: every epoch up to contiguous has been received (or flushed over), plus ahead;
+        // -1 until the epoch is first known
+        long contiguous = -1;
+        final TreeSet<Long> ahead = new TreeSet<>();
+        long behind = -1;
+
+        Namespace(String name) {
+            this.name = name;
+            this.published = Counter.builder("cache.invalidation.published").tag("namespace", name).register(meterRegistry);
+            this.received = Counter.builder("cache.invalidation.received").tag("namespace", name).register(meterRegistry);
+            this.lag = Timer.builder("cache.invalidation.lag")
+                    .description("Publish to receipt of an invalidation (wall clock, includes clock skew)")
+                    .tag("namespace", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Starts tracking from the epoch Redis has reached, unless a message or check got there first
+         */
+        synchronized void seed(long epoch) {
+            if (contiguous < 0) {
+                contiguous = epoch;
+            }
+        }
+
+        /**
+         * Records an epoch; false if it was seen before. Messages may be handled out of order.
+         */
+        synchronized boolean receive(long epoch) {
+            if (contiguous < 0) {
+                contiguous = epoch;
+                return true;
+            }
+            if (epoch <= contiguous || ahead.contains(epoch)) {
+                return false;
+            }
+            if (epoch == contiguous + 1) {
+                contiguous = epoch;
+                drainAhead();
+            } else if (ahead.size() < MAX_AHEAD) {
+                ahead.add(epoch);
+            }
+            // else dropped: the gap stays open and the next check flushes
+            return true;
+        }
+
+        /**
+         * True if epochs Redis had reached at the previous check still haven't all arrived. The
+         * first read of an unseeded namespace only seeds it: there is nothing to have missed yet.
+         */
+        synchronized boolean lost(long redisEpoch) {
+            if (contiguous < 0) {
+                contiguous = redisEpoch;
+                behind = -1;
+                return false;
+            }
+            boolean lost = behind > contiguous;
+            if (lost) {
+                // Only skip what the flush covers; later epochs may still be on their way
+                contiguous = behind;
+                ahead.headSet(contiguous, true).clear();
+                drainAhead();
+            }
+            behind = redisEpoch > contiguous ? redisEpoch : -1;
+            return lost;
+        }
+
+        private void drainAhead() {
+            while (ahead.remove(contiguous + 1)) {
+                contiguous++;
+            }
+        }
+    }
+}
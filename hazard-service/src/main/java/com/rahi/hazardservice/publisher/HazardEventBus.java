@@ -0,0 +1,76 @@
+package com.rahi.hazardservice.publisher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rahi.hazardservice.dto.HazardCellEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Fans out cell changes to local listeners and, through Redis pub/sub, to the
+ * listeners of every other instance. Each instance tags what it publishes so it
+ * can ignore its own messages coming back from Redis.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HazardEventBus implements MessageListener {
+
+    public static final String CHANNEL = "hazard:cells";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final List<Consumer<HazardCellEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<HazardCellEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void publish(HazardCellEvent event) {
+        dispatch(event);
+        try {
+            String message = objectMapper.writeValueAsString(new Envelope(instanceId, event));
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (Exception e) {
+            // Local subscribers already have it; other instances catch up on the next change
+            log.warn("Failed to publish cell {} change: {}", event.getCellId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Envelope envelope = objectMapper.readValue(
+                    new String(message.getBody(), StandardCharsets.UTF_8), Envelope.class);
+            if (!instanceId.equals(envelope.origin())) {
+                dispatch(envelope.event());
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring malformed message on {}: {}", CHANNEL, e.getMessage());
+        }
+    }
+
+    private void dispatch(HazardCellEvent event) {
+        for (Consumer<HazardCellEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                log.error("Hazard event listener failed", e);
+            }
+        }
+    }
+
+    record Envelope(String origin, HazardCellEvent event) {
+    }
+}
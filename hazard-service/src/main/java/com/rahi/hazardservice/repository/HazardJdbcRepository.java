@@ -0,0 +1,61 @@
+package com.rahi.hazardservice.repository;
+
+import com.rahi.hazardservice.entity.Hazard;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Bulk writes for the hazards table.
+ * Hazard uses IDENTITY ids, which disables Hibernate insert batching, so bulk
+ * paths go through JDBC batches instead of saveAll.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class HazardJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO hazards " +
+            "(latitude, longitude, hazard_type, severity, source, timestamp, description, " +
+            "temperature, wind_speed, precipitation, visibility) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void insertAll(List<Hazard> hazards, int batchSize) {
+        if (hazards.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, hazards, batchSize, (ps, h) -> {
+            ps.setDouble(1, h.getLatitude());
+            ps.setDouble(2, h.getLongitude());
+            ps.setString(3, h.getHazardType().name());
+            ps.setInt(4, h.getSeverity());
+            ps.setString(5, h.getSource());
+            ps.setTimestamp(6, Timestamp.from(h.getTimestamp()));
+            ps.setString(7, h.getDescription());
+            setNullableDouble(ps, 8, h.getTemperature());
+            setNullableDouble(ps, 9, h.getWindSpeed());
+            setNullableDouble(ps, 10, h.getPrecipitation());
+            setNullableDouble(ps, 11, h.getVisibility());
+        });
+        log.info("Inserted {} hazards in batches of {}", hazards.size(), batchSize);
+    }
+
+    private static void setNullableDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.rahi.hazardservice.repository;
+
+import com.rahi.hazardservice.config.ShardingProperties;
+import com.rahi.hazardservice.util.GeoCells;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Which shard owns which area.
+ *
+ * Areas are quadkey prefixes of hazard cell ids (GeoCells) at hazard.sharding.prefix-zoom, so a
+ * shard owns whole map tiles and a bounding box maps to the few shards whose tiles it touches.
+ * Assignments live in hazard_shard_map in the service's own database, shared by all instances:
+ * prefixes are dealt out round-robin the first time they are seen and only change through move,
+ * so adding a shard moves nothing until prefixes are moved onto it. Each shard is a hazards
+ * table in its own schema, optionally in its own database.
+ *
+ * Writes are fenced per prefix: a writer holds a shared advisory lock on each prefix it writes
+ * (in the service database) and reads the prefix's shard under it, so a move that takes the
+ * lock exclusively knows no write to the old shard is still in flight once it has it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hazard.sharding", name = "enabled", havingValue = "true")
+public class HazardShardMap {
+
+    private static final Pattern SCHEMA_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    // First key of the two-key advisory locks fencing prefixes; the second is hashtext(prefix)
+    private static final int FENCE_LOCK = 0x48534d; // "HSM"
+
+    private final ShardingProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final List<DataSource> ownedDataSources = new ArrayList<>();
+    private volatile Map<String, Shard> assignments = Map.of();
+
+    @PostConstruct
+    public void init() {
+        if (properties.getShards().isEmpty() || properties.getShards().size() > properties.getMaxShards()) {
+            throw new IllegalStateException("hazard.sharding needs 1 to " + properties.getMaxShards() + " shards");
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (ShardingProperties.Shard config : properties.getShards()) {
+            if (!ids.add(config.getId()) || config.getSchema() == null || !SCHEMA_NAME.matcher(config.getSchema()).matches()) {
+                throw new IllegalStateException("Invalid or duplicate shard: " + config.getId() + " (" + config.getSchema() + ")");
+            }
+            Shard shard = new Shard(config.getId(), shards.size(), config.getSchema() + ".hazards", jdbcFor(config));
+            createTable(shard, config.getSchema());
+            shards.add(shard);
+        }
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS hazard_shard_map (" +
+                "prefix VARCHAR(24) PRIMARY KEY, " +
+                "shard_id VARCHAR(64) NOT NULL, " +
+                "updated_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+        // Set while a moved prefix's rows still sit in the shard it left
+        jdbcTemplate.execute("ALTER TABLE hazard_shard_map ADD COLUMN IF NOT EXISTS draining_shard VARCHAR(64)");
+        jdbcTemplate.execute("ALTER TABLE hazard_shard_map ADD COLUMN IF NOT EXISTS drain_after TIMESTAMP WITH TIME ZONE");
+        assignMissingPrefixes();
+        refresh();
+        log.info("🗺️ Hazard sharding: {} shards, {} prefixes at zoom {}", shards.size(), assignments.size(),
+                properties.getPrefixZoom());
+    }
+
+    @PreDestroy
+    public void close() {
+        for (DataSource dataSource : ownedDataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close shard datasource: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks up moves made by other instances and drains prefixes whose grace period is over
+     */
+    @Scheduled(fixedDelayString = "${hazard.sharding.map-refresh:PT30S}", initialDelayString = "${hazard.sharding.map-refresh:PT30S}")
+    public void refresh() {
+        Map<String, Shard> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT prefix, shard_id FROM hazard_shard_map", rs -> {
+            Shard shard = byId(rs.getString("shard_id"));
+            if (shard == null) {
+                log.error("Prefix {} is assigned to unknown shard {}", rs.getString("prefix"), rs.getString("shard_id"));
+            } else {
+                loaded.put(rs.getString("prefix"), shard);
+            }
+        });
+        assignments = loaded;
+        drainMovedPrefixes();
+    }
+
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    public Shard shardFor(String cellId) {
+        Shard shard = assignments.get(prefixOf(cellId));
+        return shard != null ? shard : shards.get(0); // only while a prefix is unassigned (see assignMissingPrefixes)
+    }
+
+    /**
+     * Shards owning any tile the box touches
+     */
+    public Set<Shard> shardsFor(double minLat, double maxLat, double minLon, double maxLon) {
+        int zoom = properties.getPrefixZoom();
+        int minX = GeoCells.tileX(minLon, zoom);
+        int maxX = GeoCells.tileX(maxLon, zoom);
+        int minY = GeoCells.tileY(maxLat, zoom); // tile rows grow southwards
+        int maxY = GeoCells.tileY(minLat, zoom);
+        Set<Shard> touched = new LinkedHashSet<>();
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                touched.add(shardFor(GeoCells.quadkey(x, y, zoom)));
+                if (touched.size() == shards.size()) {
+                    return touched;
+                }
+            }
+        }
+        return touched;
+    }
+
+    /**
+     * Runs write with the current owner of each prefix while holding the prefixes' write fence,
+     * inside a transaction on the service database: shards in that database write in the same
+     * transaction, shards elsewhere finish before the fence is released. Owners are read from
+     * hazard_shard_map under the fence, not from this instance's possibly stale copy.
+     */
+    public void fenced(Collection<String> prefixes, Consumer<Map<String, Shard>> write) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, Shard> owners = new HashMap<>();
+            for (String prefix : new TreeSet<>(prefixes)) {
+                jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(?, hashtext(?))", rs -> {
+                }, FENCE_LOCK, prefix);
+                List<String> owner = jdbcTemplate.queryForList(
+                        "SELECT shard_id FROM hazard_shard_map WHERE prefix = ?", String.class, prefix);
+                Shard shard = owner.isEmpty() ? shards.get(0) : byId(owner.get(0));
+                if (shard == null) {
+                    throw new IllegalStateException("Prefix " + prefix + " is assigned to unknown shard " + owner.get(0));
+                }
+                owners.put(prefix, shard);
+            }
+            write.accept(owners);
+        });
+    }
+
+    public String prefixOf(String cellId) {
+        return cellId.substring(0, properties.getPrefixZoom());
+    }
+
+    /**
+     * Prefix to shard id, sorted by prefix
+     */
+    public Map<String, String> assignments() {
+        Map<String, String> result = new TreeMap<>();
+        assignments.forEach((prefix, shard) -> result.put(prefix, shard.id()));
+        return result;
+    }
+
+    /**
+     * Rebalances one prefix onto another shard:
+     * 1. copies its rows to the target while reads and writes still go to the source,
+     * 2. takes the prefix's write fence exclusively, which waits out writes already headed for
+     *    the source, and switches the assignment; writers from then on read the target,
+     * 3. copies the prefix again, picking up what was written to the source before the switch.
+     * The source keeps its copy for two map-refresh intervals, so instances that haven't
+     * reloaded the map yet still read complete data; refresh then copies the prefix once more
+     * and deletes exactly the rows it copied from the source. Rows keep their ids throughout.
+     */
+    public synchronized MoveResult move(String prefix, String targetId) {
+        if (prefix.length() != properties.getPrefixZoom() || !assignments.containsKey(prefix)) {
+            throw new IllegalArgumentException("Unknown prefix: " + prefix);
+        }
+        Shard target = shards.stream().filter(shard -> shard.id().equals(targetId)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown shard: " + targetId));
+        Shard source = currentOwner(prefix);
+        if (source == target) {
+            return new MoveResult(prefix, source.id(), target.id(), 0);
+        }
+        log.info("🚚 Moving prefix {} from shard {} to {}", prefix, source.id(), target.id());
+
+        copyRows(source, target, prefix);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, hashtext(?))", rs -> {
+            }, FENCE_LOCK, prefix);
+            if (currentOwner(prefix) != source) {
+                throw new IllegalStateException("Prefix " + prefix + " was moved concurrently");
+            }
+            Instant now = Instant.now();
+            jdbcTemplate.update("UPDATE hazard_shard_map SET shard_id = ?, draining_shard = ?, drain_after = ?, " +
+                            "updated_at = ? WHERE prefix = ?",
+                    target.id(), source.id(), Timestamp.from(now.plus(properties.getMapRefresh().multipliedBy(2))),
+                    Timestamp.from(now), prefix);
+        });
+        refresh();
+
+        // The source takes no more writes for the prefix, so this copy is complete
+        long rows = copyRows(source, target, prefix).size();
+        log.info("✅ Moved prefix {} ({} rows) from shard {} to {}, source drains after {}", prefix, rows,
+                source.id(), target.id(), properties.getMapRefresh().multipliedBy(2));
+        return new MoveResult(prefix, source.id(), target.id(), rows);
+    }
+
+    // Reads the owner from hazard_shard_map; refuses prefixes whose last move hasn't drained yet
+    private Shard currentOwner(String prefix) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT shard_id, draining_shard FROM hazard_shard_map WHERE prefix = ?", prefix);
+        if (row.get("draining_shard") != null) {
+            throw new IllegalStateException("Prefix " + prefix + " is still draining from shard " + row.get("draining_shard"));
+        }
+        Shard shard = byId((String) row.get("shard_id"));
+        if (shard == null) {
+            throw new IllegalStateException("Prefix " + prefix + " is assigned to unknown shard " + row.get("shard_id"));
+        }
+        return shard;
+    }
+
+    /**
+     * Deletes moved prefixes from the shards they left once their grace period is over. The
+     * map row stays locked while draining, so instances refreshing at the same time skip it.
+     */
+    private void drainMovedPrefixes() {
+        List<String> due = jdbcTemplate.queryForList("SELECT prefix FROM hazard_shard_map " +
+                "WHERE draining_shard IS NOT NULL AND drain_after <= ?", String.class, Timestamp.from(Instant.now()));
+        for (String prefix : due) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> drain(prefix));
+            } catch (Exception e) {
+                log.warn("Failed to drain prefix {}, retrying on next refresh: {}", prefix, e.getMessage());
+            }
+        }
+    }
+
+    private void drain(String prefix) {
+        List<Map<String, Object>> locked = jdbcTemplate.queryForList("SELECT shard_id, draining_shard " +
+                "FROM hazard_shard_map WHERE prefix = ? AND draining_shard IS NOT NULL FOR UPDATE SKIP LOCKED", prefix);
+        if (locked.isEmpty()) {
+            return; // drained or being drained by another instance
+        }
+        Shard target = byId((String) locked.get(0).get("shard_id"));
+        Shard source = byId((String) locked.get(0).get("draining_shard"));
+        if (target == null || source == null) {
+            throw new IllegalStateException("Prefix " + prefix + " refers to an unknown shard");
+        }
+        // Copy again (idempotent) and delete only what was copied
+        List<Object[]> copied = copyRows(source, target, prefix);
+        source.jdbc().batchUpdate("DELETE FROM " + source.table() + " WHERE id = ?", copied, 1000,
+                (ps, row) -> ps.setLong(1, ((Number) row[0]).longValue()));
+        jdbcTemplate.update("UPDATE hazard_shard_map SET draining_shard = NULL, drain_after = NULL WHERE prefix = ?", prefix);
+        log.info("🧹 Drained prefix {} ({} rows) from shard {}", prefix, copied.size(), source.id());
+    }
+
+    // Copies every row of the prefix; ids already in the target are skipped. Returns the copied ids.
+    private List<Object[]> copyRows(Shard source, Shard target, String prefix) {
+        List<Object[]> batch = new ArrayList<>();
+        List<Object[]> ids = new ArrayList<>();
+        source.jdbc().query("SELECT id, " + ShardedHazardStore.COLUMNS + " FROM " + source.table() +
+                " WHERE cell_id LIKE ? ORDER BY id", rs -> {
+            Object[] row = new Object[13];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            batch.add(row);
+            ids.add(new Object[]{row[0]});
+            if (batch.size() == 1000) {
+                insertRows(target, batch);
+                batch.clear();
+            }
+        }, prefix + "%");
+        insertRows(target, batch);
+        return ids;
+    }
+
+    private static void insertRows(Shard target, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            target.jdbc().batchUpdate("INSERT INTO " + target.table() + " (id, " + ShardedHazardStore.COLUMNS + ") " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (id) DO NOTHING", rows);
+        }
+    }
+
+    private Shard byId(String id) {
+        for (Shard shard : shards) {
+            if (shard.id().equals(id)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    private JdbcTemplate jdbcFor(ShardingProperties.Shard config) {
+        if (config.getUrl() == null || config.getUrl().isBlank()) {
+            return jdbcTemplate;
+        }
+        DataSource dataSource = DataSourceBuilder.create()
+                .url(config.getUrl())
+                .username(config.getUsername())
+                .password(config.getPassword())
+                .build();
+        ownedDataSources.add(dataSource);
+        return new JdbcTemplate(dataSource);
+    }
+
+    // Ids interleave across shards (shard i: i+1, i+1+max-shards, ...) so moved rows keep theirs
+    private void createTable(Shard shard, String schema) {
+        shard.jdbc().execute("CREATE SCHEMA IF NOT EXISTS " + schema);
+        shard.jdbc().execute("CREATE TABLE IF NOT EXISTS " + shard.table() + " (" +
+                "id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH " + (shard.index() + 1) +
+                " INCREMENT BY " + properties.getMaxShards() + ") PRIMARY KEY, " +
+                "cell_id VARCHAR(24) NOT NULL, " +
+                "latitude DOUBLE PRECISION NOT NULL, " +
+                "longitude DOUBLE PRECISION NOT NULL, " +
+                "hazard_type VARCHAR(32) NOT NULL, " +
+                "severity INTEGER NOT NULL, " +
+                "source VARCHAR(255), " +
+                "timestamp TIMESTAMP WITH TIME ZONE NOT NULL, " +
+                "description TEXT, " +
+                "temperature DOUBLE PRECISION, " +
+                "wind_speed DOUBLE PRECISION, " +
+                "precipitation DOUBLE PRECISION, " +
+                "visibility DOUBLE PRECISION)");
+        shard.jdbc().execute("CREATE INDEX IF NOT EXISTS idx_hazards_cell ON " + shard.table() + " (cell_id text_pattern_ops)");
+        shard.jdbc().execute("CREATE INDEX IF NOT EXISTS idx_hazards_lat_lon ON " + shard.table() + " (latitude, longitude)");
+        shard.jdbc().execute("CREATE INDEX IF NOT EXISTS idx_hazards_timestamp ON " + shard.table() + " (timestamp)");
+    }
+
+    private void assignMissingPrefixes() {
+        int zoom = properties.getPrefixZoom();
+        int n = 1 << zoom;
+        List<String> prefixes = new ArrayList<>(n * n);
+        for (int x = 0; x < n; x++) {
+            for (int y = 0; y < n; y++) {
+                prefixes.add(GeoCells.quadkey(x, y, zoom));
+            }
+        }
+        prefixes.sort(null);
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(prefixes.size());
+        for (int i = 0; i < prefixes.size(); i++) {
+            rows.add(new Object[]{prefixes.get(i), shards.get(i % shards.size()).id(), now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO hazard_shard_map (prefix, shard_id, updated_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT (prefix) DO NOTHING", rows);
+    }
+
+    /**
+     * One shard: its hazards table (schema-qualified) and the database it lives in
+     */
+    public record Shard(String id, int index, String table, JdbcTemplate jdbc) {
+    }
+
+    public record MoveResult(String prefix, String from, String to, long rows) {
+    }
+}
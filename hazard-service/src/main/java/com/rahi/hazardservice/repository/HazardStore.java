@@ -0,0 +1,31 @@
+package com.rahi.hazardservice.repository;
+
+import com.rahi.hazardservice.entity.Hazard;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Where hazards are stored: the single hazards table (SingleHazardStore) or geographic shards
+ * (ShardedHazardStore, hazard.sharding.enabled). Queries take a bounding box so a sharded store
+ * only asks the shards the box touches.
+ */
+public interface HazardStore {
+
+    void saveAll(List<Hazard> hazards);
+
+    /**
+     * Bulk insert through JDBC batches of batchSize rows
+     */
+    void insertAll(List<Hazard> hazards, int batchSize);
+
+    List<Hazard> findWithinBounds(double minLat, double maxLat, double minLon, double maxLon, Instant since);
+
+    /**
+     * Hazards in the box between start and end, newest first
+     */
+    List<Hazard> findHistoricalHazards(double minLat, double maxLat, double minLon, double maxLon,
+                                       Instant start, Instant end);
+
+    void deleteByTimestampBefore(Instant cutoff);
+}
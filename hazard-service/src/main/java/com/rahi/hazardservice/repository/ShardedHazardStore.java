@@ -0,0 +1,228 @@
+package com.rahi.hazardservice.repository;
+
+import com.rahi.hazardservice.config.ShardingProperties;
+import com.rahi.hazardservice.entity.Hazard;
+import com.rahi.hazardservice.entity.HazardType;
+import com.rahi.hazardservice.util.GeoCells;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Hazards spread over geographic shards (HazardShardMap).
+ *
+ * Writes are grouped by the shard owning each hazard's cell and batch-inserted there, under the
+ * write fence of the prefixes they touch (see HazardShardMap.fenced). Queries go only to the
+ * shards whose prefixes the bounding box touches, in parallel (hazard.sharding.parallelism),
+ * and the results are merged; a box inside one prefix costs a single shard query.
+ *
+ * Rows left in the unsharded hazards table from before sharding was enabled are moved into the
+ * shards on startup (hazard.sharding.backfill); they get new ids there.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(prefix = "hazard.sharding", name = "enabled", havingValue = "true")
+public class ShardedHazardStore implements HazardStore {
+
+    static final String COLUMNS = "cell_id, latitude, longitude, hazard_type, severity, source, timestamp, " +
+            "description, temperature, wind_speed, precipitation, visibility";
+
+    private static final String INSERT_VALUES = "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String BOUNDS = "latitude BETWEEN ? AND ? AND longitude BETWEEN ? AND ?";
+
+    private static final RowMapper<Hazard> ROW_MAPPER = ShardedHazardStore::mapRow;
+
+    private static final int BACKFILL_BATCH = 1000;
+
+    private final HazardShardMap shardMap;
+    private final ShardingProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor;
+
+    public ShardedHazardStore(HazardShardMap shardMap, ShardingProperties properties, JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate) {
+        this.shardMap = shardMap;
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = Executors.newFixedThreadPool(properties.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "hazard-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Moves rows from the unsharded hazards table into the shards, a batch per transaction.
+     * Rows are locked with SKIP LOCKED, so instances starting together split the work; a shard
+     * in another database commits its insert before the batch is deleted, so a crash in between
+     * can leave that one batch in both places. Without backfill a non-empty table fails startup.
+     */
+    @PostConstruct
+    public void backfillLegacyTable() {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass('hazards') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(exists)
+                || !Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM hazards)", Boolean.class))) {
+            return;
+        }
+        if (!properties.isBackfill()) {
+            throw new IllegalStateException("The unsharded hazards table still has rows: " +
+                    "set hazard.sharding.backfill=true to move them into the shards, or empty it");
+        }
+        log.info("🚛 Backfilling unsharded hazards into {} shards", shardMap.shards().size());
+        long total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> backfillBatch());
+            total += moved;
+        } while (moved > 0);
+        log.info("✅ Backfilled {} hazards", total);
+    }
+
+    private int backfillBatch() {
+        List<Hazard> batch = jdbcTemplate.query("SELECT id, " + COLUMNS.substring("cell_id, ".length()) +
+                " FROM hazards ORDER BY id LIMIT " + BACKFILL_BATCH + " FOR UPDATE SKIP LOCKED", ROW_MAPPER);
+        if (!batch.isEmpty()) {
+            insertAll(batch, 500);
+            jdbcTemplate.batchUpdate("DELETE FROM hazards WHERE id = ?", batch, BACKFILL_BATCH,
+                    (ps, hazard) -> ps.setLong(1, hazard.getId()));
+        }
+        return batch.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void saveAll(List<Hazard> hazards) {
+        insertAll(hazards, 500);
+    }
+
+    @Override
+    public void insertAll(List<Hazard> hazards, int batchSize) {
+        if (hazards.isEmpty()) {
+            return;
+        }
+        Map<String, List<Hazard>> byPrefix = new LinkedHashMap<>();
+        for (Hazard hazard : hazards) {
+            String cellId = GeoCells.cellId(hazard.getLatitude(), hazard.getLongitude());
+            byPrefix.computeIfAbsent(shardMap.prefixOf(cellId), prefix -> new ArrayList<>()).add(hazard);
+        }
+        shardMap.fenced(byPrefix.keySet(), owners -> {
+            Map<HazardShardMap.Shard, List<Hazard>> byShard = new LinkedHashMap<>();
+            byPrefix.forEach((prefix, rows) ->
+                    byShard.computeIfAbsent(owners.get(prefix), shard -> new ArrayList<>()).addAll(rows));
+            byShard.forEach((shard, rows) -> shard.jdbc().batchUpdate(
+                    "INSERT INTO " + shard.table() + " (" + COLUMNS + ") " + INSERT_VALUES, rows, batchSize,
+                    ShardedHazardStore::bind));
+            log.info("Inserted {} hazards into {} shards in batches of {}", hazards.size(), byShard.size(), batchSize);
+        });
+    }
+
+    @Override
+    public List<Hazard> findWithinBounds(double minLat, double maxLat, double minLon, double maxLon, Instant since) {
+        return fanOut(shardMap.shardsFor(minLat, maxLat, minLon, maxLon), shard -> shard.jdbc().query(
+                "SELECT id, " + COLUMNS + " FROM " + shard.table() + " WHERE " + BOUNDS + " AND timestamp > ?",
+                ROW_MAPPER, minLat, maxLat, minLon, maxLon, Timestamp.from(since)));
+    }
+
+    @Override
+    public List<Hazard> findHistoricalHazards(double minLat, double maxLat, double minLon, double maxLon,
+                                              Instant start, Instant end) {
+        List<Hazard> hazards = fanOut(shardMap.shardsFor(minLat, maxLat, minLon, maxLon), shard -> shard.jdbc().query(
+                "SELECT id, " + COLUMNS + " FROM " + shard.table() + " WHERE " + BOUNDS +
+                        " AND timestamp BETWEEN ? AND ? ORDER BY timestamp DESC",
+                ROW_MAPPER, minLat, maxLat, minLon, maxLon, Timestamp.from(start), Timestamp.from(end)));
+        hazards.sort(Comparator.comparing(Hazard::getTimestamp).reversed());
+        return hazards;
+    }
+
+    @Override
+    public void deleteByTimestampBefore(Instant cutoff) {
+        fanOut(shardMap.shards(), shard -> {
+            int deleted = shard.jdbc().update("DELETE FROM " + shard.table() + " WHERE timestamp < ?", Timestamp.from(cutoff));
+            log.debug("Deleted {} hazards from shard {}", deleted, shard.id());
+            return List.of();
+        });
+    }
+
+    private List<Hazard> fanOut(Collection<HazardShardMap.Shard> shards, Function<HazardShardMap.Shard, List<Hazard>> query) {
+        if (shards.size() == 1) {
+            return new ArrayList<>(query.apply(shards.iterator().next()));
+        }
+        List<CompletableFuture<List<Hazard>>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .toList();
+        List<Hazard> merged = new ArrayList<>();
+        for (CompletableFuture<List<Hazard>> future : futures) {
+            merged.addAll(future.join());
+        }
+        return merged;
+    }
+
+    private static void bind(PreparedStatement ps, Hazard h) throws SQLException {
+        ps.setString(1, GeoCells.cellId(h.getLatitude(), h.getLongitude()));
+        ps.setDouble(2, h.getLatitude());
+        ps.setDouble(3, h.getLongitude());
+        ps.setString(4, h.getHazardType().name());
+        ps.setInt(5, h.getSeverity());
+        ps.setString(6, h.getSource());
+        ps.setTimestamp(7, Timestamp.from(h.getTimestamp()));
+        ps.setString(8, h.getDescription());
+        setNullableDouble(ps, 9, h.getTemperature());
+        setNullableDouble(ps, 10, h.getWindSpeed());
+        setNullableDouble(ps, 11, h.getPrecipitation());
+        setNullableDouble(ps, 12, h.getVisibility());
+    }
+
+    private static void setNullableDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    private static Hazard mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return Hazard.builder()
+                .id(rs.getLong("id"))
+                .latitude(rs.getDouble("latitude"))
+                .longitude(rs.getDouble("longitude"))
+                .hazardType(HazardType.valueOf(rs.getString("hazard_type")))
+                .severity(rs.getInt("severity"))
+                .source(rs.getString("source"))
+                .timestamp(rs.getTimestamp("timestamp").toInstant())
+                .description(rs.getString("description"))
+                .temperature(rs.getObject("temperature", Double.class))
+                .windSpeed(rs.getObject("wind_speed", Double.class))
+                .precipitation(rs.getObject("precipitation", Double.class))
+                .visibility(rs.getObject("visibility", Double.class))
+                .build();
+    }
+}
@@ -0,0 +1,49 @@
+package com.rahi.hazardservice.repository;
+
+import com.rahi.hazardservice.entity.Hazard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * All hazards in the one JPA-managed hazards table (sharding disabled)
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hazard.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class SingleHazardStore implements HazardStore {
+
+    private final HazardRepository hazardRepository;
+    private final HazardJdbcRepository hazardJdbcRepository;
+
+    @Override
+    public void saveAll(List<Hazard> hazards) {
+        hazardRepository.saveAll(hazards);
+    }
+
+    @Override
+    public void insertAll(List<Hazard> hazards, int batchSize) {
+        hazardJdbcRepository.insertAll(hazards, batchSize);
+    }
+
+    @Override
+    public List<Hazard> findWithinBounds(double minLat, double maxLat, double minLon, double maxLon, Instant since) {
+        return hazardRepository.findWithinBounds(minLat, maxLat, minLon, maxLon, since);
+    }
+
+    @Override
+    public List<Hazard> findHistoricalHazards(double minLat, double maxLat, double minLon, double maxLon,
+                                              Instant start, Instant end) {
+        return hazardRepository.findHistoricalHazards(minLat, maxLat, minLon, maxLon, start, end);
+    }
+
+    @Override
+    @Transactional
+    public void deleteByTimestampBefore(Instant cutoff) {
+        hazardRepository.deleteByTimestampBefore(cutoff);
+    }
+}
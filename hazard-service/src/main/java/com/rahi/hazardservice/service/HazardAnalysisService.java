@@ -4,14 +4,20 @@ import com.rahi.hazardservice.dto.*;
 import com.rahi.hazardservice.entity.Hazard;
 import com.rahi.hazardservice.entity.HazardType;
 import com.rahi.hazardservice.publisher.NotificationPublisher;
-import com.rahi.hazardservice.repository.HazardRepository;
+import com.rahi.hazardservice.repository.HazardStore;
+import com.rahi.hazardservice.util.GeoCells;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -22,35 +28,32 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class HazardAnalysisService {
 
-    private final HazardRepository hazardRepository;
+    private final HazardStore hazardStore;
     private final WeatherService weatherService;
+    private final HazardRuleEngine hazardRuleEngine;
+    private final LiveHazardCache liveHazardCache;
+    private final HazardTilePyramid hazardTilePyramid;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
     private NotificationPublisher notificationPublisher;
 
+    // Responses also cover a sliding 2-hour DB window, so versions roll over at least this often
+    @Value("${hazard.etag.time-bucket:PT1M}")
+    private Duration etagTimeBucket;
+
     @Transactional
     public HazardResponse analyzeLocation(Double lat, Double lon, Double radiusKm, Long userId) {
         log.info("Analyzing hazards for location: lat={}, lon={}, radius={}km", lat, lon, radiusKm);
 
-        // Fetch current weather
-        WeatherData weather = weatherService.fetchWeather(lat, lon);
-
-        // Compute hazards from weather data
-        List<Hazard> detectedHazards = detectHazards(lat, lon, weather);
+        // Cells covered by ingestion (or analyzed recently) are served without a weather call
+        String cellId = GeoCells.cellId(lat, lon);
+        Optional<LiveHazardCache.CellSnapshot> snapshot = liveHazardCache.fresh(cellId);
+        List<Hazard> detectedHazards = snapshot.isPresent()
+                ? snapshot.get().hazards()
+                : detectAndStore(lat, lon, cellId);
 
-        // Save to database
-        hazardRepository.saveAll(detectedHazards);
-
-        for (Hazard hazard : detectedHazards) {
-            if (hazard.getSeverity() >= 70) {
-                notificationPublisher.publishHazardAlert(
-                        // Get userId from context or request
-                        userId,
-                        hazard.getHazardType().name(),
-                        hazard.getSeverity(),
-                        Map.of("lat", hazard.getLatitude(), "lon", hazard.getLongitude()));
-            }
-        }
+        publishAlerts(detectedHazards, userId);
 
         // Get recent hazards from DB within radius
         Instant since = Instant.now().minus(2, ChronoUnit.HOURS);
@@ -70,47 +73,76 @@ public class HazardAnalysisService {
                 .build();
     }
 
-    private List<Hazard> detectHazards(Double lat, Double lon, WeatherData weather) {
-        List<Hazard> hazards = new ArrayList<>();
-        Instant now = Instant.now();
-
-        // Snow detection
-        if (weather.getWeatherCondition() != null &&
-                weather.getWeatherCondition().toLowerCase().contains("snow")) {
-            int severity = calculateSnowSeverity(weather);
-            hazards.add(buildHazard(lat, lon, HazardType.SNOW, severity, weather, now));
+    /**
+     * ETag of the response analyzeLocation would build right now, or null when the location's
+     * cell isn't fresh (the request would fetch weather, so it can't be answered from the version).
+     * Built from the tile pyramid's area version of the search box plus a time bucket, and the
+     * response encoding. Weak: the version covers the hazards, not the body byte for byte (the
+     * body carries its own timestamp and hazard details below the per-type maximum).
+     */
+    public String responseETag(Double lat, Double lon, Double radiusKm, MediaType encoding) {
+        if (liveHazardCache.fresh(GeoCells.cellId(lat, lon)).isEmpty()) {
+            return null;
         }
+        double[] box = boundingBox(lat, lon, radiusKm);
+        long areaVersion = hazardTilePyramid.areaVersion(box[0], box[1], box[2], box[3]);
+        long bucket = System.currentTimeMillis() / Math.max(1, etagTimeBucket.toMillis());
+        int params = Objects.hash(lat, lon, radiusKm);
+        return String.format("W/\"h-%x-%x-%x-%s\"", areaVersion, bucket, params, encoding.getSubtype());
+    }
 
-        // Ice detection (freezing conditions + precipitation)
-        if (weather.getTemperature() != null && weather.getTemperature() <= 0 &&
-                weather.getPrecipitation() != null && weather.getPrecipitation() > 0) {
-            int severity = calculateIceSeverity(weather);
-            hazards.add(buildHazard(lat, lon, HazardType.ICE, severity, weather, now));
+    /**
+     * Alerts analyzeLocation would have sent, for requests answered with 304 or from the gateway cache.
+     * A cell that isn't fresh (it expired since the cached response was built) is detected again
+     * the way analyzeLocation does it, so the user still gets the alerts; counted as
+     * hazard.alerts.replays{outcome=replayed|detected}.
+     */
+    @Transactional
+    public void replayAlerts(Double lat, Double lon, Long userId) {
+        String cellId = GeoCells.cellId(lat, lon);
+        Optional<LiveHazardCache.CellSnapshot> snapshot = liveHazardCache.fresh(cellId);
+        Counter.builder("hazard.alerts.replays")
+                .tag("outcome", snapshot.isPresent() ? "replayed" : "detected")
+                .register(meterRegistry)
+                .increment();
+        if (snapshot.isEmpty()) {
+            log.debug("Alert replay for user {} found no fresh cell {}, detecting", userId, cellId);
         }
+        publishAlerts(snapshot.isPresent() ? snapshot.get().hazards() : detectAndStore(lat, lon, cellId), userId);
+    }
 
-        // Low visibility
-        if (weather.getVisibility() != null && weather.getVisibility() < 1000) {
-            int severity = calculateVisibilitySeverity(weather);
-            hazards.add(buildHazard(lat, lon, HazardType.LOW_VISIBILITY, severity, weather, now));
-        }
+    // Weather call, rules, insert, and the live cache unless the weather API fell back
+    private List<Hazard> detectAndStore(Double lat, Double lon, String cellId) {
+        WeatherData weather = weatherService.fetchWeather(lat, lon);
+        List<Hazard> detectedHazards = detectHazards(lat, lon, weather);
+        hazardStore.saveAll(detectedHazards);
 
-        // High wind
-        if (weather.getWindSpeed() != null && weather.getWindSpeed() > 10) {
-            int severity = calculateWindSeverity(weather);
-            hazards.add(buildHazard(lat, lon, HazardType.WIND, severity, weather, now));
+        // Don't let API fallback defaults mask the cell until the TTL expires
+        if (!weather.isFallback()) {
+            liveHazardCache.update(cellId, detectedHazards, "openweather");
         }
+        return detectedHazards;
+    }
 
-        // Extreme cold
-        if (weather.getTemperature() != null && weather.getTemperature() < -10) {
-            int severity = calculateColdSeverity(weather);
-            hazards.add(buildHazard(lat, lon, HazardType.EXTREME_COLD, severity, weather, now));
+    private void publishAlerts(List<Hazard> hazards, Long userId) {
+        for (Hazard hazard : hazards) {
+            if (hazard.getSeverity() >= 70) {
+                notificationPublisher.publishHazardAlert(
+                        // Get userId from context or request
+                        userId,
+                        hazard.getHazardType().name(),
+                        hazard.getSeverity(),
+                        Map.of("lat", hazard.getLatitude(), "lon", hazard.getLongitude()));
+            }
         }
+    }
 
-        // Fog
-        if (weather.getWeatherCondition() != null &&
-                weather.getWeatherCondition().toLowerCase().contains("fog")) {
-            int severity = 60;
-            hazards.add(buildHazard(lat, lon, HazardType.FOG, severity, weather, now));
+    private List<Hazard> detectHazards(Double lat, Double lon, WeatherData weather) {
+        List<Hazard> hazards = new ArrayList<>();
+        Instant now = Instant.now();
+
+        for (HazardRuleEngine.Detection detection : hazardRuleEngine.evaluate(weather)) {
+            hazards.add(buildHazard(lat, lon, detection.type(), detection.severity(), weather, now));
         }
 
         return hazards;
@@ -133,63 +165,19 @@ public class HazardAnalysisService {
                 .build();
     }
 
-    private int calculateSnowSeverity(WeatherData weather) {
-        int base = 50;
-        if (weather.getPrecipitation() != null) {
-            base += Math.min(30, weather.getPrecipitation().intValue() * 10);
-        }
-        if (weather.getWindSpeed() != null && weather.getWindSpeed() > 5) {
-            base += 10; // Blowing snow
-        }
-        return Math.min(100, base);
-    }
-
-    private int calculateIceSeverity(WeatherData weather) {
-        int base = 70; // Ice is inherently dangerous
-        if (weather.getTemperature() != null && weather.getTemperature() < -5) {
-            base += 15; // Very cold = black ice risk
-        }
-        return Math.min(100, base);
-    }
-
-    private int calculateVisibilitySeverity(WeatherData weather) {
-        if (weather.getVisibility() == null)
-            return 30;
-        double vis = weather.getVisibility();
-        if (vis < 100)
-            return 95;
-        if (vis < 500)
-            return 75;
-        return 50;
-    }
-
-    private int calculateWindSeverity(WeatherData weather) {
-        double speed = weather.getWindSpeed();
-        if (speed > 20)
-            return 90;
-        if (speed > 15)
-            return 70;
-        return 50;
-    }
-
-    private int calculateColdSeverity(WeatherData weather) {
-        double temp = weather.getTemperature();
-        if (temp < -20)
-            return 95;
-        if (temp < -15)
-            return 80;
-        return 60;
+    private List<Hazard> getHazardsInRadius(Double lat, Double lon, Double radiusKm, Instant since) {
+        double[] box = boundingBox(lat, lon, radiusKm);
+        return hazardStore.findWithinBounds(box[0], box[1], box[2], box[3], since);
     }
 
-    private List<Hazard> getHazardsInRadius(Double lat, Double lon, Double radiusKm, Instant since) {
+    /**
+     * minLat, maxLat, minLon, maxLon around a point
+     */
+    private double[] boundingBox(Double lat, Double lon, Double radiusKm) {
         // Simple bounding box calculation (not perfect for large distances)
         double latDelta = radiusKm / 111.0; // ~111km per degree latitude
         double lonDelta = radiusKm / (111.0 * Math.cos(Math.toRadians(lat)));
-
-        return hazardRepository.findWithinBounds(
-                lat - latDelta, lat + latDelta,
-                lon - lonDelta, lon + lonDelta,
-                since);
+        return new double[] { lat - latDelta, lat + latDelta, lon - lonDelta, lon + lonDelta };
     }
 
     private List<HazardSummary> buildHazardSummary(List<Hazard> hazards) {
@@ -239,7 +227,7 @@ public class HazardAnalysisService {
         double latDelta = radiusKm / 111.0;
         double lonDelta = radiusKm / (111.0 * Math.cos(Math.toRadians(lat)));
 
-        return hazardRepository.findHistoricalHazards(
+        return hazardStore.findHistoricalHazards(
                 lat - latDelta, lat + latDelta,
                 lon - lonDelta, lon + lonDelta,
                 start, end);
@@ -0,0 +1,438 @@
+package com.rahi.hazardservice.service;
+
+import com.rahi.hazardservice.config.HazardRuleProperties;
+import com.rahi.hazardservice.dto.WeatherData;
+import com.rahi.hazardservice.entity.HazardType;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table-driven hazard detection.
+ * Rules from HazardRuleProperties are compiled into flat arrays once (and again on
+ * config refresh), so evaluation is plain array comparisons with no string work
+ * beyond one condition lookup per observation.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HazardRuleEngine {
+
+    private static final int METRICS = HazardRuleProperties.Metric.values().length;
+    private static final int MAX_CONDITION_CACHE = 256;
+
+    private final HazardRuleProperties properties;
+
+    private volatile CompiledRules compiled;
+
+    @PostConstruct
+    public void init() {
+        compile();
+    }
+
+    // Rules can be changed in the config repo and applied with POST /actuator/refresh
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        compile();
+    }
+
+    public void compile() {
+        List<HazardRuleProperties.Rule> rules = properties.getRules();
+        if (rules == null || rules.isEmpty()) {
+            rules = HazardRuleProperties.defaultRules();
+        }
+        this.compiled = new CompiledRules(rules);
+        log.info("Compiled {} hazard detection rules", compiled.rules.length);
+    }
+
+    /**
+     * Evaluate a single observation. Detections come back in rule order.
+     */
+    public List<Detection> evaluate(WeatherData weather) {
+        CompiledRules rules = this.compiled;
+        double[] metrics = new double[METRICS];
+        metrics[HazardRuleProperties.Metric.TEMPERATURE.ordinal()] = valueOf(weather.getTemperature());
+        metrics[HazardRuleProperties.Metric.WIND_SPEED.ordinal()] = valueOf(weather.getWindSpeed());
+        metrics[HazardRuleProperties.Metric.PRECIPITATION.ordinal()] = valueOf(weather.getPrecipitation());
+        metrics[HazardRuleProperties.Metric.VISIBILITY.ordinal()] = valueOf(weather.getVisibility());
+        int conditionMask = rules.resolveCondition(weather.getWeatherCondition());
+
+        List<Detection> detections = new ArrayList<>(2);
+        for (CompiledRule rule : rules.rules) {
+            if (!rule.fires(metrics, conditionMask)) {
+                continue;
+            }
+            detections.add(new Detection(rule.type, rule.severity(metrics)));
+        }
+        return detections;
+    }
+
+    /**
+     * Lay out observations column-wise for evaluateBatch.
+     * Condition strings are resolved against the rule table current at this call.
+     */
+    public Batch newBatch(List<WeatherData> observations) {
+        CompiledRules rules = this.compiled;
+        int n = observations.size();
+        Batch batch = new Batch(rules, n);
+        for (int i = 0; i < n; i++) {
+            WeatherData weather = observations.get(i);
+            batch.metrics[HazardRuleProperties.Metric.TEMPERATURE.ordinal()][i] = valueOf(weather.getTemperature());
+            batch.metrics[HazardRuleProperties.Metric.WIND_SPEED.ordinal()][i] = valueOf(weather.getWindSpeed());
+            batch.metrics[HazardRuleProperties.Metric.PRECIPITATION.ordinal()][i] = valueOf(weather.getPrecipitation());
+            batch.metrics[HazardRuleProperties.Metric.VISIBILITY.ordinal()][i] = valueOf(weather.getVisibility());
+            batch.conditions[i] = rules.resolveCondition(weather.getWeatherCondition());
+        }
+        return batch;
+    }
+
+    /**
+     * Evaluate a whole batch one rule at a time over the metric columns.
+     * Detections are grouped by rule, not by observation.
+     */
+    public BatchResult evaluateBatch(Batch batch) {
+        int n = batch.size;
+        BatchResult result = new BatchResult(Math.max(4, n));
+        boolean[] fire = new boolean[n];
+        int[] severity = new int[n];
+
+        for (CompiledRule rule : batch.rules.rules) {
+            rule.fireColumn(batch, fire);
+            rule.severityColumn(batch, severity);
+            for (int i = 0; i < n; i++) {
+                if (fire[i]) {
+                    result.add(i, rule.type, severity[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double valueOf(Double value) {
+        // NaN fails every comparison, which matches the old null checks
+        return value != null ? value : Double.NaN;
+    }
+
+    private static boolean matches(double x, int op, double value) {
+        return switch (op) {
+            case 0 -> x < value;
+            case 1 -> x <= value;
+            case 2 -> x > value;
+            default -> x >= value;
+        };
+    }
+
+    private static void andColumn(double[] column, int op, double value, boolean[] fire, int n) {
+        switch (op) {
+            case 0 -> { for (int i = 0; i < n; i++) fire[i] &= column[i] < value; }
+            case 1 -> { for (int i = 0; i < n; i++) fire[i] &= column[i] <= value; }
+            case 2 -> { for (int i = 0; i < n; i++) fire[i] &= column[i] > value; }
+            default -> { for (int i = 0; i < n; i++) fire[i] &= column[i] >= value; }
+        }
+    }
+
+    private static void selectColumn(double[] column, int op, double value, int replacement, int[] out, int n) {
+        switch (op) {
+            case 0 -> { for (int i = 0; i < n; i++) out[i] = column[i] < value ? replacement : out[i]; }
+            case 1 -> { for (int i = 0; i < n; i++) out[i] = column[i] <= value ? replacement : out[i]; }
+            case 2 -> { for (int i = 0; i < n; i++) out[i] = column[i] > value ? replacement : out[i]; }
+            default -> { for (int i = 0; i < n; i++) out[i] = column[i] >= value ? replacement : out[i]; }
+        }
+    }
+
+    private static void addColumn(double[] column, int op, double value, int points, int[] out, int n) {
+        switch (op) {
+            case 0 -> { for (int i = 0; i < n; i++) out[i] += column[i] < value ? points : 0; }
+            case 1 -> { for (int i = 0; i < n; i++) out[i] += column[i] <= value ? points : 0; }
+            case 2 -> { for (int i = 0; i < n; i++) out[i] += column[i] > value ? points : 0; }
+            default -> { for (int i = 0; i < n; i++) out[i] += column[i] >= value ? points : 0; }
+        }
+    }
+
+    public record Detection(HazardType type, int severity) {
+    }
+
+    /**
+     * Struct-of-arrays view of a list of observations.
+     */
+    public static final class Batch {
+        private final CompiledRules rules;
+        private final double[][] metrics;
+        private final int[] conditions;
+        private final int size;
+
+        private Batch(CompiledRules rules, int size) {
+            this.rules = rules;
+            this.metrics = new double[METRICS][size];
+            this.conditions = new int[size];
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Detections from a batch as parallel arrays; observation() indexes into the batch input.
+     */
+    public static final class BatchResult {
+        private int[] observations;
+        private HazardType[] types;
+        private int[] severities;
+        private int count;
+
+        private BatchResult(int capacity) {
+            this.observations = new int[capacity];
+            this.types = new HazardType[capacity];
+            this.severities = new int[capacity];
+        }
+
+        private void add(int observation, HazardType type, int severity) {
+            if (count == observations.length) {
+                int grown = count * 2;
+                observations = Arrays.copyOf(observations, grown);
+                types = Arrays.copyOf(types, grown);
+                severities = Arrays.copyOf(severities, grown);
+            }
+            observations[count] = observation;
+            types[count] = type;
+            severities[count] = severity;
+            count++;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public int observation(int i) {
+            return observations[i];
+        }
+
+        public HazardType type(int i) {
+            return types[i];
+        }
+
+        public int severity(int i) {
+            return severities[i];
+        }
+    }
+
+    private static final class CompiledRules {
+        private final CompiledRule[] rules;
+        private final String[] keywords;
+        private final Map<String, Integer> conditionCache = new ConcurrentHashMap<>();
+
+        private CompiledRules(List<HazardRuleProperties.Rule> definitions) {
+            List<String> keywordList = new ArrayList<>();
+            for (HazardRuleProperties.Rule definition : definitions) {
+                for (String condition : definition.getConditions()) {
+                    String keyword = condition.toLowerCase(Locale.ROOT);
+                    if (!keywordList.contains(keyword)) {
+                        keywordList.add(keyword);
+                    }
+                }
+            }
+            if (keywordList.size() > Integer.SIZE - 1) {
+                throw new IllegalStateException("Too many distinct hazard condition keywords: " + keywordList.size());
+            }
+            this.keywords = keywordList.toArray(new String[0]);
+
+            this.rules = new CompiledRule[definitions.size()];
+            for (int i = 0; i < rules.length; i++) {
+                rules[i] = new CompiledRule(definitions.get(i), keywordList);
+            }
+        }
+
+        /**
+         * Bitmask of the keywords contained in a weather condition.
+         * Providers only use a handful of condition names, so results are memoised.
+         */
+        private int resolveCondition(String condition) {
+            if (condition == null) {
+                return 0;
+            }
+            Integer cached = conditionCache.get(condition);
+            if (cached != null) {
+                return cached;
+            }
+            String lower = condition.toLowerCase(Locale.ROOT);
+            int mask = 0;
+            for (int k = 0; k < keywords.length; k++) {
+                if (lower.contains(keywords[k])) {
+                    mask |= 1 << k;
+                }
+            }
+            if (conditionCache.size() < MAX_CONDITION_CACHE) {
+                conditionCache.put(condition, mask);
+            }
+            return mask;
+        }
+    }
+
+    private static final class CompiledRule {
+        private final HazardType type;
+        private final int conditionMask; // 0 = no condition keyword required
+        private final int base;
+        private final int max;
+
+        private final int[] whenMetric;
+        private final int[] whenOp;
+        private final double[] whenValue;
+
+        private final int[] tierMetric;
+        private final int[] tierOp;
+        private final double[] tierValue;
+        private final int[] tierSeverity;
+
+        private final int[] stepMetric;
+        private final int[] stepOp;
+        private final double[] stepValue;
+        private final int[] stepPoints;
+
+        private final int[] scaleMetric;
+        private final int[] scalePerUnit;
+        private final int[] scaleCap;
+
+        private CompiledRule(HazardRuleProperties.Rule definition, List<String> keywords) {
+            if (definition.getType() == null) {
+                throw new IllegalStateException("Hazard rule without a type");
+            }
+            this.type = definition.getType();
+            this.base = definition.getBaseSeverity();
+            this.max = definition.getMaxSeverity();
+
+            int mask = 0;
+            for (String condition : definition.getConditions()) {
+                mask |= 1 << keywords.indexOf(condition.toLowerCase(Locale.ROOT));
+            }
+            this.conditionMask = mask;
+
+            List<HazardRuleProperties.Threshold> when = definition.getWhen();
+            this.whenMetric = new int[when.size()];
+            this.whenOp = new int[when.size()];
+            this.whenValue = new double[when.size()];
+            for (int i = 0; i < when.size(); i++) {
+                whenMetric[i] = when.get(i).getMetric().ordinal();
+                whenOp[i] = when.get(i).getOp().ordinal();
+                whenValue[i] = when.get(i).getValue();
+            }
+
+            List<HazardRuleProperties.Tier> tiers = definition.getTiers();
+            this.tierMetric = new int[tiers.size()];
+            this.tierOp = new int[tiers.size()];
+            this.tierValue = new double[tiers.size()];
+            this.tierSeverity = new int[tiers.size()];
+            for (int i = 0; i < tiers.size(); i++) {
+                tierMetric[i] = tiers.get(i).getMetric().ordinal();
+                tierOp[i] = tiers.get(i).getOp().ordinal();
+                tierValue[i] = tiers.get(i).getValue();
+                tierSeverity[i] = tiers.get(i).getSeverity();
+            }
+
+            List<HazardRuleProperties.Boost> steps = definition.getBoosts().stream()
+                    .filter(b -> b.getOp() != null).toList();
+            this.stepMetric = new int[steps.size()];
+            this.stepOp = new int[steps.size()];
+            this.stepValue = new double[steps.size()];
+            this.stepPoints = new int[steps.size()];
+            for (int i = 0; i < steps.size(); i++) {
+                stepMetric[i] = steps.get(i).getMetric().ordinal();
+                stepOp[i] = steps.get(i).getOp().ordinal();
+                stepValue[i] = steps.get(i).getValue();
+                stepPoints[i] = steps.get(i).getPoints();
+            }
+
+            List<HazardRuleProperties.Boost> scaled = definition.getBoosts().stream()
+                    .filter(b -> b.getOp() == null).toList();
+            this.scaleMetric = new int[scaled.size()];
+            this.scalePerUnit = new int[scaled.size()];
+            this.scaleCap = new int[scaled.size()];
+            for (int i = 0; i < scaled.size(); i++) {
+                scaleMetric[i] = scaled.get(i).getMetric().ordinal();
+                scalePerUnit[i] = scaled.get(i).getPerUnit();
+                scaleCap[i] = scaled.get(i).getCap();
+            }
+        }
+
+        private boolean fires(double[] metrics, int conditions) {
+            if (conditionMask != 0 && (conditions & conditionMask) == 0) {
+                return false;
+            }
+            for (int i = 0; i < whenMetric.length; i++) {
+                if (!matches(metrics[whenMetric[i]], whenOp[i], whenValue[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int severity(double[] metrics) {
+            int severity = base;
+            for (int i = 0; i < tierMetric.length; i++) {
+                if (matches(metrics[tierMetric[i]], tierOp[i], tierValue[i])) {
+                    severity = tierSeverity[i];
+                    break;
+                }
+            }
+            for (int i = 0; i < stepMetric.length; i++) {
+                if (matches(metrics[stepMetric[i]], stepOp[i], stepValue[i])) {
+                    severity += stepPoints[i];
+                }
+            }
+            for (int i = 0; i < scaleMetric.length; i++) {
+                // (int) NaN is 0, so a missing metric adds nothing
+                severity += Math.min(scaleCap[i], (int) metrics[scaleMetric[i]] * scalePerUnit[i]);
+            }
+            return Math.min(max, severity);
+        }
+
+        private void fireColumn(Batch batch, boolean[] fire) {
+            int n = batch.size;
+            if (conditionMask != 0) {
+                int[] conditions = batch.conditions;
+                for (int i = 0; i < n; i++) {
+                    fire[i] = (conditions[i] & conditionMask) != 0;
+                }
+            } else {
+                Arrays.fill(fire, 0, n, true);
+            }
+            for (int i = 0; i < whenMetric.length; i++) {
+                andColumn(batch.metrics[whenMetric[i]], whenOp[i], whenValue[i], fire, n);
+            }
+        }
+
+        private void severityColumn(Batch batch, int[] out) {
+            int n = batch.size;
+            Arrays.fill(out, 0, n, base);
+            // Apply tiers last-to-first so the first matching tier wins
+            for (int t = tierMetric.length - 1; t >= 0; t--) {
+                selectColumn(batch.metrics[tierMetric[t]], tierOp[t], tierValue[t], tierSeverity[t], out, n);
+            }
+            for (int s = 0; s < stepMetric.length; s++) {
+                addColumn(batch.metrics[stepMetric[s]], stepOp[s], stepValue[s], stepPoints[s], out, n);
+            }
+            for (int s = 0; s < scaleMetric.length; s++) {
+                double[] column = batch.metrics[scaleMetric[s]];
+                int perUnit = scalePerUnit[s];
+                int cap = scaleCap[s];
+                for (int i = 0; i < n; i++) {
+                    out[i] += Math.min(cap, (int) column[i] * perUnit);
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                out[i] = Math.min(max, out[i]);
+            }
+        }
+    }
+}
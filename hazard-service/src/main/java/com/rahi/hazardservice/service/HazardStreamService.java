@@ -0,0 +1,296 @@
+package com.rahi.hazardservice.service;
+
+import com.rahi.hazardservice.dto.HazardCellEvent;
+import com.rahi.hazardservice.exception.StreamCapacityException;
+import com.rahi.hazardservice.publisher.HazardEventBus;
+import com.rahi.hazardservice.util.GeoCells;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events subscriptions to a map viewport.
+ * An idle subscription is an async servlet request and a small queue, no thread;
+ * a shared sender pool drains queues only when the bus delivers a change inside
+ * the viewport. A client that lets its queue fill up is disconnected so it can't
+ * hold a sender thread or grow memory.
+ *
+ * Subscriptions are indexed by the zoom-8 tiles (~150 km) their viewport overlaps, so a
+ * change only visits the subscriptions around its cell; viewports wider than
+ * MAX_INDEX_TILES tiles are few and checked on every change. The initial snapshot goes
+ * out ahead of the buffer and doesn't count against buffer-size.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HazardStreamService {
+
+    private static final int INDEX_ZOOM = 8;
+    private static final int MAX_INDEX_TILES = 64;
+
+    private final HazardEventBus hazardEventBus;
+    private final LiveHazardCache liveHazardCache;
+
+    @Value("${hazard.stream.max-subscriptions:10000}")
+    private int maxSubscriptions;
+
+    @Value("${hazard.stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${hazard.stream.timeout:PT30M}")
+    private Duration timeout;
+
+    @Value("${hazard.stream.heartbeat:PT25S}")
+    private Duration heartbeat;
+
+    @Value("${hazard.stream.sender-threads:4}")
+    private int senderThreads;
+
+    private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscription>> byTile = new ConcurrentHashMap<>();
+    private final Set<Subscription> wide = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ids = new AtomicLong();
+    // Slots are taken before the emitter is built and given back in remove, so concurrent
+    // subscribers can't all pass the check and overshoot the cap
+    private final AtomicInteger slots = new AtomicInteger();
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), r -> {
+            Thread thread = new Thread(r, "hazard-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        hazardEventBus.subscribe(this::onCellChange);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.values().forEach(s -> s.emitter.complete());
+        senders.shutdownNow();
+    }
+
+    public SseEmitter subscribe(double minLat, double maxLat, double minLon, double maxLon) {
+        if (slots.getAndUpdate(taken -> taken < maxSubscriptions ? taken + 1 : taken) >= maxSubscriptions) {
+            throw new StreamCapacityException(maxSubscriptions);
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscription subscription = new Subscription(ids.incrementAndGet(), emitter,
+                minLat, maxLat, minLon, maxLon, new ArrayBlockingQueue<>(Math.max(1, bufferSize)),
+                tilesCovering(minLat, maxLat, minLon, maxLon));
+        subscriptions.put(subscription.id, subscription);
+        index(subscription);
+
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> {
+            remove(subscription);
+            emitter.complete();
+        });
+        emitter.onError(e -> remove(subscription));
+
+        // Current state first, changes after. Indexed before the snapshot is read so no change is
+        // missed; nothing is sent until the snapshot is in place. Empty cells are left out: a new
+        // client has nothing to clear.
+        for (LiveHazardCache.CellSnapshot snapshot : liveHazardCache.freshWithin(minLat, maxLat, minLon, maxLon)) {
+            if (!snapshot.severities().isEmpty()) {
+                subscription.snapshot.add(liveHazardCache.toEvent(snapshot));
+            }
+        }
+        subscription.ready = true;
+        scheduleDrain(subscription);
+        log.debug("Hazard stream {} opened for [{}, {}] x [{}, {}]", subscription.id, minLat, maxLat, minLon, maxLon);
+        return emitter;
+    }
+
+    public int activeSubscriptions() {
+        return subscriptions.size();
+    }
+
+    private void onCellChange(HazardCellEvent event) {
+        // A cell's quadkey starts with the quadkeys of the tiles containing it
+        Set<Subscription> nearby = byTile.get(event.getCellId().substring(0, INDEX_ZOOM));
+        if (nearby != null) {
+            nearby.forEach(subscription -> offer(subscription, event));
+        }
+        wide.forEach(subscription -> offer(subscription, event));
+    }
+
+    private void offer(Subscription subscription, HazardCellEvent event) {
+        if (subscription.contains(event.getLat(), event.getLon())) {
+            enqueue(subscription, event);
+        }
+    }
+
+    private void enqueue(Subscription subscription, HazardCellEvent event) {
+        if (!subscription.queue.offer(event)) {
+            evict(subscription, "buffer full");
+            return;
+        }
+        scheduleDrain(subscription);
+    }
+
+    // Zoom-8 quadkeys overlapping the viewport, or null if there are more than MAX_INDEX_TILES
+    private static List<String> tilesCovering(double minLat, double maxLat, double minLon, double maxLon) {
+        int minX = GeoCells.tileX(minLon, INDEX_ZOOM);
+        int maxX = GeoCells.tileX(maxLon, INDEX_ZOOM);
+        int minY = GeoCells.tileY(maxLat, INDEX_ZOOM); // tile rows count from the north
+        int maxY = GeoCells.tileY(minLat, INDEX_ZOOM);
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) > MAX_INDEX_TILES) {
+            return null;
+        }
+        List<String> tiles = new ArrayList<>();
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                tiles.add(GeoCells.quadkey(x, y, INDEX_ZOOM));
+            }
+        }
+        return tiles;
+    }
+
+    private void index(Subscription subscription) {
+        if (subscription.tiles == null) {
+            wide.add(subscription);
+            return;
+        }
+        for (String tile : subscription.tiles) {
+            byTile.computeIfAbsent(tile, t -> ConcurrentHashMap.newKeySet()).add(subscription);
+        }
+    }
+
+    private boolean remove(Subscription subscription) {
+        if (subscriptions.remove(subscription.id) == null) {
+            return false;
+        }
+        slots.decrementAndGet();
+        if (subscription.tiles == null) {
+            wide.remove(subscription);
+            return true;
+        }
+        for (String tile : subscription.tiles) {
+            byTile.computeIfPresent(tile, (t, set) -> {
+                set.remove(subscription);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${hazard.stream.heartbeat:PT25S}")
+    public void heartbeat() {
+        long idleNanos = heartbeat.toNanos();
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions.values()) {
+            if (now - subscription.lastSentNanos >= idleNanos) {
+                subscription.heartbeatDue = true;
+                scheduleDrain(subscription);
+            }
+        }
+    }
+
+    private void scheduleDrain(Subscription subscription) {
+        if (subscription.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscription));
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        if (!subscription.ready) {
+            // subscribe drains once the snapshot is in place; recheck in case that raced this
+            subscription.draining.set(false);
+            if (subscription.ready) {
+                scheduleDrain(subscription);
+            }
+            return;
+        }
+        try {
+            HazardCellEvent event;
+            while ((event = subscription.snapshot.poll()) != null || (event = subscription.queue.poll()) != null) {
+                subscription.emitter.send(SseEmitter.event()
+                        .name("hazard-cell")
+                        .data(event, MediaType.APPLICATION_JSON));
+                subscription.lastSentNanos = System.nanoTime();
+            }
+            if (subscription.heartbeatDue) {
+                subscription.heartbeatDue = false;
+                subscription.emitter.send(SseEmitter.event().comment("keep-alive"));
+                subscription.lastSentNanos = System.nanoTime();
+            }
+        } catch (Exception e) {
+            // Client went away; the emitter's error callback removes the subscription
+            evict(subscription, e.getMessage());
+            return;
+        } finally {
+            subscription.draining.set(false);
+        }
+        // Pick up anything enqueued between the last poll and releasing the flag
+        if (!subscription.queue.isEmpty()) {
+            scheduleDrain(subscription);
+        }
+    }
+
+    private void evict(Subscription subscription, String reason) {
+        if (remove(subscription)) {
+            log.info("Closing hazard stream {}: {}", subscription.id, reason);
+            subscription.snapshot.clear();
+            subscription.queue.clear();
+            subscription.emitter.complete();
+        }
+    }
+
+    private static final class Subscription {
+        private final long id;
+        private final SseEmitter emitter;
+        private final double minLat;
+        private final double maxLat;
+        private final double minLon;
+        private final double maxLon;
+        private final BlockingQueue<HazardCellEvent> queue;
+        private final List<String> tiles; // null: indexed as wide
+        private final Queue<HazardCellEvent> snapshot = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean ready;
+        private volatile boolean heartbeatDue;
+        private volatile long lastSentNanos = System.nanoTime();
+
+        private Subscription(long id, SseEmitter emitter, double minLat, double maxLat,
+                double minLon, double maxLon, BlockingQueue<HazardCellEvent> queue, List<String> tiles) {
+            this.id = id;
+            this.emitter = emitter;
+            this.minLat = minLat;
+            this.maxLat = maxLat;
+            this.minLon = minLon;
+            this.maxLon = maxLon;
+            this.queue = queue;
+            this.tiles = tiles;
+        }
+
+        private boolean contains(double lat, double lon) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+    }
+}
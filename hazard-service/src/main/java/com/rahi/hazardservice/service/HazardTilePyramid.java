@@ -0,0 +1,238 @@
+package com.rahi.hazardservice.service;
+
+import com.rahi.hazardservice.dto.HazardCellEvent;
+import com.rahi.hazardservice.dto.HazardSummary;
+import com.rahi.hazardservice.dto.HazardTile;
+import com.rahi.hazardservice.entity.HazardType;
+import com.rahi.hazardservice.publisher.HazardEventBus;
+import com.rahi.hazardservice.util.GeoCells;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Max severity per hazard type for every non-empty tile from zoom 0 down to the cell zoom.
+ * Fed by cell changes on the HazardEventBus (local and other instances, including the
+ * clearing events LiveHazardCache sends when a cell expires). A change updates
+ * its cell and walks up the parent chain, recomputing each parent from its four children
+ * and stopping at the first level whose aggregate didn't change, so a write costs at most
+ * CELL_ZOOM small steps and a read of any zoom is one map lookup.
+ *
+ * Versions are digests of content, not counters: a tile's version hashes its aggregate and its
+ * changed stamp hashes the stamps of its children down to the cells. Every instance sees the same
+ * cell changes, so versions agree across replicas and survive restarts, and the tile ETags and the
+ * area versions behind hazard response ETags built from them match whichever replica answers.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HazardTilePyramid {
+
+    private static final HazardType[] TYPES = HazardType.values();
+    private static final int MAX_ZOOM = GeoCells.CELL_ZOOM;
+    private static final int MAX_AREA_TILES = 16;
+
+    private final HazardEventBus hazardEventBus;
+
+    @Value("${hazard.tiles.cache-size:4096}")
+    private int cacheSize;
+
+    @SuppressWarnings("unchecked")
+    private final Map<Long, Tile>[] levels = new Map[MAX_ZOOM + 1];
+    private Map<String, HazardTile> tileCache;
+
+    @PostConstruct
+    public void init() {
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            levels[z] = new ConcurrentHashMap<>();
+        }
+        int capacity = Math.max(16, cacheSize);
+        tileCache = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HazardTile> eldest) {
+                return size() > capacity;
+            }
+        };
+        hazardEventBus.subscribe(this::onCellChange);
+    }
+
+    public int maxZoom() {
+        return MAX_ZOOM;
+    }
+
+    /**
+     * Current version of a tile; 0 for a tile with no hazards
+     */
+    public long version(int z, int x, int y) {
+        Tile tile = levels[z].get(key(x, y));
+        return tile == null ? 0 : tile.version();
+    }
+
+    /**
+     * Version of everything inside a bounding box: changes whenever any cell in the tiles covering
+     * it changes. Uses the finest zoom at which at most MAX_AREA_TILES tiles cover the box, so a
+     * large box may also change for cells just outside it.
+     */
+    public long areaVersion(double minLat, double maxLat, double minLon, double maxLon) {
+        int z = MAX_ZOOM;
+        while (z > 0 && tileCount(z, minLat, maxLat, minLon, maxLon) > MAX_AREA_TILES) {
+            z--;
+        }
+        int minX = GeoCells.tileX(minLon, z);
+        int maxX = GeoCells.tileX(maxLon, z);
+        int minY = GeoCells.tileY(maxLat, z);
+        int maxY = GeoCells.tileY(minLat, z);
+
+        long hash = 1125899906842597L;
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                Tile tile = levels[z].get(key(x, y));
+                hash = 31 * hash + (tile == null ? 0 : tile.changed());
+            }
+        }
+        return hash;
+    }
+
+    private static long tileCount(int z, double minLat, double maxLat, double minLon, double maxLon) {
+        long columns = GeoCells.tileX(maxLon, z) - GeoCells.tileX(minLon, z) + 1L;
+        long rows = GeoCells.tileY(minLat, z) - GeoCells.tileY(maxLat, z) + 1L;
+        return columns * rows;
+    }
+
+    public HazardTile tile(int z, int x, int y) {
+        Tile tile = levels[z].get(key(x, y));
+        long version = tile == null ? 0 : tile.version();
+        String cacheKey = z + "/" + x + "/" + y;
+
+        synchronized (tileCache) {
+            HazardTile cached = tileCache.get(cacheKey);
+            if (cached != null && cached.getVersion() == version) {
+                return cached;
+            }
+        }
+
+        HazardTile built = build(z, x, y, tile);
+        synchronized (tileCache) {
+            tileCache.put(cacheKey, built);
+        }
+        return built;
+    }
+
+    private HazardTile build(int z, int x, int y, Tile tile) {
+        List<HazardSummary> hazards = new ArrayList<>();
+        int maxSeverity = 0;
+        if (tile != null) {
+            for (int t = 0; t < TYPES.length; t++) {
+                if (tile.severities()[t] > 0) {
+                    hazards.add(HazardSummary.builder().type(TYPES[t]).severity(tile.severities()[t]).build());
+                    maxSeverity = Math.max(maxSeverity, tile.severities()[t]);
+                }
+            }
+            hazards.sort(Comparator.comparingInt(HazardSummary::getSeverity).reversed());
+        }
+        return HazardTile.builder()
+                .z(z).x(x).y(y)
+                .maxSeverity(maxSeverity)
+                .hazards(hazards)
+                .version(tile == null ? 0L : tile.version())
+                .build();
+    }
+
+    private void onCellChange(HazardCellEvent event) {
+        GeoCells.GridCell cell = GeoCells.cell(event.getCellId());
+        int[] severities = new int[TYPES.length];
+        for (HazardSummary hazard : event.getHazards()) {
+            int t = hazard.getType().ordinal();
+            severities[t] = Math.max(severities[t], hazard.getSeverity());
+        }
+        setCell(cell.x(), cell.y(), severities);
+    }
+
+    // Writers are serialized so parent recomputation always sees a consistent set of children
+    private synchronized void setCell(int x, int y, int[] severities) {
+        Tile previous = levels[MAX_ZOOM].get(key(x, y));
+        if (previous == null ? isEmpty(severities) : Arrays.equals(previous.severities(), severities)) {
+            return;
+        }
+        if (isEmpty(severities)) {
+            levels[MAX_ZOOM].remove(key(x, y));
+        } else {
+            long version = digest(severities);
+            levels[MAX_ZOOM].put(key(x, y), new Tile(severities, version, version));
+        }
+
+        // Aggregates only change up to the first unchanged level, but every ancestor gets a new
+        // changed stamp so areaVersion notices changes inside a tile whose maximum stays the same
+        for (int z = MAX_ZOOM - 1; z >= 0; z--) {
+            x >>= 1;
+            y >>= 1;
+            int[] aggregate = new int[TYPES.length];
+            long changed = 1125899906842597L;
+            Map<Long, Tile> children = levels[z + 1];
+            for (int dy = 0; dy < 2; dy++) {
+                for (int dx = 0; dx < 2; dx++) {
+                    Tile child = children.get(key(2 * x + dx, 2 * y + dy));
+                    changed = 31 * changed + (child == null ? 0 : child.changed());
+                    if (child != null) {
+                        for (int t = 0; t < aggregate.length; t++) {
+                            aggregate[t] = Math.max(aggregate[t], child.severities()[t]);
+                        }
+                    }
+                }
+            }
+
+            if (isEmpty(aggregate)) {
+                levels[z].remove(key(x, y));
+            } else {
+                levels[z].put(key(x, y), new Tile(aggregate, digest(aggregate), mix(changed)));
+            }
+        }
+    }
+
+    private static long digest(int[] severities) {
+        long hash = 1125899906842597L;
+        for (int severity : severities) {
+            hash = 31 * hash + severity;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 finalizer, so nearby inputs don't give nearby versions
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static boolean isEmpty(int[] severities) {
+        for (int severity : severities) {
+            if (severity > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Immutable aggregate; severities is indexed by HazardType ordinal and never modified after construction.
+     * version is a digest of the aggregate, changed a digest of every cell below the tile.
+     */
+    private record Tile(int[] severities, long version, long changed) {
+    }
+}
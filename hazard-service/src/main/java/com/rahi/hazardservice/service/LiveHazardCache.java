@@ -0,0 +1,238 @@
+package com.rahi.hazardservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rahi.hazardservice.dto.HazardCellEvent;
+import com.rahi.hazardservice.dto.HazardSummary;
+import com.rahi.hazardservice.entity.Hazard;
+import com.rahi.hazardservice.entity.HazardType;
+import com.rahi.hazardservice.publisher.CacheInvalidationBus;
+import com.rahi.hazardservice.publisher.HazardEventBus;
+import com.rahi.hazardservice.util.GeoCells;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latest detected hazards per cell (see GeoCells), written by regional ingestion
+ * and by on-demand analysis. A fresh entry means the cell needs no weather call.
+ *
+ * Every update is also written to Redis (hazard:live:{cell}, expiring with the TTL), and a local
+ * miss reads it from there before anyone calls the weather API, so cells ingested or analysed on
+ * one replica are fresh on all of them. Updates that change a cell's per-type max severity are
+ * published on the HazardEventBus and invalidate the cell on other instances
+ * (CacheInvalidationBus, namespace hazard-cells): they drop their older copy and pick up the new
+ * one from Redis on the next read.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LiveHazardCache {
+
+    public static final String NAMESPACE = "hazard-cells";
+
+    private static final String KEY_PREFIX = "hazard:live:";
+
+    private final HazardEventBus hazardEventBus;
+    private final CacheInvalidationBus invalidationBus;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, CellSnapshot> cells = new ConcurrentHashMap<>();
+    private final AtomicLong epochs = new AtomicLong();
+
+    @Value("${hazard.live-cache.ttl:PT15M}")
+    private Duration ttl;
+
+    // Snapshots from before a flush are kept until they expire, so expiry still clears their
+    // hazards for subscribers and tiles, but are no longer served as fresh
+    private volatile Instant flushedAt = Instant.EPOCH;
+
+    @PostConstruct
+    public void init() {
+        // Another instance wrote a newer copy of the cell: drop ours, the next read loads theirs
+        invalidationBus.subscribe(NAMESPACE, invalidation -> cells.remove(invalidation.key()),
+                () -> flushedAt = Instant.now());
+    }
+
+    public Optional<CellSnapshot> fresh(String cellId) {
+        Instant cutoff = Instant.now().minus(ttl);
+        CellSnapshot snapshot = cells.get(cellId);
+        if (snapshot != null && isFresh(snapshot, cutoff)) {
+            return Optional.of(snapshot);
+        }
+        return Optional.ofNullable(loadShared(cellId, cutoff));
+    }
+
+    public CellSnapshot update(String cellId, List<Hazard> hazards, String source) {
+        return updateAll(Map.of(cellId, hazards), source).get(0);
+    }
+
+    /**
+     * Updates many cells at once (one Redis round trip), e.g. a whole ingestion round
+     */
+    public List<CellSnapshot> updateAll(Map<String, List<Hazard>> hazardsByCell, String source) {
+        Instant now = Instant.now();
+        List<CellSnapshot> snapshots = new ArrayList<>(hazardsByCell.size());
+        hazardsByCell.forEach((cellId, hazards) -> snapshots.add(new CellSnapshot(cellId, List.copyOf(hazards),
+                maxSeverities(hazards), source, now, epochs.incrementAndGet())));
+        // Shared before other instances are told, so an invalidated instance finds the new copy
+        share(snapshots);
+
+        for (CellSnapshot snapshot : snapshots) {
+            CellSnapshot previous = cells.put(snapshot.cellId(), snapshot);
+            // A cell seen for the first time with nothing in it is not news
+            boolean changed = previous == null
+                    ? !snapshot.severities().isEmpty()
+                    : !previous.severities().equals(snapshot.severities());
+            if (changed) {
+                hazardEventBus.publish(toEvent(snapshot));
+                invalidationBus.publish(NAMESPACE, snapshot.cellId());
+            }
+        }
+        return snapshots;
+    }
+
+    private void share(List<CellSnapshot> snapshots) {
+        try {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (CellSnapshot snapshot : snapshots) {
+                values.put(KEY_PREFIX + snapshot.cellId(), objectMapper.writeValueAsString(
+                        new SharedSnapshot(snapshot.hazards(), snapshot.source(), snapshot.updatedAt())));
+            }
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ValueOperations<String, String> ops = (ValueOperations<String, String>) operations.opsForValue();
+                    values.forEach((key, value) -> ops.set(key, value, ttl));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // Other instances fetch the cells themselves until Redis is back
+            log.warn("Could not share {} hazard cells: {}", snapshots.size(), e.getMessage());
+        }
+    }
+
+    // Another instance's copy; it has already published the change, so this only keeps it locally
+    private CellSnapshot loadShared(String cellId, Instant cutoff) {
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + cellId);
+            if (value == null) {
+                return null;
+            }
+            SharedSnapshot shared = objectMapper.readValue(value, SharedSnapshot.class);
+            if (shared.updatedAt().isBefore(cutoff)) {
+                return null;
+            }
+            CellSnapshot snapshot = new CellSnapshot(cellId, List.copyOf(shared.hazards()),
+                    maxSeverities(shared.hazards()), shared.source(), shared.updatedAt(), epochs.incrementAndGet());
+            cells.merge(cellId, snapshot, (local, loaded) -> loaded.updatedAt().isAfter(local.updatedAt()) ? loaded : local);
+            return snapshot;
+        } catch (Exception e) {
+            log.debug("Could not read shared hazard cell {}: {}", cellId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Fresh cells whose center lies inside the bounding box
+     */
+    public List<CellSnapshot> freshWithin(double minLat, double maxLat, double minLon, double maxLon) {
+        Instant cutoff = Instant.now().minus(ttl);
+        List<CellSnapshot> result = new ArrayList<>();
+        for (CellSnapshot snapshot : cells.values()) {
+            if (!isFresh(snapshot, cutoff)) {
+                continue;
+            }
+            GeoCells.GridCell cell = GeoCells.cell(snapshot.cellId());
+            if (cell.lat() >= minLat && cell.lat() <= maxLat && cell.lon() >= minLon && cell.lon() <= maxLon) {
+                result.add(snapshot);
+            }
+        }
+        return result;
+    }
+
+    public HazardCellEvent toEvent(CellSnapshot snapshot) {
+        GeoCells.GridCell cell = GeoCells.cell(snapshot.cellId());
+        List<HazardSummary> hazards = new ArrayList<>(snapshot.severities().size());
+        snapshot.severities().forEach((type, severity) -> hazards.add(HazardSummary.builder()
+                .type(type)
+                .severity(severity)
+                .build()));
+        hazards.sort(Comparator.comparingInt(HazardSummary::getSeverity).reversed());
+
+        return HazardCellEvent.builder()
+                .cellId(snapshot.cellId())
+                .lat(cell.lat())
+                .lon(cell.lon())
+                .hazards(hazards)
+                .updatedAt(snapshot.updatedAt())
+                .build();
+    }
+
+    private boolean isFresh(CellSnapshot snapshot, Instant cutoff) {
+        return !snapshot.updatedAt().isBefore(cutoff) && snapshot.updatedAt().isAfter(flushedAt);
+    }
+
+    private static Map<HazardType, Integer> maxSeverities(List<Hazard> hazards) {
+        Map<HazardType, Integer> severities = new EnumMap<>(HazardType.class);
+        for (Hazard hazard : hazards) {
+            severities.merge(hazard.getHazardType(), hazard.getSeverity(), Math::max);
+        }
+        return severities;
+    }
+
+    public int size() {
+        return cells.size();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        Instant cutoff = Instant.now().minus(ttl);
+        int evicted = 0;
+        for (CellSnapshot snapshot : cells.values()) {
+            if (snapshot.updatedAt().isBefore(cutoff) && cells.remove(snapshot.cellId(), snapshot)) {
+                evicted++;
+                // Hazards nobody has confirmed within the TTL are cleared for subscribers and tiles
+                if (!snapshot.severities().isEmpty()) {
+                    hazardEventBus.publish(toEvent(new CellSnapshot(snapshot.cellId(), List.of(), Map.of(),
+                            snapshot.source(), Instant.now(), epochs.incrementAndGet())));
+                }
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} expired hazard cells", evicted);
+        }
+    }
+
+    // What is kept in Redis; severities are derived again on load
+    record SharedSnapshot(List<Hazard> hazards, String source, Instant updatedAt) {
+    }
+
+    /**
+     * Hazards detected for one cell with their max severity per type; epoch increases with every update.
+     */
+    public record CellSnapshot(String cellId, List<Hazard> hazards, Map<HazardType, Integer> severities,
+            String source, Instant updatedAt, long epoch) {
+    }
+}
@@ -5,14 +5,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rahi.hazardservice.dto.*;
 import com.rahi.hazardservice.entity.Hazard;
 import com.rahi.hazardservice.entity.Route;
-import com.rahi.hazardservice.repository.HazardRepository;
+import com.rahi.hazardservice.repository.HazardStore;
 import com.rahi.hazardservice.repository.RouteRepository;
+import com.rahi.hazardservice.util.PathGeometry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,7 +30,7 @@ import java.util.*;
 public class RouteService {
 
     private final RouteRepository routeRepository;
-    private final HazardRepository hazardRepository;
+    private final HazardStore hazardStore;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
 
@@ -41,50 +43,100 @@ public class RouteService {
     @Value("${routing.api.url:https://api.openrouteservice.org/v2/directions/foot-walking}")
     private String routingApiUrl;
 
+    // Separate simplification per use; distance is always measured on the full path
+    @Value("${routing.simplification.scoring-tolerance-meters:10}")
+    private double scoringToleranceMeters;
+
+    @Value("${routing.simplification.scoring-sample-meters:25}")
+    private double scoringSampleMeters;
+
+    @Value("${routing.simplification.storage-tolerance-meters:1}")
+    private double storageToleranceMeters;
+
+    @Value("${routing.simplification.response-pixel-tolerance:0.5}")
+    private double responsePixelTolerance;
+
     @Transactional
     public RouteResponse calculateSafeRoute(Double fromLat, Double fromLon, 
                                            Double toLat, Double toLon, 
                                            String preference, Long userId) {
+        return buildRouteResponse(resolveRoute(fromLat, fromLon, toLat, toLon, preference, userId), null);
+    }
+
+    /**
+     * The user's recent route between the points, or a newly calculated and saved one
+     */
+    @Transactional
+    public Route resolveRoute(Double fromLat, Double fromLon,
+                              Double toLat, Double toLon,
+                              String preference, Long userId) {
         log.info("Calculating safe route from ({},{}) to ({},{}) for user {}", 
                 fromLat, fromLon, toLat, toLon, userId);
         
         // Check cache first (user-specific if userId provided)
-        Instant cacheThreshold = Instant.now().minus(10, ChronoUnit.MINUTES);
-        Optional<Route> cached = Optional.empty();
-        
-        if (userId != null) {
-            cached = routeRepository.findRecentRouteForUser(
-                    userId, fromLat, fromLon, toLat, toLon, cacheThreshold);
-        }
+        Optional<Route> cached = findRecentRoute(fromLat, fromLon, toLat, toLon, userId);
         
         if (cached.isPresent()) {
             log.info("Returning cached route for user {}", userId);
-            return buildRouteResponse(cached.get());
+            return cached.get();
         }
         
         // Fetch base route
         List<LocationDto> basePath = fetchMapboxRoute(fromLon, fromLat, toLon, toLat);
+
+        // Scoring runs on evenly spaced samples of a simplified path, so its cost follows
+        // route length rather than how many points the provider returned (and so does the score:
+        // see calculateRouteRiskScore)
+        List<LocationDto> scoringPath = PathGeometry.resample(
+                PathGeometry.simplify(basePath, scoringToleranceMeters), scoringSampleMeters);
+        List<LocationDto> storedPath = PathGeometry.simplify(basePath, storageToleranceMeters);
+        log.info("Path simplified: {} points -> {} stored, {} scoring samples",
+                basePath.size(), storedPath.size(), scoringPath.size());
         
         // Get hazards along the route
         List<Hazard> routeHazards = getHazardsAlongRoute(basePath);
         
         // Calculate risk score
-        int riskScore = calculateRouteRiskScore(basePath, routeHazards);
+        int riskScore = calculateRouteRiskScore(scoringPath, routeHazards);
         
         // Identify hotspots
-        List<HazardHotspot> hotspots = identifyHotspots(basePath, routeHazards);
+        List<HazardHotspot> hotspots = identifyHotspots(scoringPath, routeHazards);
         
         // Calculate metrics
         double distance = calculateDistance(basePath);
         int duration = estimateDuration(distance, riskScore);
         
         // Build and save route WITH userId
-        Route route = saveRoute(userId, fromLat, fromLon, toLat, toLon, basePath, 
+        Route route = saveRoute(userId, fromLat, fromLon, toLat, toLon, storedPath, 
                                riskScore, distance, duration, hotspots);
         
         log.info("Route saved successfully with ID {} for user {}", route.getId(), userId);
         
-        return buildRouteResponse(route);
+        return route;
+    }
+
+    /**
+     * The user's route between the points from the last 10 minutes, which resolveRoute returns
+     * as is; always empty for anonymous users
+     */
+    public Optional<Route> findRecentRoute(Double fromLat, Double fromLon,
+                                           Double toLat, Double toLon, Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        Instant cacheThreshold = Instant.now().minus(10, ChronoUnit.MINUTES);
+        return routeRepository.findRecentRouteForUser(userId, fromLat, fromLon, toLat, toLon, cacheThreshold);
+    }
+
+    /**
+     * ETag from the stored route content and the response encoding, so it is known before the
+     * path JSON is parsed and identical routes (e.g. recalculated for anonymous users) share it
+     */
+    public String routeETag(Route route, Integer detail, MediaType encoding) {
+        long hash = Objects.hash(route.getRiskScore(), route.getDistanceMeters(), route.getDurationSeconds(), detail);
+        hash = 31 * hash + Objects.hashCode(route.getPathJson());
+        hash = 31 * hash + Objects.hashCode(route.getHazardHotspotsJson());
+        return String.format("\"r-%x-%s\"", hash, encoding.getSubtype());
     }
 
     private List<LocationDto> fetchMapboxRoute(Double fromLon, Double fromLat, 
@@ -220,13 +272,27 @@ public class RouteService {
         maxLon += buffer;
         
         Instant since = Instant.now().minus(2, ChronoUnit.HOURS);
-        List<Hazard> hazards = hazardRepository.findWithinBounds(minLat, maxLat, minLon, maxLon, since);
+        List<Hazard> hazards = hazardStore.findWithinBounds(minLat, maxLat, minLon, maxLon, since);
         
         log.info("Found {} hazards along route path", hazards.size());
         return hazards;
     }
 
-    private int calculateRouteRiskScore(List<LocationDto> path, List<Hazard> hazards) {
+    /**
+     * Average proximity-weighted severity over the points within 1 km of a hazard.
+     * Given evenly spaced samples this is a length-weighted average over the exposed part of the
+     * route. Provider vertices are not evenly spaced (dense around curves), so scores of routes
+     * stored before scoring moved to samples weighted those stretches more and can differ a lot.
+     *
+     * Error against the length-weighted score of the full-resolution path: the simplified path
+     * stays within scoring-tolerance-meters of it, so each sample's risk term moves by at most
+     * tolerance / 10 points (severities up to 100 over a 1 km falloff), and a sample stands for
+     * its whole spacing interval, adding up to spacing / 20 points. About 2 points at the defaults
+     * (10 m, 25 m), plus integer truncation. Samples either side of a tie between two nearest
+     * hazards or at the 1 km cutoff, and full paths that wiggle within the tolerance (their extra
+     * length isn't scored), can differ by more.
+     */
+    static int calculateRouteRiskScore(List<LocationDto> path, List<Hazard> hazards) {
         if (hazards.isEmpty()) {
             log.info("No hazards found, risk score: 0");
             return 0;
@@ -314,7 +380,7 @@ public class RouteService {
         return durationSeconds;
     }
 
-    private double calculateDistanceKm(Double lat1, Double lon1, Double lat2, Double lon2) {
+    private static double calculateDistanceKm(Double lat1, Double lon1, Double lat2, Double lon2) {
         // Haversine formula for distance between two points
         double R = 6371; // Earth radius in km
         double dLat = Math.toRadians(lat2 - lat1);
@@ -357,11 +423,19 @@ public class RouteService {
         }
     }
 
-    private RouteResponse buildRouteResponse(Route route) {
+    /**
+     * detail is the client's map zoom level; the path is simplified to about half a pixel
+     * at that zoom. Null returns the stored path.
+     */
+    public RouteResponse buildRouteResponse(Route route, Integer detail) {
         try {
             List<LocationDto> path = objectMapper.readValue(
                     route.getPathJson(), 
                     objectMapper.getTypeFactory().constructCollectionType(List.class, LocationDto.class));
+            if (detail != null && !path.isEmpty()) {
+                double tolerance = PathGeometry.metersPerPixel(detail, path.get(0).getLat()) * responsePixelTolerance;
+                path = PathGeometry.simplify(path, tolerance);
+            }
             
             List<HazardHotspot> hotspots = objectMapper.readValue(
                     route.getHazardHotspotsJson(),
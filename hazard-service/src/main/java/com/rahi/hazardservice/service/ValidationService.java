@@ -15,6 +15,8 @@ public class ValidationService {
     private static final double MAX_RADIUS = 100.0;
     private static final int MIN_DAYS = 1;
     private static final int MAX_DAYS = 90;
+    private static final double MAX_VIEWPORT_DEGREES = 10.0;
+    private static final int MAX_DETAIL_ZOOM = 22;
 
     public void validateLatitude(Double lat, String paramName) {
         if (lat == null) {
@@ -59,6 +61,38 @@ public class ValidationService {
         validateLongitude(lon, context + " longitude");
     }
 
+    public void validateBoundingBox(Double minLat, Double maxLat, Double minLon, Double maxLon) {
+        validateCoordinates(minLat, minLon, "South-west corner");
+        validateCoordinates(maxLat, maxLon, "North-east corner");
+
+        if (minLat > maxLat || minLon > maxLon) {
+            throw new IllegalArgumentException("Bounding box min values must not exceed max values");
+        }
+        if (maxLat - minLat > MAX_VIEWPORT_DEGREES || maxLon - minLon > MAX_VIEWPORT_DEGREES) {
+            throw new IllegalArgumentException(
+                String.format("Bounding box is too large. Maximum span is %.1f degrees", MAX_VIEWPORT_DEGREES));
+        }
+    }
+
+    public void validateDetail(Integer detail) {
+        if (detail != null && (detail < 0 || detail > MAX_DETAIL_ZOOM)) {
+            throw new IllegalArgumentException(
+                String.format("Detail must be a zoom level between 0 and %d, got: %d", MAX_DETAIL_ZOOM, detail));
+        }
+    }
+
+    public void validateTile(Integer z, Integer x, Integer y, int maxZoom) {
+        if (z == null || z < 0 || z > maxZoom) {
+            throw new IllegalArgumentException(
+                String.format("Zoom must be between 0 and %d, got: %s", maxZoom, z));
+        }
+        int tiles = 1 << z;
+        if (x == null || y == null || x < 0 || x >= tiles || y < 0 || y >= tiles) {
+            throw new IllegalArgumentException(
+                String.format("Tile x and y must be between 0 and %d at zoom %d, got: %s/%s", tiles - 1, z, x, y));
+        }
+    }
+
     public void validateRouteCoordinates(Double fromLat, Double fromLon, 
                                         Double toLat, Double toLon) {
         if (fromLat == null || fromLon == null || toLat == null || toLon == null) {
@@ -100,6 +100,7 @@ public class WeatherService {
         data.setVisibility(10000.0);
         data.setHumidity(50);
         data.setDescription("Weather data unavailable");
+        data.setFallback(true);
         return data;
     }
 
@@ -0,0 +1,118 @@
+package com.rahi.hazardservice.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Web Mercator (z/x/y) tile math and the quadkey cell ids used across the service.
+ * A cell is a tile at CELL_ZOOM (~3.5 km across at 45° latitude); its id is the tile quadkey,
+ * so every coarser tile is a prefix of the cells it contains.
+ */
+public final class GeoCells {
+
+    public static final int CELL_ZOOM = 13;
+
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private GeoCells() {
+    }
+
+    public static int tileX(double lon, int zoom) {
+        int n = 1 << zoom;
+        int x = (int) Math.floor((lon + 180.0) / 360.0 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    public static int tileY(double lat, int zoom) {
+        int n = 1 << zoom;
+        double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat));
+        double rad = Math.toRadians(clamped);
+        int y = (int) Math.floor((1 - Math.log(Math.tan(rad) + 1 / Math.cos(rad)) / Math.PI) / 2 * n);
+        return Math.max(0, Math.min(n - 1, y));
+    }
+
+    /**
+     * Longitude of the west edge of tile column x
+     */
+    public static double tileLon(int x, int zoom) {
+        return x / (double) (1 << zoom) * 360.0 - 180.0;
+    }
+
+    /**
+     * Latitude of the north edge of tile row y
+     */
+    public static double tileLat(int y, int zoom) {
+        double n = Math.PI - 2.0 * Math.PI * y / (1 << zoom);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
+    public static String quadkey(int x, int y, int zoom) {
+        StringBuilder key = new StringBuilder(zoom);
+        for (int i = zoom; i > 0; i--) {
+            int mask = 1 << (i - 1);
+            int digit = 0;
+            if ((x & mask) != 0) {
+                digit += 1;
+            }
+            if ((y & mask) != 0) {
+                digit += 2;
+            }
+            key.append((char) ('0' + digit));
+        }
+        return key.toString();
+    }
+
+    public static String cellId(double lat, double lon) {
+        return quadkey(tileX(lon, CELL_ZOOM), tileY(lat, CELL_ZOOM), CELL_ZOOM);
+    }
+
+    public static GridCell cell(int x, int y) {
+        double lat = (tileLat(y, CELL_ZOOM) + tileLat(y + 1, CELL_ZOOM)) / 2;
+        double lon = (tileLon(x, CELL_ZOOM) + tileLon(x + 1, CELL_ZOOM)) / 2;
+        return new GridCell(quadkey(x, y, CELL_ZOOM), x, y, lat, lon);
+    }
+
+    /**
+     * Inverse of cellId: the cell for a CELL_ZOOM quadkey
+     */
+    public static GridCell cell(String cellId) {
+        if (cellId.length() != CELL_ZOOM) {
+            throw new IllegalArgumentException("Not a cell id: " + cellId);
+        }
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < cellId.length(); i++) {
+            int digit = cellId.charAt(i) - '0';
+            if (digit < 0 || digit > 3) {
+                throw new IllegalArgumentException("Not a cell id: " + cellId);
+            }
+            x = (x << 1) | (digit & 1);
+            y = (y << 1) | (digit >> 1);
+        }
+        return cell(x, y);
+    }
+
+    /**
+     * All cells intersecting a bounding box, row by row from the north-west corner.
+     */
+    public static List<GridCell> cellsCovering(double minLat, double maxLat, double minLon, double maxLon) {
+        int minX = tileX(minLon, CELL_ZOOM);
+        int maxX = tileX(maxLon, CELL_ZOOM);
+        int minY = tileY(maxLat, CELL_ZOOM); // tile rows grow southwards
+        int maxY = tileY(minLat, CELL_ZOOM);
+
+        List<GridCell> cells = new ArrayList<>((maxX - minX + 1) * (maxY - minY + 1));
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                cells.add(cell(x, y));
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * A cell and its center point
+     */
+    public record GridCell(String id, int x, int y, double lat, double lon) {
+    }
+}
@@ -0,0 +1,84 @@
+package com.rahi.hazardservice.util;
+
+import com.rahi.hazardservice.dto.LocationDto;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary form of a coordinate list, used for paths in binary (CBOR/Smile) responses.
+ *
+ * Layout: varint point count, then per point the lat and lon deltas from the previous point
+ * (the first point from 0,0) in 1e-6 degrees, zigzag-encoded and written as varints.
+ * Neighbouring route points are metres apart, so most deltas take 1-2 bytes per value
+ * instead of ~20 characters of JSON. Precision is 1e-6 degrees (~0.11 m).
+ */
+public final class PackedCoordinates {
+
+    private static final double SCALE = 1e6;
+
+    private PackedCoordinates() {
+    }
+
+    public static byte[] encode(List<LocationDto> points) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4 + points.size() * 4);
+        writeVarint(out, points.size());
+        int prevLat = 0;
+        int prevLon = 0;
+        for (LocationDto point : points) {
+            int lat = (int) Math.round(point.getLat() * SCALE);
+            int lon = (int) Math.round(point.getLon() * SCALE);
+            writeVarint(out, zigzag(lat - prevLat));
+            writeVarint(out, zigzag(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return out.toByteArray();
+    }
+
+    public static List<LocationDto> decode(byte[] data) {
+        int[] pos = {0};
+        int count = readVarint(data, pos);
+        List<LocationDto> points = new ArrayList<>(count);
+        int lat = 0;
+        int lon = 0;
+        for (int i = 0; i < count; i++) {
+            lat += unzigzag(readVarint(data, pos));
+            lon += unzigzag(readVarint(data, pos));
+            points.add(LocationDto.builder().lat(lat / SCALE).lon(lon / SCALE).build());
+        }
+        return points;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (pos[0] >= data.length) {
+                throw new IllegalArgumentException("Truncated packed coordinates");
+            }
+            byte b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in packed coordinates");
+    }
+}
@@ -0,0 +1,30 @@
+package com.rahi.hazardservice.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.rahi.hazardservice.dto.LocationDto;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads a path written by PackedPathSerializer: packed bytes or a JSON array of {lat, lon}.
+ */
+public class PackedPathDeserializer extends StdDeserializer<List<LocationDto>> {
+
+    public PackedPathDeserializer() {
+        super(List.class);
+    }
+
+    @Override
+    public List<LocationDto> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_EMBEDDED_OBJECT || p.currentToken() == JsonToken.VALUE_STRING) {
+            return PackedCoordinates.decode(p.getBinaryValue());
+        }
+        JavaType type = ctxt.getTypeFactory().constructCollectionType(List.class, LocationDto.class);
+        return ctxt.readValue(p, type);
+    }
+}
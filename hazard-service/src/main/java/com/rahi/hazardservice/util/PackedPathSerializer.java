@@ -0,0 +1,30 @@
+package com.rahi.hazardservice.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.rahi.hazardservice.dto.LocationDto;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a path as PackedCoordinates bytes on binary formats (CBOR, Smile) and as the
+ * usual array of {lat, lon} objects on JSON.
+ */
+public class PackedPathSerializer extends StdSerializer<List<LocationDto>> {
+
+    @SuppressWarnings("unchecked")
+    public PackedPathSerializer() {
+        super((Class<List<LocationDto>>) (Class<?>) List.class);
+    }
+
+    @Override
+    public void serialize(List<LocationDto> path, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (gen.canWriteBinaryNatively()) {
+            gen.writeBinary(PackedCoordinates.encode(path));
+        } else {
+            provider.defaultSerializeValue(path, gen);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.rahi.hazardservice.util;
+
+import com.rahi.hazardservice.dto.LocationDto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Path simplification and resampling in metres.
+ * Points are projected onto a local equirectangular plane around the first point, which is
+ * accurate to well under a metre over the 50 km maximum route length.
+ */
+public final class PathGeometry {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double EQUATOR_METERS_PER_PIXEL_Z0 = 156_543.034; // 256 px web map tiles
+
+    private PathGeometry() {
+    }
+
+    /**
+     * Douglas-Peucker: keeps the endpoints and drops every point whose removal moves the path by
+     * less than toleranceMeters. Every point of the result is within toleranceMeters of the input
+     * path and every input point is within toleranceMeters of the result.
+     */
+    public static List<LocationDto> simplify(List<LocationDto> path, double toleranceMeters) {
+        int n = path.size();
+        if (n < 3 || toleranceMeters <= 0) {
+            return path;
+        }
+
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        project(path, xs, ys);
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        double toleranceSq = toleranceMeters * toleranceMeters;
+
+        // Explicit stack: provider paths can have thousands of points
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[] {0, n - 1});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            int first = range[0];
+            int last = range[1];
+            double maxDistSq = 0;
+            int farthest = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distSq = segmentDistanceSq(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]);
+                if (distSq > maxDistSq) {
+                    maxDistSq = distSq;
+                    farthest = i;
+                }
+            }
+            if (farthest >= 0 && maxDistSq > toleranceSq) {
+                keep[farthest] = true;
+                ranges.push(new int[] {first, farthest});
+                ranges.push(new int[] {farthest, last});
+            }
+        }
+
+        List<LocationDto> simplified = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                simplified.add(path.get(i));
+            }
+        }
+        return simplified;
+    }
+
+    /**
+     * Points every spacingMeters along the path, plus both endpoints
+     */
+    public static List<LocationDto> resample(List<LocationDto> path, double spacingMeters) {
+        int n = path.size();
+        if (n < 2 || spacingMeters <= 0) {
+            return path;
+        }
+
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        project(path, xs, ys);
+
+        List<LocationDto> samples = new ArrayList<>();
+        samples.add(path.get(0));
+        double carried = 0; // distance walked since the last sample
+        for (int i = 1; i < n; i++) {
+            double segment = Math.hypot(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+            double at = spacingMeters - carried;
+            while (at <= segment) {
+                double t = at / segment;
+                samples.add(LocationDto.builder()
+                        .lat(path.get(i - 1).getLat() + (path.get(i).getLat() - path.get(i - 1).getLat()) * t)
+                        .lon(path.get(i - 1).getLon() + (path.get(i).getLon() - path.get(i - 1).getLon()) * t)
+                        .build());
+                at += spacingMeters;
+            }
+            carried = segment - (at - spacingMeters);
+        }
+        if (carried > 0) {
+            samples.add(path.get(n - 1));
+        }
+        return samples;
+    }
+
+    /**
+     * Ground size of one screen pixel on a 256 px tile map at the given zoom and latitude
+     */
+    public static double metersPerPixel(int zoom, double lat) {
+        return EQUATOR_METERS_PER_PIXEL_Z0 * Math.cos(Math.toRadians(lat)) / (1 << zoom);
+    }
+
+    private static void project(List<LocationDto> path, double[] xs, double[] ys) {
+        double lat0 = path.get(0).getLat();
+        double lon0 = path.get(0).getLon();
+        double cosLat0 = Math.cos(Math.toRadians(lat0));
+        for (int i = 0; i < path.size(); i++) {
+            xs[i] = Math.toRadians(path.get(i).getLon() - lon0) * cosLat0 * EARTH_RADIUS_METERS;
+            ys[i] = Math.toRadians(path.get(i).getLat() - lat0) * EARTH_RADIUS_METERS;
+        }
+    }
+
+    private static double segmentDistanceSq(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,101 @@
+package com.rahi.hazardservice.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.rahi.hazardservice.dto.HazardHotspot;
+import com.rahi.hazardservice.dto.LocationDto;
+import com.rahi.hazardservice.dto.RouteResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Encode and decode CPU time of a long route per encoding, against JSON. Timings are printed,
+ * not asserted (they depend on the machine); sizes and round trips are.
+ */
+class BinaryCodecBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 300;
+    private static final int MEASURED_ROUNDS = 1000;
+
+    @Test
+    void binaryEncodingsAgainstJson() throws IOException {
+        RouteResponse route = route(2000);
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", mapper(new JsonFactory()));
+        mappers.put("cbor", mapper(new CBORFactory()));
+        mappers.put("smile", mapper(new SmileFactory()));
+
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        System.out.printf("%-6s %8s %12s %12s%n", "format", "bytes", "encode us", "decode us");
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            byte[] encoded = mapper.writeValueAsBytes(route);
+            sizes.put(entry.getKey(), encoded.length);
+
+            RouteResponse decoded = mapper.readValue(encoded, RouteResponse.class);
+            assertThat(decoded.getPath()).hasSize(route.getPath().size());
+            assertThat(decoded.getHazardHotspots()).isEqualTo(route.getHazardHotspots());
+
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                mapper.readValue(mapper.writeValueAsBytes(route), RouteResponse.class);
+            }
+            long encodeNanos = 0;
+            long decodeNanos = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long start = System.nanoTime();
+                byte[] bytes = mapper.writeValueAsBytes(route);
+                long encodedAt = System.nanoTime();
+                mapper.readValue(bytes, RouteResponse.class);
+                decodeNanos += System.nanoTime() - encodedAt;
+                encodeNanos += encodedAt - start;
+            }
+            System.out.printf("%-6s %8d %12.1f %12.1f%n", entry.getKey(), encoded.length,
+                    encodeNanos / 1000.0 / MEASURED_ROUNDS, decodeNanos / 1000.0 / MEASURED_ROUNDS);
+        }
+
+        // The packed path is what makes the binary bodies small; Jackson's binary framing alone wouldn't
+        assertThat(sizes.get("cbor")).isLessThan(sizes.get("json") / 4);
+        assertThat(sizes.get("smile")).isLessThan(sizes.get("json") / 4);
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        return new ObjectMapper(factory).findAndRegisterModules();
+    }
+
+    // A walk with ~5 m steps and a few hotspots along it, like a city route from the routing API
+    private static RouteResponse route(int points) {
+        List<LocationDto> path = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            path.add(LocationDto.builder()
+                    .lat(43.6453 + i * 0.000045 + Math.sin(i / 40.0) * 0.00002)
+                    .lon(-79.3806 - i * 0.000012)
+                    .build());
+        }
+        List<HazardHotspot> hotspots = new ArrayList<>();
+        for (int i = 0; i < points; i += 400) {
+            hotspots.add(HazardHotspot.builder()
+                    .lat(path.get(i).getLat())
+                    .lon(path.get(i).getLon())
+                    .severity(60 + i % 40)
+                    .hazardType("SNOW")
+                    .build());
+        }
+        return RouteResponse.builder()
+                .path(path)
+                .distanceMeters(points * 5.0)
+                .durationSeconds(points * 4)
+                .riskScore(42)
+                .hazardHotspots(hotspots)
+                .recommendation("Moderate risk: allow extra time on the northern half.")
+                .build();
+    }
+}
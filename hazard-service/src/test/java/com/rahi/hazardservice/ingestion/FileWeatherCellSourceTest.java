@@ -0,0 +1,92 @@
+package com.rahi.hazardservice.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rahi.hazardservice.config.IngestionProperties;
+import com.rahi.hazardservice.dto.WeatherData;
+import com.rahi.hazardservice.util.GeoCells;
+import com.rahi.hazardservice.util.GeoCells.GridCell;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileWeatherCellSourceTest {
+
+    private static final List<GridCell> CELLS = GeoCells.cellsCovering(43.64, 43.66, -79.45, -79.30);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void observationsLandInTheirCellsIndexAligned() throws Exception {
+        GridCell first = CELLS.get(0);
+        GridCell second = CELLS.get(1);
+        FileWeatherCellSource source = source(snapshot("[" +
+                observation(first.lat(), first.lon(), -4.0, "light snow") + "," +
+                observation(second.lat(), second.lon(), -1.0, "older") + "," +
+                observation(second.lat() + 0.001, second.lon() + 0.001, -2.0, "newer") + "," +
+                "{\"temperature\":-30.0}," +                          // no position: skipped
+                observation(-33.87, 151.21, 25.0, "elsewhere") + "]")); // outside the region
+
+        List<WeatherData> weather = source.fetch(CELLS);
+
+        assertThat(weather).hasSize(CELLS.size());
+        assertThat(weather.get(0).getTemperature()).isEqualTo(-4.0);
+        assertThat(weather.get(0).getWeatherCondition()).isEqualTo("Snow");
+        assertThat(weather.get(0).getHumidity()).isEqualTo(85);
+        assertThat(weather.get(1).getDescription()).isEqualTo("newer"); // last one per cell wins
+        assertThat(weather.subList(2, weather.size())).containsOnlyNulls();
+    }
+
+    @Test
+    void missingFieldsStayNull() throws Exception {
+        GridCell cell = CELLS.get(0);
+        FileWeatherCellSource source = source(snapshot(
+                "[{\"lat\":" + cell.lat() + ",\"lon\":" + cell.lon() + ",\"visibility\":800}]"));
+
+        WeatherData weather = source.fetch(CELLS).get(0);
+
+        assertThat(weather.getVisibility()).isEqualTo(800.0);
+        assertThat(weather.getTemperature()).isNull();
+        assertThat(weather.getHumidity()).isNull();
+        assertThat(weather.isFallback()).isFalse();
+    }
+
+    @Test
+    void rejectsSnapshotThatIsNotAnArray() throws Exception {
+        FileWeatherCellSource source = source(snapshot("{\"lat\":43.65,\"lon\":-79.38}"));
+
+        assertThatThrownBy(() -> source.fetch(CELLS)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void requiresConfiguredFile() {
+        FileWeatherCellSource source = source(null);
+
+        assertThatThrownBy(() -> source.fetch(CELLS)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private String snapshot(String json) throws Exception {
+        Path file = dir.resolve("weather-snapshot.json");
+        Files.writeString(file, json);
+        return "file:" + file.toAbsolutePath();
+    }
+
+    private static FileWeatherCellSource source(String snapshotFile) {
+        IngestionProperties properties = new IngestionProperties();
+        properties.setSnapshotFile(snapshotFile);
+        return new FileWeatherCellSource(properties, new DefaultResourceLoader(), new ObjectMapper());
+    }
+
+    private static String observation(double lat, double lon, double temperature, String description) {
+        return String.format("{\"lat\":%s,\"lon\":%s,\"temperature\":%s,\"weatherCondition\":\"Snow\"," +
+                "\"windSpeed\":6.0,\"precipitation\":1.5,\"visibility\":800,\"humidity\":85,\"description\":\"%s\"}",
+                lat, lon, temperature, description);
+    }
+}
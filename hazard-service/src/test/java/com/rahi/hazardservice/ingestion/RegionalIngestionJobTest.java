@@ -0,0 +1,163 @@
+package com.rahi.hazardservice.ingestion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rahi.hazardservice.config.HazardRuleProperties;
+import com.rahi.hazardservice.config.IngestionProperties;
+import com.rahi.hazardservice.dto.WeatherData;
+import com.rahi.hazardservice.entity.Hazard;
+import com.rahi.hazardservice.repository.HazardStore;
+import com.rahi.hazardservice.service.HazardRuleEngine;
+import com.rahi.hazardservice.service.LiveHazardCache;
+import com.rahi.hazardservice.util.GeoCells;
+import com.rahi.hazardservice.util.GeoCells.GridCell;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.assertj.core.groups.Tuple;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * One ingestion round offline: file snapshot, batch detection, insert and live cache update
+ */
+class RegionalIngestionJobTest {
+
+    private static final String LOCK_KEY = "hazard:ingestion:lock";
+
+    @TempDir
+    Path dir;
+
+    private final HazardStore hazardStore = mock(HazardStore.class);
+    private final LiveHazardCache liveHazardCache = mock(LiveHazardCache.class);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+
+    private final IngestionProperties properties = new IngestionProperties();
+    private HazardRuleEngine engine;
+    private List<GridCell> cells;
+    private RegionalIngestionJob job;
+
+    @BeforeEach
+    void setUp() {
+        properties.setSource("file");
+        properties.getRegion().setMinLat(43.64);
+        properties.getRegion().setMaxLat(43.66);
+        properties.getRegion().setMinLon(-79.45);
+        properties.getRegion().setMaxLon(-79.30);
+        properties.setParallelism(2);
+        properties.setBatchSize(100);
+        cells = GeoCells.cellsCovering(43.64, 43.66, -79.45, -79.30);
+
+        engine = new HazardRuleEngine(new HazardRuleProperties());
+        engine.compile();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(LOCK_KEY), anyString(), any(Duration.class))).thenReturn(true);
+
+        FileWeatherCellSource source = new FileWeatherCellSource(properties, new DefaultResourceLoader(), new ObjectMapper());
+        job = new RegionalIngestionJob(properties, List.of(source), engine, hazardStore, liveHazardCache, redisTemplate);
+        job.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void detectsInsertsAndCachesEveryCellWithData() throws Exception {
+        GridCell snowy = cells.get(0);
+        GridCell clear = cells.get(1);
+        WeatherData snow = weather(2.0, 5.1, 4.5, "Snow");
+        assertThat(engine.evaluate(weather(10.0, 1.0, 0.0, "Clear"))).isEmpty();
+        snapshot(observation(snowy, 2.0, 5.1, 4.5, "Snow") + "," + observation(clear, 10.0, 1.0, 0.0, "Clear"));
+
+        job.ingest();
+
+        ArgumentCaptor<List<Hazard>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(hazardStore).insertAll(inserted.capture(), eq(100));
+        assertThat(inserted.getValue())
+                .extracting(Hazard::getHazardType, Hazard::getSeverity)
+                .containsExactlyInAnyOrderElementsOf(engine.evaluate(snow).stream()
+                        .map(d -> Tuple.tuple(d.type(), d.severity()))
+                        .toList());
+        assertThat(inserted.getValue()).isNotEmpty().allSatisfy(hazard -> {
+            assertThat(GeoCells.cellId(hazard.getLatitude(), hazard.getLongitude())).isEqualTo(snowy.id());
+            assertThat(hazard.getSource()).isEqualTo("snapshot");
+            assertThat(hazard.getPrecipitation()).isEqualTo(4.5);
+        });
+
+        // Cells without data get no entry; data without hazards is cached as "no hazards"
+        ArgumentCaptor<Map<String, List<Hazard>>> cached = ArgumentCaptor.forClass(Map.class);
+        verify(liveHazardCache).updateAll(cached.capture(), eq("snapshot"));
+        assertThat(cached.getValue()).containsOnlyKeys(snowy.id(), clear.id());
+        assertThat(cached.getValue().get(snowy.id())).containsExactlyInAnyOrderElementsOf(inserted.getValue());
+        assertThat(cached.getValue().get(clear.id())).isEmpty();
+    }
+
+    @Test
+    void skipsRoundWhileAnotherReplicaHoldsTheLock() throws Exception {
+        snapshot(observation(cells.get(0), 2.0, 5.1, 4.5, "Snow"));
+        when(valueOperations.setIfAbsent(eq(LOCK_KEY), anyString(), any(Duration.class))).thenReturn(false);
+
+        job.ingest();
+
+        verifyNoInteractions(hazardStore, liveHazardCache);
+    }
+
+    @Test
+    void failedRoundReleasesTheLock() {
+        properties.setSnapshotFile("file:" + dir.resolve("missing.json").toAbsolutePath());
+
+        job.ingest();
+
+        verify(hazardStore, never()).insertAll(any(), anyInt());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(LOCK_KEY)), anyString());
+    }
+
+    private void snapshot(String observations) throws Exception {
+        Path file = dir.resolve("weather-snapshot.json");
+        Files.writeString(file, "[" + observations + "]");
+        properties.setSnapshotFile("file:" + file.toAbsolutePath());
+    }
+
+    private static String observation(GridCell cell, double temperature, double wind, double precipitation,
+                                      String condition) {
+        return String.format("{\"lat\":%s,\"lon\":%s,\"temperature\":%s,\"windSpeed\":%s,\"precipitation\":%s," +
+                "\"visibility\":10000,\"weatherCondition\":\"%s\"}", cell.lat(), cell.lon(), temperature, wind,
+                precipitation, condition);
+    }
+
+    private static WeatherData weather(double temperature, double wind, double precipitation, String condition) {
+        WeatherData weather = new WeatherData();
+        weather.setTemperature(temperature);
+        weather.setWindSpeed(wind);
+        weather.setPrecipitation(precipitation);
+        weather.setVisibility(10000.0);
+        weather.setWeatherCondition(condition);
+        return weather;
+    }
+}
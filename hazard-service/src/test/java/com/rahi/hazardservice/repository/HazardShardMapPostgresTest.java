@@ -0,0 +1,240 @@
+package com.rahi.hazardservice.repository;
+
+import com.rahi.hazardservice.config.ShardingProperties;
+import com.rahi.hazardservice.entity.Hazard;
+import com.rahi.hazardservice.entity.HazardType;
+import com.rahi.hazardservice.util.GeoCells;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Shard map and sharded store against a real Postgres with three shard schemas: routing by
+ * prefix, the startup backfill, and moving a prefix while writes to it keep coming.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class HazardShardMapPostgresTest {
+
+    private static final Duration MAP_REFRESH = Duration.ofMillis(200);
+    private static final Instant EPOCH = Instant.EPOCH;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+
+    private HazardShardMap shardMap;
+    private ShardedHazardStore store;
+
+    @BeforeAll
+    static void connect() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @BeforeEach
+    void resetDatabase() {
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS hazard_s" + i + " CASCADE");
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS hazard_shard_map, hazards");
+        // The unsharded table as JPA creates it
+        jdbcTemplate.execute("CREATE TABLE hazards (" +
+                "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "latitude DOUBLE PRECISION NOT NULL, " +
+                "longitude DOUBLE PRECISION NOT NULL, " +
+                "hazard_type VARCHAR(255) NOT NULL, " +
+                "severity INTEGER NOT NULL, " +
+                "source VARCHAR(255), " +
+                "timestamp TIMESTAMP(6) WITH TIME ZONE NOT NULL, " +
+                "description TEXT, " +
+                "temperature DOUBLE PRECISION, " +
+                "wind_speed DOUBLE PRECISION, " +
+                "precipitation DOUBLE PRECISION, " +
+                "visibility DOUBLE PRECISION)");
+    }
+
+    @AfterEach
+    void close() {
+        if (store != null) {
+            store.shutdown();
+        }
+        if (shardMap != null) {
+            shardMap.close();
+        }
+    }
+
+    @Test
+    void writesGoToTheOwningShardAndReadsMergeShards() {
+        start(true);
+        List<Hazard> hazards = List.of(hazard(43.65, -79.38), hazard(-33.87, 151.21), hazard(51.50, -0.12));
+
+        store.insertAll(hazards, 100);
+
+        assertThat(store.findWithinBounds(-85, 85, -180, 180, EPOCH)).hasSize(3);
+        for (Hazard hazard : hazards) {
+            String cellId = GeoCells.cellId(hazard.getLatitude(), hazard.getLongitude());
+            assertThat(count(shardMap.shardFor(cellId), cellId)).isEqualTo(1);
+        }
+        assertThat(total()).isEqualTo(3);
+    }
+
+    @Test
+    void backfillMovesUnshardedRowsIntoTheShards() {
+        legacy(43.65, -79.38);
+        legacy(43.66, -79.39);
+        legacy(-33.87, 151.21);
+
+        start(true);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM hazards", Integer.class)).isZero();
+        assertThat(total()).isEqualTo(3);
+        String toronto = GeoCells.cellId(43.65, -79.38);
+        assertThat(count(shardMap.shardFor(toronto), shardMap.prefixOf(toronto))).isEqualTo(2);
+        assertThat(store.findWithinBounds(43, 44, -80, -79, EPOCH))
+                .extracting(Hazard::getHazardType)
+                .containsOnly(HazardType.SNOW);
+    }
+
+    @Test
+    void unshardedRowsFailStartupWithoutBackfill() {
+        legacy(43.65, -79.38);
+
+        assertThatThrownBy(() -> start(false)).isInstanceOf(IllegalStateException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM hazards", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void moveSwitchesThePrefixAndDrainsTheSourceAfterTheGracePeriod() throws InterruptedException {
+        start(true);
+        List<Hazard> hazards = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            hazards.add(hazard(43.60 + i * 0.002, -79.40));
+        }
+        store.insertAll(hazards, 20);
+        String prefix = shardMap.prefixOf(GeoCells.cellId(43.65, -79.40));
+        HazardShardMap.Shard source = shardMap.shardFor(prefix);
+        HazardShardMap.Shard target = otherThan(source);
+
+        HazardShardMap.MoveResult result = shardMap.move(prefix, target.id());
+
+        assertThat(result.rows()).isEqualTo(50);
+        assertThat(shardMap.shardFor(prefix)).isEqualTo(target);
+        assertThat(count(target, prefix)).isEqualTo(50);
+        assertThat(count(source, prefix)).isEqualTo(50); // kept for instances that haven't refreshed
+        assertThat(store.findWithinBounds(43.5, 43.8, -79.5, -79.3, EPOCH)).hasSize(50);
+        assertThatThrownBy(() -> shardMap.move(prefix, source.id())).isInstanceOf(IllegalStateException.class);
+
+        Thread.sleep(MAP_REFRESH.multipliedBy(2).plusMillis(100).toMillis());
+        shardMap.refresh();
+
+        assertThat(count(source, prefix)).isZero();
+        assertThat(count(target, prefix)).isEqualTo(50);
+        assertThat(store.findWithinBounds(43.5, 43.8, -79.5, -79.3, EPOCH)).hasSize(50);
+    }
+
+    @Test
+    void writesDuringAMoveAreNotLost() throws Exception {
+        start(true);
+        store.insertAll(List.of(hazard(43.65, -79.38), hazard(43.66, -79.38)), 10);
+        String prefix = shardMap.prefixOf(GeoCells.cellId(43.65, -79.38));
+        HazardShardMap.Shard source = shardMap.shardFor(prefix);
+        HazardShardMap.Shard target = otherThan(source);
+
+        AtomicBoolean moved = new AtomicBoolean();
+        AtomicInteger written = new AtomicInteger();
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            int afterMove = 0;
+            while (afterMove < 20) {
+                store.insertAll(List.of(hazard(43.60 + (written.get() % 100) * 0.001, -79.38)), 1);
+                written.incrementAndGet();
+                if (moved.get()) {
+                    afterMove++;
+                }
+            }
+        });
+        while (written.get() < 20) {
+            Thread.sleep(5);
+        }
+        shardMap.move(prefix, target.id());
+        moved.set(true);
+        writer.get();
+
+        Thread.sleep(MAP_REFRESH.multipliedBy(2).plusMillis(100).toMillis());
+        shardMap.refresh();
+
+        assertThat(count(source, prefix)).isZero();
+        assertThat(count(target, prefix)).isEqualTo(2 + written.get());
+    }
+
+    private void start(boolean backfill) {
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+        properties.setMapRefresh(MAP_REFRESH);
+        properties.setBackfill(backfill);
+        for (int i = 0; i < 3; i++) {
+            ShardingProperties.Shard shard = new ShardingProperties.Shard();
+            shard.setId("s" + i);
+            shard.setSchema("hazard_s" + i);
+            properties.getShards().add(shard);
+        }
+        shardMap = new HazardShardMap(properties, jdbcTemplate, transactionTemplate);
+        shardMap.init();
+        store = new ShardedHazardStore(shardMap, properties, jdbcTemplate, transactionTemplate);
+        store.backfillLegacyTable();
+    }
+
+    private HazardShardMap.Shard otherThan(HazardShardMap.Shard shard) {
+        return shardMap.shards().stream().filter(other -> other != shard).findFirst().orElseThrow();
+    }
+
+    private static int count(HazardShardMap.Shard shard, String cellPrefix) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + shard.table() + " WHERE cell_id LIKE ?",
+                Integer.class, cellPrefix + "%");
+    }
+
+    private int total() {
+        return shardMap.shards().stream()
+                .mapToInt(shard -> jdbcTemplate.queryForObject("SELECT count(*) FROM " + shard.table(), Integer.class))
+                .sum();
+    }
+
+    private static void legacy(double lat, double lon) {
+        jdbcTemplate.update("INSERT INTO hazards (latitude, longitude, hazard_type, severity, source, timestamp) " +
+                "VALUES (?, ?, 'SNOW', 60, 'openweather', ?)", lat, lon, Timestamp.from(Instant.now()));
+    }
+
+    private static Hazard hazard(double lat, double lon) {
+        return Hazard.builder()
+                .latitude(lat)
+                .longitude(lon)
+                .hazardType(HazardType.SNOW)
+                .severity(60)
+                .source("test")
+                .timestamp(Instant.now())
+                .build();
+    }
+}
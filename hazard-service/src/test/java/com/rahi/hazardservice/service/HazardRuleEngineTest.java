@@ -0,0 +1,169 @@
+package com.rahi.hazardservice.service;
+
+import com.rahi.hazardservice.config.HazardRuleProperties;
+import com.rahi.hazardservice.dto.WeatherData;
+import com.rahi.hazardservice.entity.HazardType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The built-in rule table must give exactly the types and severities of the hand-written
+ * detection it replaced (legacyDetect, copied from HazardAnalysisService before the rule table).
+ * The grid straddles every threshold, tier boundary and boost edge.
+ */
+class HazardRuleEngineTest {
+
+    private static final Double[] TEMPERATURES = {null, -25.0, -20.1, -20.0, -19.9, -15.1, -15.0, -14.9,
+            -10.1, -10.0, -9.9, -5.1, -5.0, -4.9, -0.1, 0.0, 0.1, 5.0};
+    private static final Double[] WIND_SPEEDS = {null, 0.0, 4.9, 5.0, 5.1, 10.0, 10.1, 15.0, 15.1, 20.0, 20.1, 35.0};
+    private static final Double[] PRECIPITATION = {null, 0.0, 0.1, 0.9, 1.0, 1.9, 2.0, 2.9, 3.0, 4.5};
+    private static final Double[] VISIBILITIES = {null, 0.0, 99.9, 100.0, 100.1, 499.9, 500.0, 999.9, 1000.0, 10000.0};
+    private static final String[] CONDITIONS = {null, "Clear", "Snow", "light snow showers", "SNOW",
+            "Fog", "freezing fog", "Snow and fog", "Rain"};
+
+    private HazardRuleEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new HazardRuleEngine(new HazardRuleProperties()); // empty table: built-in defaults
+        engine.compile();
+    }
+
+    @Test
+    void defaultRulesMatchLegacyDetectionOverGrid() {
+        List<WeatherData> grid = grid();
+        for (WeatherData weather : grid) {
+            List<String> expected = normalize(legacyDetect(weather));
+            List<String> actual = normalize(engine.evaluate(weather));
+            assertThat(actual).as("detections for %s", weather).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void batchEvaluationMatchesLegacyDetectionOverGrid() {
+        List<WeatherData> grid = grid();
+        HazardRuleEngine.BatchResult result = engine.evaluateBatch(engine.newBatch(grid));
+
+        List<List<HazardRuleEngine.Detection>> byObservation = new ArrayList<>();
+        grid.forEach(weather -> byObservation.add(new ArrayList<>()));
+        for (int i = 0; i < result.count(); i++) {
+            byObservation.get(result.observation(i)).add(new HazardRuleEngine.Detection(result.type(i), result.severity(i)));
+        }
+        for (int i = 0; i < grid.size(); i++) {
+            assertThat(normalize(byObservation.get(i)))
+                    .as("batch detections for %s", grid.get(i))
+                    .isEqualTo(normalize(legacyDetect(grid.get(i))));
+        }
+    }
+
+    @Test
+    void boundaryExamples() {
+        // Ice needs temperature <= 0 (inclusive) and precipitation > 0 (exclusive)
+        assertThat(engine.evaluate(weather(0.0, null, 0.1, null, null)))
+                .containsExactly(new HazardRuleEngine.Detection(HazardType.ICE, 70));
+        assertThat(engine.evaluate(weather(0.0, null, 0.0, null, null))).isEmpty();
+        // Blowing snow needs wind > 5; precipitation adds 10 per whole mm, at most 30
+        assertThat(engine.evaluate(weather(2.0, 5.0, 1.9, null, "Snow")))
+                .containsExactly(new HazardRuleEngine.Detection(HazardType.SNOW, 60));
+        assertThat(engine.evaluate(weather(2.0, 5.1, 4.5, null, "Snow")))
+                .containsExactly(new HazardRuleEngine.Detection(HazardType.SNOW, 90));
+        // Visibility tiers: < 100 beats < 500
+        assertThat(engine.evaluate(weather(null, null, null, 99.9, null)))
+                .containsExactly(new HazardRuleEngine.Detection(HazardType.LOW_VISIBILITY, 95));
+        assertThat(engine.evaluate(weather(null, null, null, 100.0, null)))
+                .containsExactly(new HazardRuleEngine.Detection(HazardType.LOW_VISIBILITY, 75));
+        assertThat(engine.evaluate(weather(null, null, null, 500.0, null)))
+                .containsExactly(new HazardRuleEngine.Detection(HazardType.LOW_VISIBILITY, 50));
+    }
+
+    private static List<WeatherData> grid() {
+        List<WeatherData> grid = new ArrayList<>();
+        for (Double temperature : TEMPERATURES) {
+            for (Double wind : WIND_SPEEDS) {
+                for (Double precipitation : PRECIPITATION) {
+                    for (Double visibility : VISIBILITIES) {
+                        for (String condition : CONDITIONS) {
+                            grid.add(weather(temperature, wind, precipitation, visibility, condition));
+                        }
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+
+    private static WeatherData weather(Double temperature, Double wind, Double precipitation, Double visibility,
+                                       String condition) {
+        WeatherData weather = new WeatherData();
+        weather.setTemperature(temperature);
+        weather.setWindSpeed(wind);
+        weather.setPrecipitation(precipitation);
+        weather.setVisibility(visibility);
+        weather.setWeatherCondition(condition);
+        return weather;
+    }
+
+    private static List<String> normalize(List<HazardRuleEngine.Detection> detections) {
+        return detections.stream()
+                .sorted(Comparator.comparing((HazardRuleEngine.Detection d) -> d.type()).thenComparingInt(d -> d.severity()))
+                .map(d -> d.type() + ":" + d.severity())
+                .toList();
+    }
+
+    // Hand-written detection as it was before the rule table
+    private static List<HazardRuleEngine.Detection> legacyDetect(WeatherData weather) {
+        List<HazardRuleEngine.Detection> hazards = new ArrayList<>();
+
+        if (weather.getWeatherCondition() != null &&
+                weather.getWeatherCondition().toLowerCase().contains("snow")) {
+            int base = 50;
+            if (weather.getPrecipitation() != null) {
+                base += Math.min(30, weather.getPrecipitation().intValue() * 10);
+            }
+            if (weather.getWindSpeed() != null && weather.getWindSpeed() > 5) {
+                base += 10;
+            }
+            hazards.add(new HazardRuleEngine.Detection(HazardType.SNOW, Math.min(100, base)));
+        }
+
+        if (weather.getTemperature() != null && weather.getTemperature() <= 0 &&
+                weather.getPrecipitation() != null && weather.getPrecipitation() > 0) {
+            int base = 70;
+            if (weather.getTemperature() < -5) {
+                base += 15;
+            }
+            hazards.add(new HazardRuleEngine.Detection(HazardType.ICE, Math.min(100, base)));
+        }
+
+        if (weather.getVisibility() != null && weather.getVisibility() < 1000) {
+            double vis = weather.getVisibility();
+            int severity = vis < 100 ? 95 : vis < 500 ? 75 : 50;
+            hazards.add(new HazardRuleEngine.Detection(HazardType.LOW_VISIBILITY, severity));
+        }
+
+        if (weather.getWindSpeed() != null && weather.getWindSpeed() > 10) {
+            double speed = weather.getWindSpeed();
+            int severity = speed > 20 ? 90 : speed > 15 ? 70 : 50;
+            hazards.add(new HazardRuleEngine.Detection(HazardType.WIND, severity));
+        }
+
+        if (weather.getTemperature() != null && weather.getTemperature() < -10) {
+            double temp = weather.getTemperature();
+            int severity = temp < -20 ? 95 : temp < -15 ? 80 : 60;
+            hazards.add(new HazardRuleEngine.Detection(HazardType.EXTREME_COLD, severity));
+        }
+
+        if (weather.getWeatherCondition() != null &&
+                weather.getWeatherCondition().toLowerCase().contains("fog")) {
+            hazards.add(new HazardRuleEngine.Detection(HazardType.FOG, 60));
+        }
+
+        return hazards;
+    }
+}
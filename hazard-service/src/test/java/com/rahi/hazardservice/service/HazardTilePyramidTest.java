@@ -0,0 +1,113 @@
+package com.rahi.hazardservice.service;
+
+import com.rahi.hazardservice.dto.HazardCellEvent;
+import com.rahi.hazardservice.dto.HazardSummary;
+import com.rahi.hazardservice.entity.HazardType;
+import com.rahi.hazardservice.publisher.HazardEventBus;
+import com.rahi.hazardservice.util.GeoCells;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tile and area versions are content digests, so two replicas fed the same cells agree on them
+ */
+class HazardTilePyramidTest {
+
+    private static final String UNION = GeoCells.cellId(43.6453, -79.3806);
+    private static final String COLLEGE = GeoCells.cellId(43.6611, -79.3831);
+
+    @Test
+    void replicasAgreeWhateverTheOrderOfChanges() {
+        Replica first = new Replica();
+        first.change(UNION, HazardType.SNOW, 80);
+        first.change(COLLEGE, HazardType.ICE, 70);
+
+        // Started later and saw an extra change that has since cleared
+        Replica second = new Replica();
+        second.change(COLLEGE, HazardType.ICE, 90);
+        second.change(UNION, HazardType.SNOW, 80);
+        second.change(COLLEGE, HazardType.ICE, 70);
+
+        for (int z = 0; z <= GeoCells.CELL_ZOOM; z++) {
+            int x = GeoCells.tileX(-79.38, z);
+            int y = GeoCells.tileY(43.65, z);
+            assertThat(second.pyramid.version(z, x, y)).as("zoom %d", z).isEqualTo(first.pyramid.version(z, x, y));
+        }
+        assertThat(second.pyramid.areaVersion(43.64, 43.67, -79.39, -79.37))
+                .isEqualTo(first.pyramid.areaVersion(43.64, 43.67, -79.39, -79.37));
+    }
+
+    @Test
+    void changeBelowAnUnchangedMaximumMovesTheAreaVersionOnly() {
+        Replica replica = new Replica();
+        replica.change(UNION, HazardType.SNOW, 80);
+        replica.change(COLLEGE, HazardType.SNOW, 40);
+        int x = GeoCells.tileX(-79.38, 8);
+        int y = GeoCells.tileY(43.65, 8);
+        long tileVersion = replica.pyramid.version(8, x, y);
+        long areaVersion = replica.pyramid.areaVersion(43.60, 43.70, -79.45, -79.30);
+
+        replica.change(COLLEGE, HazardType.SNOW, 60);
+
+        assertThat(replica.pyramid.version(8, x, y)).isEqualTo(tileVersion);
+        assertThat(replica.pyramid.areaVersion(43.60, 43.70, -79.45, -79.30)).isNotEqualTo(areaVersion);
+
+        replica.change(COLLEGE, HazardType.SNOW, 40);
+
+        assertThat(replica.pyramid.areaVersion(43.60, 43.70, -79.45, -79.30)).isEqualTo(areaVersion);
+    }
+
+    @Test
+    void clearedCellsLeaveNoTiles() {
+        Replica replica = new Replica();
+        replica.change(UNION, HazardType.SNOW, 80);
+
+        replica.clear(UNION);
+
+        assertThat(replica.pyramid.version(0, 0, 0)).isZero();
+        assertThat(replica.pyramid.tile(0, 0, 0).getMaxSeverity()).isZero();
+    }
+
+    private static final class Replica {
+
+        private final HazardTilePyramid pyramid;
+        private final Consumer<HazardCellEvent> events;
+
+        @SuppressWarnings("unchecked")
+        Replica() {
+            HazardEventBus bus = mock(HazardEventBus.class);
+            pyramid = new HazardTilePyramid(bus);
+            pyramid.init();
+            ArgumentCaptor<Consumer<HazardCellEvent>> listener = ArgumentCaptor.forClass(Consumer.class);
+            verify(bus).subscribe(listener.capture());
+            events = listener.getValue();
+        }
+
+        void change(String cellId, HazardType type, int severity) {
+            publish(cellId, List.of(HazardSummary.builder().type(type).severity(severity).build()));
+        }
+
+        void clear(String cellId) {
+            publish(cellId, List.of());
+        }
+
+        private void publish(String cellId, List<HazardSummary> hazards) {
+            GeoCells.GridCell cell = GeoCells.cell(cellId);
+            events.accept(HazardCellEvent.builder()
+                    .cellId(cellId)
+                    .lat(cell.lat())
+                    .lon(cell.lon())
+                    .hazards(hazards)
+                    .updatedAt(Instant.now())
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.rahi.hazardservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rahi.hazardservice.entity.Hazard;
+import com.rahi.hazardservice.entity.HazardType;
+import com.rahi.hazardservice.publisher.CacheInvalidationBus;
+import com.rahi.hazardservice.publisher.HazardEventBus;
+import com.rahi.hazardservice.util.GeoCells;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two instances sharing cell snapshots through a map standing in for Redis
+ */
+class LiveHazardCacheTest {
+
+    private static final String CELL = GeoCells.cellId(43.65, -79.38);
+
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final HazardEventBus ingestingEvents = mock(HazardEventBus.class);
+    private final CacheInvalidationBus ingestingInvalidations = mock(CacheInvalidationBus.class);
+    private final HazardEventBus otherEvents = mock(HazardEventBus.class);
+    private final CacheInvalidationBus otherInvalidations = mock(CacheInvalidationBus.class);
+
+    private LiveHazardCache ingesting;
+    private LiveHazardCache other;
+
+    @BeforeEach
+    void setUp() {
+        ingesting = cache(ingestingEvents, ingestingInvalidations, sharedRedis(), Duration.ofMinutes(15));
+        other = cache(otherEvents, otherInvalidations, sharedRedis(), Duration.ofMinutes(15));
+    }
+
+    @Test
+    void cellsUpdatedOnOneInstanceAreFreshOnAnother() {
+        ingesting.updateAll(Map.of(CELL, List.of(hazard(HazardType.SNOW, 80))), "snapshot");
+
+        LiveHazardCache.CellSnapshot snapshot = other.fresh(CELL).orElseThrow();
+
+        assertThat(snapshot.source()).isEqualTo("snapshot");
+        assertThat(snapshot.severities()).containsExactly(Map.entry(HazardType.SNOW, 80));
+        assertThat(snapshot.hazards()).extracting(Hazard::getDescription).containsExactly("heavy snow");
+        // The writer already published the change; a reader only keeps a copy
+        verify(otherEvents, never()).publish(any());
+        assertThat(other.size()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidatedCopyIsReplacedFromRedis() {
+        ingesting.update(CELL, List.of(hazard(HazardType.SNOW, 60)), "snapshot");
+        assertThat(other.fresh(CELL).orElseThrow().severities()).containsEntry(HazardType.SNOW, 60);
+
+        ingesting.update(CELL, List.of(hazard(HazardType.SNOW, 90)), "snapshot");
+        invalidate(other, otherInvalidations, CELL);
+
+        assertThat(other.fresh(CELL).orElseThrow().severities()).containsEntry(HazardType.SNOW, 90);
+    }
+
+    @Test
+    void onlyChangedSeveritiesArePublished() {
+        ingesting.update(CELL, List.of(hazard(HazardType.SNOW, 80)), "snapshot");
+        ingesting.update(CELL, List.of(hazard(HazardType.SNOW, 80)), "snapshot");
+        ingesting.update("0302231113300", List.of(), "snapshot"); // new and empty: not news
+
+        verify(ingestingEvents, times(1)).publish(any());
+        verify(ingestingInvalidations, times(1)).publish(eq(LiveHazardCache.NAMESPACE), eq(CELL));
+    }
+
+    @Test
+    void expiredSharedCopyIsNotFresh() throws InterruptedException {
+        ingesting.update(CELL, List.of(hazard(HazardType.ICE, 70)), "openweather");
+        LiveHazardCache shortLived = cache(mock(HazardEventBus.class), mock(CacheInvalidationBus.class),
+                sharedRedis(), Duration.ofMillis(1));
+        Thread.sleep(10);
+
+        assertThat(shortLived.fresh(CELL)).isEmpty();
+    }
+
+    @Test
+    void worksLocallyWithoutRedis() {
+        @SuppressWarnings("unchecked")
+        RedisTemplate<String, String> down = mock(RedisTemplate.class);
+        when(down.executePipelined(any(SessionCallback.class))).thenThrow(new RedisConnectionFailureException("down"));
+        when(down.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+        LiveHazardCache alone = cache(mock(HazardEventBus.class), mock(CacheInvalidationBus.class), down,
+                Duration.ofMinutes(15));
+
+        alone.update(CELL, List.of(hazard(HazardType.SNOW, 80)), "openweather");
+
+        assertThat(alone.fresh(CELL)).isPresent();
+        assertThat(alone.fresh("0302231113300")).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void invalidate(LiveHazardCache cache, CacheInvalidationBus invalidations, String cellId) {
+        ArgumentCaptor<Consumer<CacheInvalidationBus.Invalidation>> handler = ArgumentCaptor.forClass(Consumer.class);
+        cache.init();
+        verify(invalidations).subscribe(eq(LiveHazardCache.NAMESPACE), handler.capture(), any());
+        handler.getValue().accept(new CacheInvalidationBus.Invalidation(LiveHazardCache.NAMESPACE, cellId, 1,
+                System.currentTimeMillis()));
+    }
+
+    private LiveHazardCache cache(HazardEventBus events, CacheInvalidationBus invalidations,
+                                  RedisTemplate<String, String> redisTemplate, Duration ttl) {
+        LiveHazardCache cache = new LiveHazardCache(events, invalidations, redisTemplate, objectMapper);
+        ReflectionTestUtils.setField(cache, "ttl", ttl);
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisTemplate<String, String> sharedRedis() {
+        RedisTemplate<String, String> template = mock(RedisTemplate.class);
+        ValueOperations<String, String> operations = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(operations);
+        when(operations.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(operations).set(anyString(), anyString(), any(Duration.class));
+        when(template.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<?>>getArgument(0).execute(template);
+            return List.of();
+        });
+        return template;
+    }
+
+    private static Hazard hazard(HazardType type, int severity) {
+        return Hazard.builder()
+                .latitude(43.65)
+                .longitude(-79.38)
+                .hazardType(type)
+                .severity(severity)
+                .source("snapshot")
+                .timestamp(Instant.now())
+                .description("heavy snow")
+                .build();
+    }
+}
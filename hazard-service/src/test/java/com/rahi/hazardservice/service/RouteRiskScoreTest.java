@@ -0,0 +1,106 @@
+package com.rahi.hazardservice.service;
+
+import com.rahi.hazardservice.dto.LocationDto;
+import com.rahi.hazardservice.entity.Hazard;
+import com.rahi.hazardservice.entity.HazardType;
+import com.rahi.hazardservice.util.PathGeometry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Risk scores of the sampled, simplified path against the full-resolution path, on a walking
+ * route up Yonge Street (Union Station to College) with provider-like uneven vertex spacing.
+ */
+class RouteRiskScoreTest {
+
+    private static final double TOLERANCE_METERS = 10;
+    private static final double SAMPLE_METERS = 25;
+
+    // Street corners along the route
+    private static final double[][] CORNERS = {
+            {43.6453, -79.3806}, {43.6468, -79.3770}, {43.6489, -79.3779},
+            {43.6525, -79.3794}, {43.6561, -79.3803}, {43.6611, -79.3831}};
+
+    // Vertex spacing per leg: the provider is dense on the first (curving) leg
+    private static final double[] STEP_METERS = {1, 8, 8, 8, 8};
+
+    private static final List<List<Hazard>> SCENARIOS = List.of(
+            List.of(hazard(43.6500, -79.3770, 80), hazard(43.6580, -79.3830, 60), hazard(43.6455, -79.3790, 95)),
+            List.of(hazard(43.6470, -79.3760, 90), hazard(43.6600, -79.3900, 70)));
+
+    @Test
+    void sampledScoreStaysWithinBoundOfFullPath() {
+        List<LocationDto> full = providerPath();
+        List<LocationDto> scoring = PathGeometry.resample(PathGeometry.simplify(full, TOLERANCE_METERS), SAMPLE_METERS);
+
+        // Length-weighted score of the full path: samples every metre
+        List<LocationDto> reference = PathGeometry.resample(full, 1);
+        double bound = TOLERANCE_METERS / 10 + SAMPLE_METERS / 20 + 1; // + integer truncation
+
+        assertThat(scoring.size()).isLessThan(full.size() / 5);
+        for (List<Hazard> hazards : SCENARIOS) {
+            int expected = RouteService.calculateRouteRiskScore(reference, hazards);
+            int actual = RouteService.calculateRouteRiskScore(scoring, hazards);
+            assertThat(expected).isPositive();
+            assertThat((double) Math.abs(actual - expected)).isLessThanOrEqualTo(bound);
+        }
+    }
+
+    @Test
+    void vertexWeightedScoreOverweightsDenseStretches() {
+        // The metric before sampling: one term per provider vertex
+        List<LocationDto> full = providerPath();
+        List<LocationDto> reference = PathGeometry.resample(full, 1);
+
+        for (List<Hazard> hazards : SCENARIOS) {
+            int lengthWeighted = RouteService.calculateRouteRiskScore(reference, hazards);
+            int vertexWeighted = RouteService.calculateRouteRiskScore(full, hazards);
+            assertThat(vertexWeighted - lengthWeighted).isGreaterThan(5);
+        }
+    }
+
+    @Test
+    void noHazardsScoresZero() {
+        assertThat(RouteService.calculateRouteRiskScore(providerPath(), List.of())).isZero();
+    }
+
+    // Legs interpolated at STEP_METERS with a little sideways noise, as map-matched geometry has
+    private static List<LocationDto> providerPath() {
+        List<LocationDto> path = new ArrayList<>();
+        int k = 0;
+        for (int leg = 0; leg < CORNERS.length - 1; leg++) {
+            double[] a = CORNERS[leg];
+            double[] b = CORNERS[leg + 1];
+            double metersPerDegLat = Math.toRadians(6_371_000);
+            double metersPerDegLon = metersPerDegLat * Math.cos(Math.toRadians(a[0]));
+            double dy = (b[0] - a[0]) * metersPerDegLat;
+            double dx = (b[1] - a[1]) * metersPerDegLon;
+            double length = Math.hypot(dx, dy);
+            int steps = Math.max(1, (int) (length / STEP_METERS[leg]));
+            for (int i = 0; i < steps; i++) {
+                double t = (double) i / steps;
+                double offset = 0.3 * Math.sin(k++ * 1.7);
+                path.add(LocationDto.builder()
+                        .lat(a[0] + (b[0] - a[0]) * t + dx / length * offset / metersPerDegLat)
+                        .lon(a[1] + (b[1] - a[1]) * t - dy / length * offset / metersPerDegLon)
+                        .build());
+            }
+        }
+        double[] last = CORNERS[CORNERS.length - 1];
+        path.add(LocationDto.builder().lat(last[0]).lon(last[1]).build());
+        return path;
+    }
+
+    private static Hazard hazard(double lat, double lon, int severity) {
+        return Hazard.builder()
+                .latitude(lat)
+                .longitude(lon)
+                .hazardType(HazardType.SNOW)
+                .severity(severity)
+                .build();
+    }
+}
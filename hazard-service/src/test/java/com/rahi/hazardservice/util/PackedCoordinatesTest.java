@@ -0,0 +1,68 @@
+package com.rahi.hazardservice.util;
+
+import com.rahi.hazardservice.dto.LocationDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class PackedCoordinatesTest {
+
+    @Test
+    void roundTripsWithinPrecision() {
+        List<LocationDto> path = List.of(
+                point(43.653226, -79.383184),
+                point(43.6532261, -79.3831849), // below 1e-6: rounds
+                point(-89.999999, 179.999999),
+                point(90.0, -180.0),            // largest possible delta
+                point(0.0, 0.0));
+
+        List<LocationDto> decoded = PackedCoordinates.decode(PackedCoordinates.encode(path));
+
+        assertThat(decoded).hasSize(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            assertThat(decoded.get(i).getLat()).isCloseTo(path.get(i).getLat(), within(0.5e-6));
+            assertThat(decoded.get(i).getLon()).isCloseTo(path.get(i).getLon(), within(0.5e-6));
+        }
+    }
+
+    @Test
+    void emptyPathIsOneByte() {
+        byte[] packed = PackedCoordinates.encode(List.of());
+
+        assertThat(packed).hasSize(1);
+        assertThat(PackedCoordinates.decode(packed)).isEmpty();
+    }
+
+    @Test
+    void nearbyPointsTakeOneBytePerValue() {
+        // ~5 m steps: deltas of 50 and 60 micro-degrees zigzag below 128
+        List<LocationDto> path = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            path.add(point(43.65 + i * 0.00005, -79.38 + i * 0.00006));
+        }
+
+        byte[] packed = PackedCoordinates.encode(path);
+
+        // count (2) + first point from 0,0 (4 + 4) + one byte per value after it
+        assertThat(packed).hasSize(2 + 8 + 999 * 2);
+        assertThat(PackedCoordinates.decode(packed)).hasSize(1000);
+    }
+
+    @Test
+    void truncatedDataIsRejected() {
+        byte[] packed = PackedCoordinates.encode(List.of(point(43.65, -79.38), point(43.66, -79.37)));
+
+        assertThatThrownBy(() -> PackedCoordinates.decode(Arrays.copyOf(packed, packed.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static LocationDto point(double lat, double lon) {
+        return LocationDto.builder().lat(lat).lon(lon).build();
+    }
+}
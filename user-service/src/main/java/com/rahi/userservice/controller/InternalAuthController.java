@@ -11,11 +11,16 @@ import com.rahi.userservice.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * INTERNAL AUTH CONTROLLER
@@ -34,14 +39,22 @@ public class InternalAuthController {
     /**
      * Called by Gateway to create new user
      * Returns user data WITHOUT JWT token
+     * Hashing runs on the bcrypt pool; the request thread is released meanwhile
      */
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest req) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@Valid @RequestBody RegisterRequest req) {
         log.info("📝 Internal registration request for: {}", req.getEmail());
         
+        CompletableFuture<User> registration;
         try {
-            User user = userService.register(req);
-            
+            registration = userService.register(req);
+        } catch (IllegalArgumentException e) {
+            log.warn("⚠️ Registration failed: {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage())));
+        }
+
+        return registration.<ResponseEntity<?>>thenApply(user -> {
             UserAuthResponse response = UserAuthResponse.builder()
                     .userId(user.getId())
                     .email(user.getEmail())
@@ -50,29 +63,19 @@ public class InternalAuthController {
             
             log.info("✅ User registered: {} (ID: {})", user.getEmail(), user.getId());
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
-            
-        } catch (IllegalArgumentException e) {
-            log.warn("⚠️ Registration failed: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            log.error("❌ Registration error: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Registration failed"));
-        }
+        }).exceptionally(ex -> failure("Registration", ex));
     }
 
     /**
      * Called by Gateway to validate credentials
      * Returns user data WITHOUT JWT token
+     * Verification runs on the bcrypt pool; the request thread is released meanwhile
      */
     @PostMapping("/validate")
-    public ResponseEntity<?> validateCredentials(@Valid @RequestBody AuthRequest req) {
+    public CompletableFuture<ResponseEntity<?>> validateCredentials(@Valid @RequestBody AuthRequest req) {
         log.info("🔐 Internal credential validation for: {}", req.getEmail());
         
-        try {
-            User user = userService.authenticate(req.getEmail(), req.getPassword());
-            
+        return userService.authenticate(req.getEmail(), req.getPassword()).<ResponseEntity<?>>thenApply(user -> {
             if (user == null) {
                 log.warn("⚠️ Invalid credentials for: {}", req.getEmail());
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -87,12 +90,34 @@ public class InternalAuthController {
             
             log.info("✅ Credentials validated for: {} (ID: {})", user.getEmail(), user.getId());
             return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            log.error("❌ Validation error: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Validation failed"));
+        }).exceptionally(ex -> failure("Validation", ex));
+    }
+
+    private ResponseEntity<?> failure(String operation, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+
+        if (cause instanceof RejectedExecutionException) {
+            // Hashing or registration pool saturated: shed load fast, the gateway/client retries later
+            log.warn("⚠️ {} rejected: worker queue is full", operation);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Authentication is busy, please retry"));
         }
+        if (cause instanceof IllegalArgumentException) {
+            // Email registered while the password was being hashed
+            log.warn("⚠️ {} failed: {}", operation, cause.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", cause.getMessage()));
+        }
+        if (cause instanceof DataIntegrityViolationException) {
+            // Lost a race with a concurrent registration of the same email
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Email already registered"));
+        }
+
+        log.error("❌ {} error: {}", operation, cause.getMessage(), cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", operation + " failed"));
     }
 
     /**
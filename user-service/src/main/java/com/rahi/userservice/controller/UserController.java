@@ -42,27 +42,16 @@ public class UserController {
         }
 
         try {
-            User user;
+            UserDto dto;
 
             if (userId != null) {
-
-user = userService.findById(Long.parseLong(userId))
-.orElseThrow(() -> new RuntimeException("User not found"));
-
+                dto = userService.findProfileById(Long.parseLong(userId))
+                        .orElseThrow(() -> new RuntimeException("User not found"));
             } else {
-
-                       user = userService.findByEmail(email) .orElseThrow(() -> new RuntimeException("User not found"));
-
+                dto = userService.findProfileByEmail(email)
+                        .orElseThrow(() -> new RuntimeException("User not found"));
             }
 
-            UserDto dto = UserDto.builder()
-                    .id(user.getId())
-                    .email(user.getEmail())
-                    .name(user.getName())
-                    .preferences(user.getPreferences())
-                    .createdAt(user.getCreatedAt())
-                    .build();
-
             return ResponseEntity.ok(dto);
 
         } catch (Exception e) {
@@ -80,17 +69,8 @@ user = userService.findById(Long.parseLong(userId))
         log.info("📋 Get user by ID: {}", id);
 
         try {
-         
-User user = userService.findById(id)
-.orElseThrow(() -> new RuntimeException("User not found"));
-
-            UserDto dto = UserDto.builder()
-                    .id(user.getId())
-                    .email(user.getEmail())
-                    .name(user.getName())
-                    .preferences(user.getPreferences())
-                    .createdAt(user.getCreatedAt())
-                    .build();
+            UserDto dto = userService.findProfileById(id)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
 
             return ResponseEntity.ok(dto);
 
@@ -0,0 +1,108 @@
+package com.rahi.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt bulkhead: hashing and verification run on a CPU-sized pool with a bounded queue,
+ * never on Tomcat threads. When the queue is full the call fails immediately with
+ * RejectedExecutionException, so a login storm gets fast 503s instead of starving every
+ * other endpoint of request threads.
+ *
+ * Metrics: auth.hashing.queue (wait before a thread picks the work up), auth.hashing.duration
+ * (the BCrypt work itself), both tagged op=encode|verify, and auth.hashing.rejected.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.hashing.threads:0}")
+    private int threads; // 0 = number of CPUs
+
+    @Value("${auth.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread thread = new Thread(r, "bcrypt-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        meterRegistry.gauge("auth.hashing.queue.size", executor, e -> e.getQueue().size());
+        rejected = Counter.builder("auth.hashing.rejected")
+                .description("Hashing requests refused because the queue was full")
+                .register(meterRegistry);
+        log.info("🔐 Password hashing pool: {} threads, queue {}", size, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit("encode", () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matches(String rawPassword, String passwordHash) {
+        return submit("verify", () -> passwordEncoder.matches(rawPassword, passwordHash));
+    }
+
+    private <T> CompletableFuture<T> submit(String op, Supplier<T> work) {
+        Timer queueTimer = timer("auth.hashing.queue", op);
+        Timer hashTimer = timer("auth.hashing.duration", op);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long enqueued = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueTimer.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+                try {
+                    result.complete(hashTimer.record(work));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private Timer timer(String name, String op) {
+        return Timer.builder(name)
+                .tag("op", op)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
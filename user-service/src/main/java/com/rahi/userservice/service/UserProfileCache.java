@@ -0,0 +1,162 @@
+package com.rahi.userservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rahi.userservice.dto.UserDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Two-level cache of user profiles (UserDto, never the entity, so no password hash).
+ *
+ * L1 is a small in-process Caffeine cache, L2 is Redis shared by all instances.
+ * Every user has a version on the CacheInvalidationBus (namespace users) and L2 entries are keyed
+ * by it (users:v2:{id}:{version}), so an update just publishes an invalidation: readers move to a
+ * new key and a reader racing the update can only write under the old one. Peers drop their L1
+ * entry for that user only; the bus flushes L1 if invalidations may have been missed, so the L1
+ * TTL only bounds memory, not staleness.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserProfileCache {
+
+    public static final String NAMESPACE = "users";
+
+    // Bump when UserDto changes shape so old L2 entries are ignored (v2: versions moved to the bus)
+    private static final String SCHEMA = "v2";
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${users.cache.l1-max-size:10000}")
+    private long l1MaxSize;
+
+    @Value("${users.cache.l1-ttl:PT10M}")
+    private Duration l1Ttl;
+
+    @Value("${users.cache.l2-ttl:PT30M}")
+    private Duration l2Ttl;
+
+    private Cache<Long, Entry> profiles;
+    private Cache<String, Long> idsByEmail;
+
+    @PostConstruct
+    public void init() {
+        profiles = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1Ttl)
+                .recordStats()
+                .build();
+        // Emails can't change, so this mapping never needs invalidating
+        idsByEmail = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles, "users.profiles");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByEmail, "users.ids-by-email");
+        invalidationBus.subscribe(NAMESPACE,
+                invalidation -> dropLocal(Long.valueOf(invalidation.key()), invalidation.epoch()),
+                profiles::invalidateAll);
+    }
+
+    public Optional<UserDto> get(Long id, Supplier<Optional<UserDto>> loader) {
+        Entry local = profiles.getIfPresent(id);
+        if (local != null && local.profile() != null) {
+            return Optional.of(local.profile());
+        }
+
+        long version = invalidationBus.version(NAMESPACE, id.toString());
+        UserDto shared = readShared(id, version);
+        if (shared != null) {
+            putLocal(id, version, shared);
+            return Optional.of(shared);
+        }
+
+        Optional<UserDto> loaded = loader.get();
+        loaded.ifPresent(profile -> {
+            writeShared(id, version, profile);
+            putLocal(id, version, profile);
+        });
+        return loaded;
+    }
+
+    public Optional<Long> idForEmail(String email) {
+        return Optional.ofNullable(idsByEmail.getIfPresent(email));
+    }
+
+    public void rememberEmail(String email, Long id) {
+        idsByEmail.put(email, id);
+    }
+
+    /**
+     * Call after the user's change is committed
+     */
+    public void invalidate(Long id) {
+        long version = invalidationBus.publish(NAMESPACE, id.toString());
+        if (version < 0) {
+            // Peers flush after max-staleness; L2 is keyed by the old version until Redis is back
+            profiles.invalidate(id);
+            return;
+        }
+        dropLocal(id, version);
+    }
+
+    private void dropLocal(Long id, long version) {
+        // Leave a tombstone so a reader that loaded the old version can't put it back
+        profiles.asMap().merge(id, new Entry(version, null),
+                (existing, tombstone) -> existing.version() > version ? existing : tombstone);
+    }
+
+    private void putLocal(Long id, long version, UserDto profile) {
+        profiles.asMap().merge(id, new Entry(version, profile),
+                (existing, fresh) -> existing.version() > version ? existing : fresh);
+    }
+
+    private UserDto readShared(Long id, long version) {
+        if (version < 0) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(profileKey(id, version));
+            return json != null ? objectMapper.readValue(json, UserDto.class) : null;
+        } catch (Exception e) {
+            log.debug("L2 read failed for user {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeShared(Long id, long version, UserDto profile) {
+        if (version < 0) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(profileKey(id, version), objectMapper.writeValueAsString(profile), l2Ttl);
+        } catch (Exception e) {
+            log.debug("L2 write failed for user {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static String profileKey(Long id, long version) {
+        return "users:" + SCHEMA + ":" + id + ":" + version;
+    }
+
+    /**
+     * L1 value; a null profile is a tombstone left by an invalidation
+     */
+    private record Entry(long version, UserDto profile) {
+    }
+}
@@ -1,18 +1,30 @@
 package com.rahi.userservice.service;
 
 import com.rahi.userservice.dto.RegisterRequest;
+import com.rahi.userservice.dto.UserDto;
 import com.rahi.userservice.entity.AccessibilityPreferences;
 import com.rahi.userservice.entity.User;
 import com.rahi.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-// import org.springframework.cache.annotation.CacheEvict;
-// import org.springframework.cache.annotation.Cacheable;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -20,19 +32,87 @@ import java.util.Optional;
 public class UserService {
     
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final UserProfileCache userProfileCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
 
-    @Transactional
-    public User register(RegisterRequest req) {
+    @Value("${auth.registration.threads:4}")
+    private int registrationThreads;
+
+    @Value("${auth.registration.queue-capacity:64}")
+    private int registrationQueueCapacity;
+
+    // Saves new users, so JDBC never holds a bcrypt thread. Bounded like the bcrypt pool: a full
+    // queue fails the registration with RejectedExecutionException (503 with Retry-After)
+    private ThreadPoolExecutor registrationExecutor;
+    private Counter registrationsRejected;
+
+    @PostConstruct
+    public void init() {
+        int size = Math.max(1, registrationThreads);
+        AtomicInteger threadCount = new AtomicInteger();
+        registrationExecutor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, registrationQueueCapacity)),
+                r -> {
+                    Thread thread = new Thread(r, "user-registration-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        registrationsRejected = Counter.builder("auth.registration.rejected")
+                .description("Registrations refused because the save queue was full")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        registrationExecutor.shutdown();
+    }
+
+    /**
+     * Register - password is hashed on the bcrypt pool (see PasswordHashingService), then the
+     * email check and insert run in one transaction on the registration pool
+     */
+    public CompletableFuture<User> register(RegisterRequest req) {
         log.info("Registering new user: {}", req.getEmail());
         
+        // Known emails fail before paying for a hash; checked again when saving
         if (userRepository.existsByEmail(req.getEmail())) {
             throw new IllegalArgumentException("Email already registered");
         }
-        
+
+        // @Transactional doesn't reach a call on this from a pool thread, hence the template
+        return passwordHashingService.encode(req.getPassword()).thenCompose(passwordHash -> save(req, passwordHash));
+    }
+
+    // Submitted by hand rather than with thenApplyAsync: a rejection there is thrown on the
+    // completing bcrypt thread and the registration would never complete
+    private CompletableFuture<User> save(RegisterRequest req, String passwordHash) {
+        CompletableFuture<User> result = new CompletableFuture<>();
+        try {
+            registrationExecutor.execute(() -> {
+                try {
+                    result.complete(transactionTemplate.execute(status -> createUser(req, passwordHash)));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            registrationsRejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private User createUser(RegisterRequest req, String passwordHash) {
+        if (userRepository.existsByEmail(req.getEmail())) {
+            throw new IllegalArgumentException("Email already registered");
+        }
+
         User user = User.builder()
                 .email(req.getEmail())
-                .passwordHash(passwordEncoder.encode(req.getPassword()))
+                .passwordHash(passwordHash)
                 .name(req.getName() != null ? req.getName() : req.getEmail().split("@")[0])
                 .preferences(AccessibilityPreferences.builder()
                         .fontSize("medium")
@@ -41,56 +121,54 @@ public class UserService {
                         .voiceCommands(false)
                         .build())
                 .build();
-        
+
         User saved = userRepository.save(user);
         log.info("User registered successfully: {} (ID: {})", saved.getEmail(), saved.getId());
-        
+
         return saved;
     }
 
     /**
-     * Authenticate - NO CACHING
+     * Authenticate - NO CACHING; completes with null for bad credentials
      */
-    public User authenticate(String email, String password) {
+    public CompletableFuture<User> authenticate(String email, String password) {
         log.debug("Authenticating user: {}", email);
         
         Optional<User> userOpt = userRepository.findByEmail(email);
         
         if (userOpt.isEmpty()) {
             log.warn("Authentication failed: User not found - {}", email);
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
         
         User user = userOpt.get();
-        
-        if (!passwordEncoder.matches(password, user.getPasswordHash())) {
-            log.warn("Authentication failed: Invalid password for user - {}", email);
-            return null;
-        }
-        
-        log.info("Authentication successful for user: {} (ID: {})", email, user.getId());
-        return user;
+
+        return passwordHashingService.matches(password, user.getPasswordHash()).thenApply(matches -> {
+            if (!matches) {
+                log.warn("Authentication failed: Invalid password for user - {}", email);
+                return null;
+            }
+
+            log.info("Authentication successful for user: {} (ID: {})", email, user.getId());
+            return user;
+        });
     }
 
     /**
-     * Find by email - SIMPLE CACHE KEY
-     * Using #p0 (first parameter) instead of #email
+     * Find by email - entity, NOT CACHED (use findProfileByEmail for reads)
      */
-    // @Cacheable(value = "users", key = "#p0")
     public Optional<User> findByEmail(String email) {
-        log.info("🔍 Finding user by email: {} (checking cache)", email);
+        log.info("🔍 Finding user by email: {}", email);
         Optional<User> user = userRepository.findByEmail(email);
         log.info(user.isPresent() ? "✅ User found: {}" : "❌ User not found: {}", email);
         return user;
     }
 
     /**
-     * Find by ID - SIMPLE CACHE KEY
-     * Using #p0 (first parameter) instead of #id
+     * Find by ID - entity, NOT CACHED (use findProfileById for reads)
      */
-    // @Cacheable(value = "users", key = "#p0")
     public Optional<User> findById(Long id) {
-        log.info("🔍 Finding user by ID: {} (checking cache)", id);
+        log.info("🔍 Finding user by ID: {}", id);
         Optional<User> user = userRepository.findById(id);
         if (user.isPresent()) {
             log.info("✅ User found: ID={}, Email={}", id, user.get().getEmail());
@@ -101,10 +179,30 @@ public class UserService {
     }
 
     /**
-     * Update preferences - CLEAR ALL CACHE
+     * Profile by ID - CACHED (L1 + Redis L2, see UserProfileCache)
+     */
+    public Optional<UserDto> findProfileById(Long id) {
+        return userProfileCache.get(id, () -> findById(id).map(this::toDto));
+    }
+
+    /**
+     * Profile by email - CACHED, via the email -> ID mapping
+     */
+    public Optional<UserDto> findProfileByEmail(String email) {
+        Optional<Long> id = userProfileCache.idForEmail(email);
+        if (id.isPresent()) {
+            return findProfileById(id.get());
+        }
+        return findByEmail(email).map(user -> {
+            userProfileCache.rememberEmail(email, user.getId());
+            return findProfileById(user.getId()).orElseGet(() -> toDto(user));
+        });
+    }
+
+    /**
+     * Update preferences - EVICTS ONLY THIS USER, on every instance, once committed
      */
     @Transactional
-    // @CacheEvict(value = "users", allEntries = true)
     public User updatePreferences(Long userId, AccessibilityPreferences prefs) {
         log.info("🔧 Updating preferences for user ID: {}", userId);
         
@@ -113,12 +211,30 @@ public class UserService {
         
         user.setPreferences(prefs);
         User updated = userRepository.save(user);
+
+        // Evicting before commit would let a concurrent read cache the old row again
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userProfileCache.invalidate(userId);
+            }
+        });
         
         log.info("✅ Preferences updated, cache cleared for user: {}", userId);
         
         return updated;
     }
 
+    public UserDto toDto(User user) {
+        return UserDto.builder()
+                .id(user.getId())
+                .email(user.getEmail())
+                .name(user.getName())
+                .preferences(user.getPreferences())
+                .createdAt(user.getCreatedAt())
+                .build();
+    }
+
     public boolean emailExists(String email) {
         return userRepository.existsByEmail(email);
     }
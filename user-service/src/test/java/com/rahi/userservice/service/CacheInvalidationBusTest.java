@@ -0,0 +1,199 @@
+package com.rahi.userservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Epoch bookkeeping of the invalidation bus: messages arrive out of order, twice or not at all,
+ * and the periodic check against the epoch in Redis decides when a namespace must be flushed
+ */
+class CacheInvalidationBusTest {
+
+    private static final String NAMESPACE = "users";
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+
+    private final List<Long> delivered = new ArrayList<>();
+    private final AtomicInteger flushes = new AtomicInteger();
+    private CacheInvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        bus = new CacheInvalidationBus(redisTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(bus, "maxStaleness", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(bus, "versionTtl", Duration.ofDays(1));
+        bus.init();
+    }
+
+    @Test
+    void epochsUpToTheSeedAreAlreadySeen() {
+        subscribeAt("5");
+
+        receive(4);
+        receive(5);
+        receive(6);
+
+        assertThat(delivered).containsExactly(6L);
+    }
+
+    @Test
+    void outOfOrderEpochsAreDeliveredOnceAndNothingIsFlushed() {
+        subscribeAt("5");
+
+        receive(7);
+        receive(6);
+        receive(7);
+        receive(6);
+        check("7");
+        check("7");
+
+        assertThat(delivered).containsExactly(7L, 6L);
+        assertThat(flushes).hasValue(0);
+    }
+
+    @Test
+    void gapStillOpenOneCheckLaterFlushesOnce() {
+        subscribeAt("5");
+        receive(7); // 6 never arrives
+
+        check("7");
+        assertThat(flushes).hasValue(0); // 6 may still be on its way
+
+        check("7");
+        assertThat(flushes).hasValue(1);
+
+        check("7");
+        assertThat(flushes).hasValue(1);
+        receive(6);
+        assertThat(delivered).containsExactly(7L); // flushed over
+    }
+
+    @Test
+    void gapFilledBeforeTheNextCheckIsNotFlushed() {
+        subscribeAt("5");
+        receive(7);
+        check("7");
+
+        receive(6);
+        check("7");
+
+        assertThat(delivered).containsExactly(7L, 6L);
+        assertThat(flushes).hasValue(0);
+    }
+
+    @Test
+    void flushOnlySkipsEpochsRedisHadReachedAtThePreviousCheck() {
+        subscribeAt("5");
+        check("6"); // 6 is lost
+        receive(8);
+
+        check("8");
+        assertThat(flushes).hasValue(1);
+
+        receive(7); // published after the first check, so still expected
+        check("8");
+
+        assertThat(delivered).containsExactly(8L, 7L);
+        assertThat(flushes).hasValue(1);
+    }
+
+    @Test
+    void firstCheckOfAnUnseededNamespaceOnlySeedsIt() {
+        subscribeWithoutRedis();
+
+        check("9");
+        check("9");
+        receive(9);
+        receive(10);
+
+        assertThat(flushes).hasValue(0);
+        assertThat(delivered).containsExactly(10L);
+    }
+
+    @Test
+    void firstMessageOfAnUnseededNamespaceSeedsIt() {
+        subscribeWithoutRedis();
+
+        receive(9);
+        receive(9);
+        check("9");
+        check("9");
+
+        assertThat(delivered).containsExactly(9L);
+        assertThat(flushes).hasValue(0);
+    }
+
+    @Test
+    void unreachableRedisFlushesOnlyOncePastMaxStaleness() {
+        subscribeAt("5");
+        when(values.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+
+        bus.checkEpochs();
+        assertThat(flushes).hasValue(0);
+
+        ReflectionTestUtils.setField(bus, "maxStaleness", Duration.ZERO);
+        bus.checkEpochs();
+        assertThat(flushes).hasValue(1);
+    }
+
+    @Test
+    void malformedMessagesAreIgnored() {
+        subscribeAt("5");
+
+        bus.onMessage(message("garbage"), null);
+        bus.onMessage(message(NAMESPACE + "|not-a-number|0|peer|key"), null);
+        receive(6);
+
+        assertThat(delivered).containsExactly(6L);
+    }
+
+    private void subscribeAt(String redisEpoch) {
+        when(values.get(anyString())).thenReturn(redisEpoch);
+        subscribe();
+    }
+
+    private void subscribeWithoutRedis() {
+        when(values.get(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        subscribe();
+    }
+
+    private void subscribe() {
+        bus.subscribe(NAMESPACE, invalidation -> delivered.add(invalidation.epoch()), flushes::incrementAndGet);
+    }
+
+    // Published by another instance
+    private void receive(long epoch) {
+        bus.onMessage(message(NAMESPACE + '|' + epoch + '|' + System.currentTimeMillis() + "|peer|user-" + epoch), null);
+    }
+
+    private void check(String redisEpoch) {
+        when(values.multiGet(anyList())).thenReturn(List.of(redisEpoch));
+        bus.checkEpochs();
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(CacheInvalidationBus.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}